@@ -0,0 +1,65 @@
+package com.firstclub.membership.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Entry point of benchmarks.jar. Runs the selected benchmarks (all by default) once
+ * single-threaded and once with one thread per available processor, always with the
+ * GC profiler, and writes each run as JMH JSON to jmh-results/LABEL-Nt.json so runs
+ * from different commits can be diffed or loaded into any JMH result viewer.
+ *
+ * Accepts the usual JMH command line (e.g. -p storeSize=1000 or a benchmark regex);
+ * an explicit -t runs that thread count only. The label comes from -Dbench.label.
+ * The thread count set here overrides {@code @Threads}, so benchmarks that must run
+ * single-threaded are listed in {@link #SINGLE_THREADED} and left out of every pass
+ * with more than one thread.
+ */
+public final class BenchmarkRunner {
+    static final List<Class<?>> SINGLE_THREADED = List.of(ExpirySweepBenchmark.class);
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        Path dir = Path.of(System.getProperty("bench.resultsDir", "jmh-results"));
+        Files.createDirectories(dir);
+        String label = System.getProperty("bench.label", "current");
+
+        int[] threadCounts = cli.getThreads().hasValue()
+                ? new int[]{cli.getThreads().get()}
+                : new int[]{1, Math.max(2, Runtime.getRuntime().availableProcessors())};
+        for (int threads : threadCounts) {
+            Path result = dir.resolve(label + "-" + threads + "t.json");
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.toString());
+            if (threads > 1) {
+                for (Class<?> benchmark : SINGLE_THREADED) options.exclude(Pattern.quote(benchmark.getName()) + "\\.");
+            }
+            try {
+                new Runner(options.build()).run();
+            } catch (NoBenchmarksException e) {
+                System.out.println("Nothing to run with " + threads + " threads");
+                continue;
+            }
+            System.out.println("Results written to " + result.toAbsolutePath());
+        }
+    }
+}
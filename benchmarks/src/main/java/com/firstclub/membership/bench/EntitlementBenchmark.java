@@ -0,0 +1,88 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Benefit;
+import com.firstclub.membership.model.BenefitType;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.EntitlementService;
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A free-delivery check for a random one of 10k subscribed users: through the
+ * {@link EntitlementService} cache, and by walking the user's subscriptions and tier
+ * benefits as callers did before it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntitlementBenchmark {
+    private static final int ORDER_VALUE = 350;
+
+    @Benchmark
+    public boolean freeDeliveryCached(EntitlementState state, Picker picker) {
+        return state.entitlements.freeDelivery(state.userIds[picker.next(state.userIds.length)], ORDER_VALUE);
+    }
+
+    @Benchmark
+    public boolean freeDeliveryByScan(EntitlementState state, Picker picker) {
+        for (Subscription s : state.subscriptions.findByUserId(state.userIds[picker.next(state.userIds.length)])) {
+            if (s.getStatus() != SubscriptionStatus.ACTIVE) continue;
+            for (Benefit b : state.plans.findById(s.getPlanId()).orElseThrow().tier(s.getTierId()).getBenefits()) {
+                if (b.type() == BenefitType.DELIVERY && ORDER_VALUE >= b.value()) return true;
+            }
+        }
+        return false;
+    }
+
+    @State(Scope.Benchmark)
+    public static class EntitlementState {
+        InMemoryPlanRepository plans;
+        InMemorySubscriptionRepository subscriptions;
+        EntitlementService entitlements;
+        String[] userIds;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            plans = new InMemoryPlanRepository();
+            DataBootstrap.seed(plans, new InMemoryUserRepository());
+            subscriptions = new InMemorySubscriptionRepository();
+            entitlements = new EntitlementService(subscriptions, plans);
+            Instant now = Instant.now();
+            userIds = new String[10_000];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = "bench-user-" + i;
+                subscriptions.save(new Subscription(IdGenerator.next(), userIds[i], i % 2 == 0 ? "MONTHLY" : "YEARLY",
+                        "GOLD", now, now.plus(Duration.ofDays(30))));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next(int bound) { return random.nextInt(bound); }
+    }
+}
@@ -0,0 +1,89 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code expireDueSubscriptions} against a store of {@link MembershipState#storeSize}
+ * subscriptions: once with nothing due (what every scheduler tick pays) and once with
+ * a batch of due subscriptions inserted before each call.
+ *
+ * A sweep covers the whole shared store and the scheduler runs one at a time, so this
+ * runs single-threaded only; {@link BenchmarkRunner} leaves it out of multi-threaded passes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class ExpirySweepBenchmark {
+
+    @Benchmark
+    public void expireDueSubscriptionsIdle(MembershipState state) {
+        state.service.expireDueSubscriptions();
+    }
+
+    /**
+     * Each call expires dueCount subscriptions. They are deleted again after the call
+     * so the store size stays fixed; setup and teardown are not measured.
+     */
+    @Benchmark
+    public void expireDueSubscriptions(MembershipState state, DueBatch batch) {
+        state.service.expireDueSubscriptions();
+    }
+
+    @State(Scope.Thread)
+    public static class DueBatch {
+        @Param({"100"})
+        public int dueCount;
+
+        private final List<Subscription> due = new ArrayList<>();
+        private String[] dueUserIds;
+
+        /** Users of their own, so the store's users keep exactly one ACTIVE subscription each. */
+        @Setup(Level.Trial)
+        public void createUsers(MembershipState state) {
+            dueUserIds = new String[dueCount];
+            for (int i = 0; i < dueCount; i++) {
+                dueUserIds[i] = "bench-due-" + i;
+                state.users.save(new User(dueUserIds[i], "Due " + i));
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void insertDue(MembershipState state) {
+            Instant past = Instant.now().minusSeconds(1);
+            for (String userId : dueUserIds) {
+                due.add(new Subscription(IdGenerator.next(), userId, "MONTHLY", "SILVER", past.minusSeconds(60), past));
+            }
+            state.subscriptions.saveAll(due);
+        }
+
+        @TearDown(Level.Invocation)
+        public void removeDue(MembershipState state) {
+            for (Subscription s : due) state.subscriptions.delete(s.getId());
+            due.clear();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link IdGenerator#next} against a single shared {@link AtomicLong}, called from
+ * long-lived benchmark threads and from a new thread per call, the way the HTTP server
+ * runs each request on its own virtual thread (a new platform thread before Java 21).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+    private final AtomicLong shared = new AtomicLong();
+
+    @Benchmark
+    public long next() {
+        return IdGenerator.next();
+    }
+
+    @Benchmark
+    public long sharedCounter() {
+        return shared.incrementAndGet();
+    }
+
+    @Benchmark
+    public long nextPerRequestThread(RequestThreads threads) throws Exception {
+        return threads.call(IdGenerator::next);
+    }
+
+    @Benchmark
+    public long sharedCounterPerRequestThread(RequestThreads threads) throws Exception {
+        return threads.call(shared::incrementAndGet);
+    }
+
+    /** Runs each call on a new thread: virtual where the JVM has them, found reflectively as the build targets 17. */
+    @State(Scope.Benchmark)
+    public static class RequestThreads {
+        ExecutorService virtual; // null before Java 21: a platform thread per call
+
+        @Setup(Level.Trial)
+        public void open() {
+            try {
+                virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                virtual = null;
+            }
+        }
+
+        long call(LongSupplier id) throws Exception {
+            if (virtual != null) return virtual.submit(id::getAsLong).get();
+            long[] result = new long[1];
+            Thread request = new Thread(() -> result[0] = id.getAsLong());
+            request.start();
+            request.join();
+            return result[0];
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            if (virtual != null) virtual.shutdown();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.Subscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against a store of {@link MembershipState#storeSize} subscriptions.
+ * Each benchmark reports both throughput and average time per operation; run with
+ * -t 1 and -t N (or through {@link BenchmarkRunner}) for single- and multi-threaded
+ * numbers, and with -prof gc for the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipServiceBenchmark {
+
+    /**
+     * Subscribes the thread's own fresh user, then deletes the subscription so the user
+     * can subscribe again and the store size stays fixed. Includes the delete.
+     */
+    @Benchmark
+    public Subscription subscribe(MembershipState state, ThreadState thread) {
+        Subscription s = state.service.subscribe(thread.freshUserId,
+                MembershipState.PLANS[thread.pick(2)], MembershipState.TIERS[thread.pick(3)]);
+        state.subscriptions.delete(s.getId());
+        return s;
+    }
+
+    @Benchmark
+    public List<Subscription> getSubscriptionsForUser(MembershipState state, ThreadState thread) {
+        return state.service.getSubscriptionsForUser(state.userIds[thread.pick(state.userIds.length)]);
+    }
+
+    @Benchmark
+    public Subscription upgradeOrDowngrade(MembershipState state, ThreadState thread) {
+        return state.service.upgradeOrDowngrade(state.activeIds[thread.pick(state.activeIds.length)],
+                MembershipState.TIERS[thread.pick(3)]);
+    }
+
+    @Benchmark
+    public Subscription evaluateAndApplyTier(MembershipState state, ThreadState thread) {
+        return state.service.evaluateAndApplyTier(state.activeIds[thread.pick(state.activeIds.length)],
+                thread.metricMaps[thread.pick(ThreadState.ORDERS.length)]);
+    }
+
+    @Benchmark
+    public Subscription evaluateAndApplyTierVector(MembershipState state, ThreadState thread) {
+        return state.service.evaluateAndApplyTier(state.activeIds[thread.pick(state.activeIds.length)],
+                thread.metricVectors[thread.pick(ThreadState.ORDERS.length)]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.OffHeapSubscriptionRepository;
+import com.firstclub.membership.repo.SubscriptionRepository;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A service over a pre-populated store, shared by all benchmark threads.
+ *
+ * The store holds storeSize subscriptions across storeSize / 2 users: each user has
+ * one ACTIVE subscription expiring in the future and one EXPIRED one, so user lookups
+ * return a realistic history and nothing is due for expiry. The ids of the ACTIVE
+ * subscriptions and the user ids are kept in arrays for random picks.
+ *
+ * 10M subscriptions need a large heap with the in-memory store (about 8 GB);
+ * pass -jvmArgs -Xmx12g or narrow the sizes with -p storeSize=....
+ */
+@State(Scope.Benchmark)
+public class MembershipState {
+    static final String[] PLANS = {"MONTHLY", "YEARLY"};
+    static final String[] TIERS = {"SILVER", "GOLD", "PLATINUM"};
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int storeSize;
+
+    /** "inmemory" or "offheap", as with -Dmembership.store. */
+    @Param({"inmemory"})
+    public String store;
+
+    SubscriptionRepository subscriptions;
+    InMemoryUserRepository users;
+    MembershipService service;
+    String[] userIds;
+    String[] activeIds;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        InMemoryPlanRepository plans = new InMemoryPlanRepository();
+        users = new InMemoryUserRepository();
+        subscriptions = "offheap".equals(store) ? new OffHeapSubscriptionRepository() : new InMemorySubscriptionRepository();
+        DataBootstrap.seed(plans, users);
+        service = new MembershipService(subscriptions, plans, users, new SimpleTierEvaluator());
+
+        int userCount = Math.max(1, storeSize / 2);
+        userIds = new String[userCount];
+        activeIds = new String[userCount];
+        Instant now = Instant.now();
+        List<Subscription> chunk = new ArrayList<>(10_000);
+        for (int u = 0; u < userCount; u++) {
+            String userId = "bench-user-" + u;
+            users.save(new User(userId, "Bench User " + u));
+            userIds[u] = userId;
+            String plan = PLANS[u % PLANS.length];
+            String tier = TIERS[u % TIERS.length];
+            chunk.add(Subscription.restore(IdGenerator.next(), userId, plan, tier,
+                    now.minus(Duration.ofDays(60)), now.minus(Duration.ofDays(30)), SubscriptionStatus.EXPIRED));
+            Subscription active = new Subscription(IdGenerator.next(), userId, plan, tier,
+                    now, now.plus(Duration.ofDays(30 + u % 335)));
+            chunk.add(active);
+            activeIds[u] = active.getId();
+            if (chunk.size() >= 10_000) {
+                subscriptions.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        subscriptions.saveAll(chunk);
+    }
+}
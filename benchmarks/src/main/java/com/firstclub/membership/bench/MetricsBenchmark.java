@@ -0,0 +1,44 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.metrics.MembershipMetrics;
+import com.firstclub.membership.metrics.Operation;
+import com.firstclub.membership.metrics.ServiceMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What instrumentation adds to one service call: a start and a record against live
+ * metrics, and the same pair against {@link ServiceMetrics#NOOP}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private final MembershipMetrics live = new MembershipMetrics(() -> 0, () -> 0);
+
+    @Benchmark
+    public long timedCallEnabled() {
+        long t = live.start();
+        live.record(Operation.GET_SUBSCRIPTION, t);
+        return t;
+    }
+
+    @Benchmark
+    public long timedCallDisabled() {
+        long t = ServiceMetrics.NOOP.start();
+        ServiceMetrics.NOOP.record(Operation.GET_SUBSCRIPTION, t);
+        return t;
+    }
+}
@@ -0,0 +1,114 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.MetricsVector;
+import com.firstclub.membership.service.PartitionedMembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tier changes through {@link PartitionedMembershipService} by shard count. Run with
+ * -t N for N producer threads: throughput should grow with shards up to the core
+ * count, since each shard adds a writer and splits the store. Each call waits for
+ * its future, so the numbers include the hand-off to the writer thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartitionedServiceBenchmark {
+
+    /** A partitioned service over storeSize ACTIVE subscriptions, one per user. */
+    @State(Scope.Benchmark)
+    public static class PartitionedState {
+        @Param({"1", "2", "4", "8"})
+        public int shards;
+
+        @Param({"100000"})
+        public int storeSize;
+
+        PartitionedMembershipService service;
+        String[] activeIds;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            InMemoryPlanRepository plans = new InMemoryPlanRepository();
+            InMemoryUserRepository users = new InMemoryUserRepository();
+            DataBootstrap.seed(plans, users);
+            service = new PartitionedMembershipService(shards, plans, users, new SimpleTierEvaluator());
+
+            activeIds = new String[storeSize];
+            Instant now = Instant.now();
+            List<Subscription> all = new ArrayList<>(storeSize);
+            for (int u = 0; u < storeSize; u++) {
+                String userId = "bench-user-" + u;
+                users.save(new User(userId, "Bench User " + u));
+                Subscription s = new Subscription(IdGenerator.next(), userId, MembershipState.PLANS[u % 2],
+                        MembershipState.TIERS[u % 3], now, now.plus(Duration.ofDays(30 + u % 335)));
+                all.add(s);
+                activeIds[u] = s.getId();
+            }
+            service.saveAll(all).join();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            service.close();
+        }
+    }
+
+    /** Per-thread picks; independent of {@link MembershipState} so no shared store is built. */
+    @State(Scope.Thread)
+    public static class Picks {
+        SplittableRandom random;
+        final MetricsVector[] metricVectors = new MetricsVector[ThreadState.ORDERS.length];
+
+        @Setup
+        public void setUp(ThreadParams params) {
+            random = new SplittableRandom(42 + params.getThreadIndex());
+            for (int i = 0; i < ThreadState.ORDERS.length; i++) {
+                metricVectors[i] = MetricsVector.of(ThreadState.ORDERS[i], 500.0);
+            }
+        }
+
+        int pick(int bound) { return random.nextInt(bound); }
+    }
+
+    @Benchmark
+    public Subscription upgradeOrDowngrade(PartitionedState state, Picks thread) {
+        return state.service.upgradeOrDowngrade(state.activeIds[thread.pick(state.activeIds.length)],
+                MembershipState.TIERS[thread.pick(3)]).join();
+    }
+
+    @Benchmark
+    public Subscription evaluateAndApplyTierVector(PartitionedState state, Picks thread) {
+        return state.service.evaluateAndApplyTier(state.activeIds[thread.pick(state.activeIds.length)],
+                thread.metricVectors[thread.pick(ThreadState.ORDERS.length)]).join();
+    }
+}
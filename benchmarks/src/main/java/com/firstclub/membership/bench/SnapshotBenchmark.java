@@ -0,0 +1,86 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.SnapshotFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and restoring a snapshot of subscriptionCount subscriptions: what a checkpoint
+ * and a restart pay. Each thread has its own files, so the multi-threaded run measures
+ * concurrent snapshots rather than writers racing on one rename.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Benchmark
+    public SnapshotFile.Header write(SnapshotState state) throws IOException {
+        return SnapshotFile.write(state.file, 0, List.of(), List.of(), state.subscriptions);
+    }
+
+    @Benchmark
+    public InMemorySubscriptionRepository load(SnapshotState state) throws IOException {
+        InMemorySubscriptionRepository restored = new InMemorySubscriptionRepository();
+        SnapshotFile.load(state.existing, new InMemoryPlanRepository(), new InMemoryUserRepository(), restored);
+        return restored;
+    }
+
+    @State(Scope.Thread)
+    public static class SnapshotState {
+        @Param({"200000"})
+        public int subscriptionCount;
+
+        List<Subscription> subscriptions;
+        Path dir;
+        Path file;
+        Path existing;
+
+        @Setup(Level.Trial)
+        public void build() throws IOException {
+            Instant now = Instant.now();
+            subscriptions = new ArrayList<>(subscriptionCount);
+            for (int i = 0; i < subscriptionCount; i++) {
+                subscriptions.add(new Subscription("sub-" + i, "user-" + i / 4, "MONTHLY", "SILVER",
+                        now, now.plus(Duration.ofDays(30))));
+            }
+            dir = Files.createTempDirectory("snapshot-bench");
+            file = dir.resolve("written.bin");
+            existing = dir.resolve("existing.bin");
+            SnapshotFile.write(existing, 0, List.of(), List.of(), subscriptions);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(existing);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
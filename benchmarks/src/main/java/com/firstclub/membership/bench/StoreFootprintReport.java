@@ -0,0 +1,116 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.OffHeapSubscriptionRepository;
+import com.firstclub.membership.repo.SubscriptionRepository;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Memory report for the two subscription stores, which JMH cannot give: retained heap
+ * and off-heap bytes per subscription once N subscriptions are stored, and the GC count
+ * and time spent while populating them and then churning them with N tier changes.
+ *
+ * Run from the benchmarks jar with a heap large enough for the in-memory store:
+ * {@code java -Xmx4g -cp target/benchmarks.jar com.firstclub.membership.bench.StoreFootprintReport 1000000}.
+ * Stores are measured one after another in the same JVM; the previous one is released
+ * and collected first.
+ */
+public final class StoreFootprintReport {
+    private static final String[] TIERS = {"SILVER", "GOLD", "PLATINUM"};
+    private static final int CHUNK = 10_000;
+
+    private StoreFootprintReport() {}
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%d subscriptions, %d tier changes%n", count, count);
+        System.out.printf("%-9s %12s %14s %14s %18s %18s%n", "store", "heap B/sub", "off-heap B/sub",
+                "total B/sub", "populate GCs (ms)", "churn GCs (ms)");
+        report("inmemory", InMemorySubscriptionRepository::new, count);
+        report("offheap", OffHeapSubscriptionRepository::new, count);
+        System.out.printf("Off-heap column data alone is %d B/sub%n", OffHeapSubscriptionRepository.ROW_BYTES);
+    }
+
+    private static void report(String name, Supplier<SubscriptionRepository> factory, int count) {
+        long heapBefore = retainedHeap();
+        SubscriptionRepository store = factory.get();
+
+        GcTotals start = GcTotals.now();
+        populate(store, count);
+        GcTotals populated = GcTotals.now();
+        long heap = retainedHeap() - heapBefore;
+        long offHeap = store instanceof OffHeapSubscriptionRepository o ? o.offHeapBytes() : 0;
+
+        GcTotals churnStart = GcTotals.now();
+        churn(store, count);
+        GcTotals churned = GcTotals.now();
+
+        System.out.printf("%-9s %12.1f %14.1f %14.1f %18s %18s%n", name, (double) heap / count,
+                (double) offHeap / count, (double) (heap + offHeap) / count,
+                populated.since(start), churned.since(churnStart));
+        if (store.size() != count) throw new IllegalStateException("Store lost subscriptions: " + store.size());
+    }
+
+    /** Four subscriptions per user, saved in chunks as a bulk import would. */
+    private static void populate(SubscriptionRepository store, int count) {
+        Instant now = Instant.now();
+        List<Subscription> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(new Subscription("sub-" + i, "user-" + i / 4, "MONTHLY", TIERS[i % TIERS.length],
+                    now, now.plus(Duration.ofDays(30 + i % 335))));
+            if (chunk.size() == CHUNK) {
+                store.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        store.saveAll(chunk);
+    }
+
+    /** Moves random subscriptions to another tier through compare-and-set replaces. */
+    private static void churn(SubscriptionRepository store, int count) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            Subscription s = store.findById("sub-" + random.nextInt(count)).orElseThrow();
+            store.replace(s, s.withTier(TIERS[(i + 1) % TIERS.length]));
+        }
+    }
+
+    /** Heap in use after a full collection, which is what the live objects retain. */
+    private static long retainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Several rounds, so objects freed by finalization or reference processing are gone too
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /** Collections and collection time summed over all collectors. */
+    private record GcTotals(long count, long millis) {
+        static GcTotals now() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcTotals(count, millis);
+        }
+
+        String since(GcTotals start) {
+            return (count - start.count) + " (" + (millis - start.millis) + ")";
+        }
+    }
+}
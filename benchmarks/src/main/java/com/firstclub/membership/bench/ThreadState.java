@@ -0,0 +1,41 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.service.MetricsVector;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Per-thread picks and inputs, so benchmark threads never share a random source and
+ * metric inputs are built once rather than inside the measured method.
+ */
+@State(Scope.Thread)
+public class ThreadState {
+    /** Below GOLD, GOLD and PLATINUM under SimpleTierEvaluator, so evaluations keep changing tiers. */
+    static final long[] ORDERS = {1, 6, 12};
+
+    SplittableRandom random;
+    /** A user with no subscriptions of its own, for subscribe. */
+    String freshUserId;
+    @SuppressWarnings("unchecked")
+    final Map<String, Number>[] metricMaps = new Map[ORDERS.length];
+    final MetricsVector[] metricVectors = new MetricsVector[ORDERS.length];
+
+    @Setup
+    public void setUp(MembershipState state, ThreadParams params) {
+        random = new SplittableRandom(42 + params.getThreadIndex());
+        freshUserId = "bench-fresh-" + params.getThreadIndex();
+        state.users.save(new User(freshUserId, "Fresh " + params.getThreadIndex()));
+        for (int i = 0; i < ORDERS.length; i++) {
+            metricMaps[i] = Map.of("ordersCount", ORDERS[i], "orderValue", 500.0);
+            metricVectors[i] = MetricsVector.of(ORDERS[i], 500.0);
+        }
+    }
+
+    int pick(int bound) { return random.nextInt(bound); }
+}
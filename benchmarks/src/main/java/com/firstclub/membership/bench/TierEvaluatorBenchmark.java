@@ -0,0 +1,68 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.service.MetricsVector;
+import com.firstclub.membership.service.RuleBasedTierEvaluator;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SimpleTierEvaluator#evaluate} and the compiled {@link RuleBasedTierEvaluator}
+ * with the same thresholds, each through the map and the vector API.
+ * Independent of the store, so it takes no storeSize parameter.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TierEvaluatorBenchmark {
+    private final SimpleTierEvaluator evaluator = new SimpleTierEvaluator();
+    private final RuleBasedTierEvaluator rules = RuleBasedTierEvaluator.withDefaults();
+    @SuppressWarnings("unchecked")
+    private final Map<String, Number>[] maps = new Map[ThreadState.ORDERS.length];
+    private final MetricsVector[] vectors = new MetricsVector[ThreadState.ORDERS.length];
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        for (int i = 0; i < ThreadState.ORDERS.length; i++) {
+            maps[i] = Map.of("ordersCount", ThreadState.ORDERS[i], "orderValue", 500.0);
+            vectors[i] = MetricsVector.of(ThreadState.ORDERS[i], 500.0);
+        }
+    }
+
+    @Benchmark
+    public String evaluateMap() {
+        return evaluator.evaluate(maps[random.nextInt(maps.length)]);
+    }
+
+    @Benchmark
+    public String evaluateVector() {
+        return evaluator.evaluate(vectors[random.nextInt(vectors.length)]);
+    }
+
+    @Benchmark
+    public String evaluateRulesMap() {
+        return rules.evaluate(maps[random.nextInt(maps.length)]);
+    }
+
+    @Benchmark
+    public String evaluateRulesVector() {
+        return rules.evaluate(vectors[random.nextInt(vectors.length)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.firstclub.membership.bench;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.DurabilityMode;
+import com.firstclub.membership.repo.WalSubscriptionRepository;
+import com.firstclub.membership.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * One {@code save} through the write-ahead log per durability mode. Run multi-threaded
+ * to see group commit: concurrent BATCHED writers share each fsync, PER_WRITE ones do not.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalSaveBenchmark {
+
+    @Benchmark
+    public Subscription save(WalState state) {
+        Instant now = Instant.now();
+        Subscription s = new Subscription(IdGenerator.next(), "bench-user", "MONTHLY", "SILVER",
+                now, now.plus(Duration.ofDays(30)));
+        state.repo.save(s);
+        return s;
+    }
+
+    @State(Scope.Benchmark)
+    public static class WalState {
+        @Param({"PER_WRITE", "BATCHED", "ASYNC"})
+        public DurabilityMode mode;
+
+        Path dir;
+        WalSubscriptionRepository repo;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("wal-bench");
+            repo = new WalSubscriptionRepository(dir.resolve("subscriptions.wal"), mode);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            repo.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+            }
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.util.List;
  * Put seed data into repositories for demo and CLI convenience.
  */
 public final class DataBootstrap {
+    public static final String LOAD_USER_PREFIX = "load-";
+
     private DataBootstrap() {}
 
     public static void seed(PlanRepository planRepo, UserRepository userRepo) {
@@ -35,4 +37,11 @@ public final class DataBootstrap {
 
         userRepo.save(new User("user-1", "Demo User"));
     }
+
+    /** Synthetic users load-0 .. load-(count-1), the population the load generator drives. */
+    public static void seedLoadUsers(UserRepository userRepo, int count) {
+        for (int i = 0; i < count; i++) {
+            userRepo.save(new User(LOAD_USER_PREFIX + i, "Load User " + i));
+        }
+    }
 }
@@ -1,47 +1,114 @@
 package com.firstclub.membership;
 
 import com.firstclub.membership.cli.InteractiveCli;
+import com.firstclub.membership.event.LifecycleEventBus;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.event.WaitStrategy;
+import com.firstclub.membership.http.MembershipHttpServer;
+import com.firstclub.membership.metrics.MembershipMetrics;
+import com.firstclub.membership.metrics.ServiceMetrics;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.DurabilityMode;
 import com.firstclub.membership.repo.InMemoryPlanRepository;
 import com.firstclub.membership.repo.InMemorySubscriptionRepository;
 import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.OffHeapSubscriptionRepository;
+import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SnapshotFile;
+import com.firstclub.membership.repo.SubscriptionRepository;
+import com.firstclub.membership.repo.UserRepository;
+import com.firstclub.membership.repo.WalSubscriptionRepository;
+import com.firstclub.membership.service.EntitlementService;
 import com.firstclub.membership.service.MembershipService;
 import com.firstclub.membership.service.PlanService;
-import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.service.RenewalEngine;
+import com.firstclub.membership.service.RuleBasedTierEvaluator;
 import com.firstclub.membership.service.TierEvaluator;
+import com.firstclub.membership.util.IdGenerator;
+import com.firstclub.membership.util.StripedLocks;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.management.JMException;
 
 /**
  * Main - application entrypoint. Boots data, scheduler and interactive CLI.
+ *
+ * Subscriptions are kept in memory unless -Dmembership.dataDir is set, in which case
+ * they are persisted to a write-ahead log there (-Dmembership.durability=PER_WRITE|BATCHED|ASYNC).
+ * State is also snapshotted there every -Dmembership.snapshotMinutes (default 10) and on
+ * exit; startup loads the latest snapshot and replays only the log tail after it.
+ * Service latency and counters are published as MXBeans unless -Dmembership.metrics=false.
+ * -Dmembership.httpPort starts the HTTP/JSON API alongside the CLI
+ * (-Dmembership.httpBacklog sets the accept queue, default 8192; also pass
+ * -Dsun.net.httpserver.nodelay=true, see {@link MembershipHttpServer}).
+ * -Dmembership.loadUsers=N seeds users load-0 .. load-(N-1) for the load generator.
  */
 public class Main {
-    public static void main(String[] args) {
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    public static void main(String[] args) throws IOException {
         System.out.println("Starting FirstClub Membership Program\n");
 
         // Repositories
         var planRepo = new InMemoryPlanRepository();
         var userRepo = new InMemoryUserRepository();
-        var subRepo = new InMemorySubscriptionRepository();
+        SubscriptionRepository subRepo = openSubscriptionRepository(planRepo, userRepo);
 
         // Services
         PlanService planService = new PlanService(planRepo);
-        TierEvaluator tierEvaluator = new SimpleTierEvaluator();
-        MembershipService membershipService = new MembershipService(subRepo, planRepo, userRepo, tierEvaluator);
+        TierEvaluator tierEvaluator = RuleBasedTierEvaluator.fromResource("tier-rules.properties");
+        LifecycleEventBus events = new LifecycleEventBus(1024, WaitStrategy.blocking());
+        events.addHandler("log", (event, sequence, endOfBatch) -> {
+            if (event.type() == LifecycleEventType.EXPIRED) {
+                System.out.println("Expired subscription: " + event.subscriptionId());
+            }
+        });
+        events.start();
+        ServiceMetrics metrics = openMetrics(subRepo, userRepo);
+        // Entitlement cache entries are dropped synchronously, before events reach the bus
+        EntitlementService entitlements = new EntitlementService(subRepo, planRepo);
+        MembershipService membershipService = new MembershipService(subRepo, planRepo, userRepo, tierEvaluator,
+                StripedLocks.forAvailableProcessors(), entitlements.andThen(events), metrics);
+
+        RenewalEngine renewals = new RenewalEngine(subRepo, planRepo, RenewalEngine.Charger.NONE,
+                entitlements.andThen(events), RenewalEngine.Policy.defaults());
 
         // Seed some data
         DataBootstrap.seed(planRepo, userRepo);
+        DataBootstrap.seedLoadUsers(userRepo, Integer.getInteger("membership.loadUsers", 0));
+
+        MembershipHttpServer http = startHttp(membershipService, entitlements);
 
         // Start scheduler
         ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
         scheduler.scheduleAtFixedRate(() -> {
             try {
+                // Renew first, so flagged subscriptions inside the lead time are extended, not expired
+                renewals.renewDue();
                 membershipService.expireDueSubscriptions();
             } catch (Throwable t) {
                 System.err.println("Error in scheduler: " + t.getMessage());
             }
         }, 10, 30, TimeUnit.SECONDS); // initial delay 10s, repeat every 30s
+        if (subRepo instanceof WalSubscriptionRepository wal) {
+            long minutes = Long.getLong("membership.snapshotMinutes", 10);
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    takeSnapshot(wal, planRepo, userRepo);
+                } catch (Throwable t) {
+                    System.err.println("Error writing snapshot: " + t.getMessage());
+                }
+            }, minutes, minutes, TimeUnit.MINUTES);
+        }
 
         // Add shutdown hook to stop scheduler
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -52,6 +119,10 @@ public class Main {
             } catch (InterruptedException ignored) {
                 scheduler.shutdownNow();
             }
+            if (http != null) http.close();
+            renewals.close();
+            events.close();
+            closeQuietly(subRepo);
             System.out.println("Shutdown complete.");
         }));
 
@@ -62,6 +133,93 @@ public class Main {
         // After CLI exits, shut down scheduler and exit
         scheduler.shutdown();
         try { scheduler.awaitTermination(2, TimeUnit.SECONDS); } catch (InterruptedException ignored) {}
+        if (subRepo instanceof WalSubscriptionRepository wal) {
+            try {
+                takeSnapshot(wal, planRepo, userRepo);
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot: " + e.getMessage());
+            }
+        }
+        if (http != null) http.close();
+        renewals.close();
+        events.close();
+        closeQuietly(subRepo);
         System.out.println("Application exiting.");
     }
+
+    private static SubscriptionRepository openSubscriptionRepository(PlanRepository planRepo, UserRepository userRepo)
+            throws IOException {
+        String dataDir = System.getProperty("membership.dataDir");
+        if (dataDir == null) {
+            return "offheap".equals(System.getProperty("membership.store"))
+                    ? new OffHeapSubscriptionRepository() : new InMemorySubscriptionRepository();
+        }
+
+        Path dir = Files.createDirectories(Path.of(dataDir));
+        DurabilityMode mode = DurabilityMode.valueOf(System.getProperty("membership.durability", "BATCHED"));
+        System.out.println("Persisting subscriptions to " + dir + " (" + mode + ")");
+
+        var memory = new InMemorySubscriptionRepository();
+        long fromLsn = 0;
+        long begin = System.nanoTime();
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            SnapshotFile.Header header = SnapshotFile.load(snapshot, planRepo, userRepo, memory);
+            fromLsn = header.walLsn();
+            System.out.printf("Loaded snapshot: %d plans, %d users, %d subscriptions in %d ms%n",
+                    header.plans(), header.users(), header.subscriptions(), (System.nanoTime() - begin) / 1_000_000);
+        }
+        long replayBegin = System.nanoTime();
+        WalSubscriptionRepository repo = new WalSubscriptionRepository(dir.resolve("subscriptions.wal"), mode,
+                memory, fromLsn);
+        repo.stream().forEach(sub -> IdGenerator.observe(sub.getId()));
+        long end = System.nanoTime();
+        System.out.printf("Replayed log tail from offset %d in %d ms; restore took %d ms%n",
+                fromLsn, (end - replayBegin) / 1_000_000, (end - begin) / 1_000_000);
+        return repo;
+    }
+
+    private static MembershipHttpServer startHttp(MembershipService membershipService,
+                                                  EntitlementService entitlements) throws IOException {
+        Integer port = Integer.getInteger("membership.httpPort");
+        if (port == null) return null;
+        MembershipHttpServer http = MembershipHttpServer.start(new InetSocketAddress(port),
+                Integer.getInteger("membership.httpBacklog", 8192), membershipService, entitlements);
+        System.out.println("HTTP API listening on port " + http.port()
+                + (http.usesVirtualThreads() ? " (virtual threads)" : " (platform thread pool)"));
+        return http;
+    }
+
+    private static ServiceMetrics openMetrics(SubscriptionRepository subRepo, UserRepository userRepo) {
+        if (!Boolean.parseBoolean(System.getProperty("membership.metrics", "true"))) return ServiceMetrics.NOOP;
+        MembershipMetrics metrics = new MembershipMetrics(subRepo::size, userRepo::size);
+        try {
+            metrics.register(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MXBeans: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    private static void takeSnapshot(WalSubscriptionRepository repo, PlanRepository planRepo, UserRepository userRepo)
+            throws IOException {
+        Path dir = Path.of(System.getProperty("membership.dataDir"));
+        long begin = System.nanoTime();
+        SnapshotFile.Header header;
+        try (Stream<Subscription> subscriptions = repo.stream()) {
+            header = SnapshotFile.write(dir.resolve(SNAPSHOT_FILE), repo.checkpointLsn(),
+                    planRepo.findAll(), userRepo.findAll(), subscriptions);
+        }
+        System.out.printf("Snapshot written: %d subscriptions at log offset %d in %d ms%n",
+                header.subscriptions(), header.walLsn(), (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    private static void closeQuietly(Object resource) {
+        if (!(resource instanceof Closeable c)) return;
+        try {
+            c.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error closing " + resource.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
 }
@@ -2,7 +2,10 @@ package com.firstclub.membership.cli;
 
 import com.firstclub.membership.model.MembershipPlan;
 import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
 import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.SubscriptionFilter;
+import com.firstclub.membership.repo.SubscriptionPage;
 import com.firstclub.membership.repo.UserRepository;
 import com.firstclub.membership.service.MembershipService;
 import com.firstclub.membership.service.PlanService;
@@ -16,6 +19,8 @@ public class InteractiveCli {
     private final PlanService planService;
     private final MembershipService membershipService;
     private final UserRepository userRepository;
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner = new Scanner(System.in);
 
     public InteractiveCli(PlanService planService, MembershipService membershipService, UserRepository userRepository) {
@@ -40,7 +45,8 @@ public class InteractiveCli {
                     case "4" -> upgradeDowngradeSubscription();
                     case "5" -> cancelSubscription();
                     case "6" -> evaluateSubscription();
-                    case "7" -> running = false;
+                    case "7" -> browseSubscriptions();
+                    case "8" -> running = false;
                     default -> System.out.println("Unknown option. Try again.");
                 }
             } catch (Exception e) {
@@ -59,7 +65,8 @@ public class InteractiveCli {
         System.out.println("4) Upgrade/downgrade subscription");
         System.out.println("5) Cancel subscription");
         System.out.println("6) Evaluate subscription (apply metrics)");
-        System.out.println("7) Exit");
+        System.out.println("7) Browse subscriptions (filter by status/plan)");
+        System.out.println("8) Exit");
         System.out.print("Choose: ");
     }
 
@@ -106,8 +113,11 @@ public class InteractiveCli {
             System.out.print("Enter tierId: ");
             String tierId = scanner.nextLine().trim();
 
+            System.out.print("Auto-renew? (y/N): ");
+            boolean autoRenew = scanner.nextLine().trim().equalsIgnoreCase("y");
+
             // THIS MAY THROW -> caught below
-            Subscription created = membershipService.subscribe(userId, planId, tierId);
+            Subscription created = membershipService.subscribe(userId, planId, tierId, autoRenew);
 
             System.out.println("Created:");
             System.out.println(pretty(created));
@@ -215,6 +225,50 @@ public class InteractiveCli {
     }
 
 
+    // 7. BROWSE SUBSCRIPTIONS, A PAGE AT A TIME
+
+    private void browseSubscriptions() {
+        try {
+            SubscriptionFilter filter = SubscriptionFilter.ALL;
+            System.out.print("Status (ACTIVE/CANCELLED/EXPIRED, blank for any): ");
+            String status = scanner.nextLine().trim();
+            if (!status.isEmpty()) filter = filter.withStatus(parseStatus(status));
+
+            System.out.print("Plan ID (blank for any): ");
+            String planId = scanner.nextLine().trim();
+            if (!planId.isEmpty()) filter = filter.withPlan(planId);
+
+            String token = null;
+            int shown = 0;
+            do {
+                SubscriptionPage page = membershipService.listSubscriptions(filter, token, PAGE_SIZE);
+                page.items().forEach(s -> System.out.println(brief(s)));
+                shown += page.items().size();
+                token = page.nextToken();
+                if (token == null) break;
+                System.out.print("More? (y/N): ");
+            } while (scanner.nextLine().trim().equalsIgnoreCase("y"));
+
+            if (shown == 0) System.out.println("No subscriptions match.");
+        } catch (Exception ex) {
+            System.out.println("Error: " + ex.getMessage());
+        }
+    }
+
+    private static SubscriptionStatus parseStatus(String text) {
+        try {
+            return SubscriptionStatus.valueOf(text.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + text);
+        }
+    }
+
+    private static String brief(Subscription s) {
+        return s.getId() + "  " + s.getUserId() + "  " + s.getPlanId() + "/" + s.getTierId() + "  "
+                + s.getStatus() + "  expires " + s.getExpiresAt();
+    }
+
+
     // PRETTY JSON OUTPUT FOR SUBSCRIPTION
 
     private String pretty(Subscription s) {
@@ -225,7 +279,8 @@ public class InteractiveCli {
                 "  \"tierId\": \"" + s.getTierId() + "\",\n" +
                 "  \"startAt\": \"" + s.getStartAt() + "\",\n" +
                 "  \"expiresAt\": \"" + s.getExpiresAt() + "\",\n" +
-                "  \"status\": \"" + s.getStatus() + "\"\n" +
+                "  \"status\": \"" + s.getStatus() + "\",\n" +
+                "  \"autoRenew\": " + s.isAutoRenew() + "\n" +
                 "}";
     }
 }
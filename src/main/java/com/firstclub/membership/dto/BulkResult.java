@@ -0,0 +1,11 @@
+package com.firstclub.membership.dto;
+
+/** Outcome of one item in a bulk call: exactly one of value and error is set. */
+public record BulkResult<T>(T value, RuntimeException error) {
+
+    public static <T> BulkResult<T> ok(T value) { return new BulkResult<>(value, null); }
+
+    public static <T> BulkResult<T> failed(RuntimeException error) { return new BulkResult<>(null, error); }
+
+    public boolean isSuccess() { return error == null; }
+}
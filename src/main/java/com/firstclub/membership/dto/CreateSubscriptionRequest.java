@@ -1,4 +1,10 @@
 package com.firstclub.membership.dto;
 
 /** Create subscription DTO (used by potential programmatic callers). */
-public record CreateSubscriptionRequest(String userId, String planId, String tierId) {}
+public record CreateSubscriptionRequest(String userId, String planId, String tierId, boolean autoRenew) {
+
+    /** A request without auto-renewal. */
+    public CreateSubscriptionRequest(String userId, String planId, String tierId) {
+        this(userId, planId, tierId, false);
+    }
+}
@@ -0,0 +1,31 @@
+package com.firstclub.membership.event;
+
+import com.firstclub.membership.model.Subscription;
+
+/**
+ * Where services report subscription lifecycle changes. Publishing must be cheap and
+ * must not run side effects on the caller's thread.
+ */
+public interface EventPublisher {
+
+    /** Discards every event; used when nothing is listening. */
+    EventPublisher NOOP = (type, subscription, previousTierCode) -> {};
+
+    /**
+     * Records that the subscription went through the given transition.
+     * previousTierCode is the tier code before a TIER_CHANGED, or -1 otherwise.
+     */
+    void publish(LifecycleEventType type, Subscription subscription, int previousTierCode);
+
+    default void publish(LifecycleEventType type, Subscription subscription) {
+        publish(type, subscription, -1);
+    }
+
+    /** Publishes to this publisher, then to next, on the caller's thread. */
+    default EventPublisher andThen(EventPublisher next) {
+        return (type, subscription, previousTierCode) -> {
+            publish(type, subscription, previousTierCode);
+            next.publish(type, subscription, previousTierCode);
+        };
+    }
+}
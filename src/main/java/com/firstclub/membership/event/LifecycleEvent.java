@@ -0,0 +1,48 @@
+package com.firstclub.membership.event;
+
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+
+/**
+ * One preallocated ring-buffer slot. The bus overwrites it in place when the slot is
+ * reused, so handlers must copy out anything they need to keep beyond onEvent.
+ */
+public final class LifecycleEvent {
+    private LifecycleEventType type;
+    private String subscriptionId;
+    private String userId;
+    private int planCode;
+    private int tierCode;
+    private int previousTierCode;
+    private long timestampMillis;
+
+    LifecycleEvent() {}
+
+    void set(LifecycleEventType type, Subscription s, int previousTierCode, long timestampMillis) {
+        this.type = type;
+        this.subscriptionId = s.getId();
+        this.userId = s.getUserId();
+        this.planCode = s.getPlanCode();
+        this.tierCode = s.getTierCode();
+        this.previousTierCode = previousTierCode;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public LifecycleEventType type() { return type; }
+    public String subscriptionId() { return subscriptionId; }
+    public String userId() { return userId; }
+    public int planCode() { return planCode; }
+    public int tierCode() { return tierCode; }
+    /** Tier code before a TIER_CHANGED; -1 for other events. */
+    public int previousTierCode() { return previousTierCode; }
+    public long timestampMillis() { return timestampMillis; }
+
+    public String planId() { return IdDictionary.PLANS.decode(planCode); }
+    public String tierId() { return IdDictionary.TIERS.decode(tierCode); }
+
+    @Override
+    public String toString() {
+        return type + " " + subscriptionId + " user=" + userId + " plan=" + planId() + " tier=" + tierId()
+                + (previousTierCode >= 0 ? " from=" + IdDictionary.TIERS.decode(previousTierCode) : "");
+    }
+}
@@ -0,0 +1,206 @@
+package com.firstclub.membership.event;
+
+import com.firstclub.membership.model.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Disruptor-style lifecycle event bus over a preallocated ring of {@link LifecycleEvent}s.
+ *
+ * Producers claim a sequence with one CAS on the cursor, fill the slot in place and
+ * mark it published in a per-slot availability array; nothing is allocated and no
+ * lock is taken per event. Every handler runs on its own thread with its own
+ * sequence, sees every event in order, and processes all events available at once as
+ * a batch. A producer that would overwrite a slot some handler has not consumed yet
+ * waits, so memory stays bounded by the ring size.
+ *
+ * Handlers are registered before {@link #start()}; publishing with no handlers, or
+ * after {@link #close()}, drops the event. An event a handler throws on is passed to
+ * the handler's {@link LifecycleEventHandler.FailureHandler} and counted in
+ * {@link #failures(String)}; delivery carries on with the next event.
+ */
+public final class LifecycleEventBus implements EventPublisher, AutoCloseable {
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    private final LifecycleEvent[] entries;
+    private final int mask;
+    private final int indexShift;
+    /** Round (sequence >>> indexShift) of the event last published into each slot. */
+    private final AtomicIntegerArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final WaitStrategy waitStrategy;
+    private final List<Processor> processors = new ArrayList<>();
+
+    private volatile Processor[] gating = new Processor[0];
+    private volatile boolean accepting;
+    private volatile boolean halted;
+    private boolean started; // guarded by this
+
+    public LifecycleEventBus(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.entries = new LifecycleEvent[capacity];
+        for (int i = 0; i < capacity; i++) entries[i] = new LifecycleEvent();
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1);
+        this.waitStrategy = waitStrategy;
+    }
+
+    public synchronized void addHandler(String name, LifecycleEventHandler handler) {
+        addHandler(name, handler, LifecycleEventHandler.FailureHandler.IGNORE);
+    }
+
+    public synchronized void addHandler(String name, LifecycleEventHandler handler,
+                                        LifecycleEventHandler.FailureHandler onFailure) {
+        if (started) throw new IllegalStateException("Handlers must be added before the bus is started.");
+        processors.add(new Processor(name, handler, onFailure));
+    }
+
+    public synchronized void start() {
+        if (started) throw new IllegalStateException("Event bus already started.");
+        started = true;
+        gating = processors.toArray(new Processor[0]);
+        accepting = gating.length > 0;
+        for (Processor p : processors) p.thread.start();
+    }
+
+    @Override
+    public void publish(LifecycleEventType type, Subscription subscription, int previousTierCode) {
+        if (!accepting) return;
+        long sequence = claim();
+        if (sequence < 0) return;
+        int index = (int) sequence & mask;
+        entries[index].set(type, subscription, previousTierCode, System.currentTimeMillis());
+        published.set(index, (int) (sequence >>> indexShift));
+        waitStrategy.signalAll();
+    }
+
+    /** Highest sequence claimed by a producer so far; -1 before the first event. */
+    public long cursor() { return cursor.get(); }
+
+    public int capacity() { return entries.length; }
+
+    /** Events the named handler has thrown on so far; 0 for an unknown name. */
+    public synchronized long failures(String handlerName) {
+        for (Processor p : processors) {
+            if (p.name.equals(handlerName)) return p.failures.get();
+        }
+        return 0;
+    }
+
+    /**
+     * Stops accepting events, lets handlers drain what was already published and stops
+     * their threads. Waits at most a few seconds for slow handlers.
+     */
+    @Override
+    public synchronized void close() {
+        if (!started || halted) return;
+        accepting = false;
+        long target = cursor.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        for (Processor p : gating) {
+            while (p.sequence.get() < target && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        halted = true;
+        waitStrategy.signalAll();
+        for (Processor p : gating) {
+            try {
+                p.thread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** Claims the next sequence, waiting while the ring is full; -1 if the bus halted meanwhile. */
+    private long claim() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - entries.length > minimumGatingSequence()) {
+                if (halted) return -1;
+                LockSupport.parkNanos(1); // ring full: a handler is behind
+                continue;
+            }
+            if (cursor.compareAndSet(current, next)) return next;
+        }
+    }
+
+    private long minimumGatingSequence() {
+        long min = Long.MAX_VALUE;
+        for (Processor p : gating) min = Math.min(min, p.sequence.get());
+        return min;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /** One handler's thread and progress. */
+    private final class Processor implements Runnable {
+        private final String name;
+        private final LifecycleEventHandler handler;
+        private final LifecycleEventHandler.FailureHandler onFailure;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong failures = new AtomicLong();
+        private final Thread thread;
+
+        Processor(String name, LifecycleEventHandler handler, LifecycleEventHandler.FailureHandler onFailure) {
+            this.name = name;
+            this.handler = handler;
+            this.onFailure = onFailure;
+            this.thread = new Thread(this, "event-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            LongSupplier claimed = cursor::get;
+            BooleanSupplier stopped = () -> halted;
+            long next = sequence.get() + 1;
+            while (true) {
+                long available = waitStrategy.waitFor(next, claimed, stopped);
+                if (available < next) {
+                    if (halted) return;
+                    continue;
+                }
+                // Claimed slots may still be being filled: stop at the first gap
+                long end = next;
+                while (end <= available && isPublished(end)) end++;
+                if (end == next) {
+                    if (halted) return;
+                    Thread.onSpinWait();
+                    continue;
+                }
+                for (long s = next; s < end; s++) {
+                    LifecycleEvent event = entries[(int) s & mask];
+                    try {
+                        handler.onEvent(event, s, s == end - 1);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        try {
+                            onFailure.onFailure(event, s, e);
+                        } catch (RuntimeException ignored) {
+                            // Already counted; a broken callback must not stop delivery
+                        }
+                    }
+                }
+                sequence.set(end - 1); // frees the batch's slots for producers
+                next = end;
+            }
+        }
+    }
+}
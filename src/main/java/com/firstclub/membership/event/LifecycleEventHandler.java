@@ -0,0 +1,22 @@
+package com.firstclub.membership.event;
+
+/**
+ * Consumer of lifecycle events. Each handler runs on its own thread and sees every
+ * event in publication order; endOfBatch marks the last event currently available,
+ * which is the natural point to flush buffered work.
+ */
+@FunctionalInterface
+public interface LifecycleEventHandler {
+    void onEvent(LifecycleEvent event, long sequence, boolean endOfBatch) throws Exception;
+
+    /**
+     * Told about an event its handler threw on, on the handler's thread, before delivery
+     * moves on to the next event. The event slot is reused afterwards, so copy what you keep.
+     */
+    @FunctionalInterface
+    interface FailureHandler {
+        FailureHandler IGNORE = (event, sequence, error) -> { };
+
+        void onFailure(LifecycleEvent event, long sequence, Exception error);
+    }
+}
@@ -0,0 +1,9 @@
+package com.firstclub.membership.event;
+
+public enum LifecycleEventType {
+    SUBSCRIBED,
+    TIER_CHANGED,
+    CANCELLED,
+    EXPIRED,
+    RENEWED
+}
@@ -0,0 +1,130 @@
+package com.firstclub.membership.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * How an idle consumer waits for the producer cursor to reach the sequence it needs.
+ * Trades latency against CPU: busy-spin is lowest latency and burns a core, blocking
+ * costs a lock per publish but uses no CPU while idle.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until cursor reaches the sequence or halted becomes true, and returns the
+     * last cursor value seen (which may be below the sequence if halted).
+     */
+    long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted);
+
+    /** Called by producers after publishing, to wake blocked consumers. */
+    void signalAll();
+
+    static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            @Override
+            public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+                long available;
+                while ((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                    Thread.onSpinWait();
+                }
+                return available;
+            }
+
+            @Override
+            public void signalAll() {}
+        };
+    }
+
+    /** Spins briefly, then yields the CPU between checks. */
+    static WaitStrategy yielding() {
+        return new WaitStrategy() {
+            @Override
+            public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+                int spins = 100;
+                long available;
+                while ((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                    if (spins > 0) {
+                        spins--;
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                return available;
+            }
+
+            @Override
+            public void signalAll() {}
+        };
+    }
+
+    /** Spins, yields, then parks for the given interval between checks. */
+    static WaitStrategy sleeping(long parkNanos) {
+        return new WaitStrategy() {
+            @Override
+            public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+                int counter = 200;
+                long available;
+                while ((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                    if (counter > 100) {
+                        counter--;
+                        Thread.onSpinWait();
+                    } else if (counter > 0) {
+                        counter--;
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(parkNanos);
+                    }
+                }
+                return available;
+            }
+
+            @Override
+            public void signalAll() {}
+        };
+    }
+
+    /** Parks consumers on a condition that producers signal; lowest CPU use. */
+    static WaitStrategy blocking() {
+        return new WaitStrategy() {
+            private final ReentrantLock lock = new ReentrantLock();
+            private final Condition published = lock.newCondition();
+            private volatile int waiters;
+
+            @Override
+            public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+                long available = cursor.getAsLong();
+                if (available >= sequence) return available;
+                lock.lock();
+                try {
+                    waiters++;
+                    while ((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                        // Timed wait: a halt is not signalled through the condition
+                        published.awaitNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waiters--;
+                    lock.unlock();
+                }
+                return available;
+            }
+
+            @Override
+            public void signalAll() {
+                if (waiters == 0) return; // nobody parked: skip the lock on the publish path
+                lock.lock();
+                try {
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,386 @@
+package com.firstclub.membership.http;
+
+import com.firstclub.membership.model.Benefit;
+import com.firstclub.membership.model.BenefitType;
+import com.firstclub.membership.model.Entitlements;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.Tier;
+import com.firstclub.membership.repo.ReadOnlyStoreException;
+import com.firstclub.membership.repo.SubscriptionCounts;
+import com.firstclub.membership.service.EntitlementService;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.NotFoundException;
+import com.firstclub.membership.service.RuleViolationException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/JSON front end for {@link MembershipService} on the JDK's built-in
+ * server; no outside dependencies.
+ *
+ * <pre>
+ * GET  /plans
+ * POST /subscriptions                  {"userId", "planId", "tierId", "autoRenew" (optional)}
+ * GET  /subscriptions/{id}
+ * POST /subscriptions/{id}/tier        {"tierId"}
+ * POST /subscriptions/{id}/cancel
+ * POST /subscriptions/{id}/auto-renew  {"enabled"}
+ * POST /subscriptions/{id}/evaluate    {"ordersCount", "orderValue", ...}
+ * GET  /users/{userId}/subscriptions
+ * GET  /users/{userId}/entitlements
+ * GET  /stats/subscriptions            non-zero counts by plan, tier and status
+ * </pre>
+ *
+ * Connections are multiplexed by the server's selector thread; each request runs on
+ * its own virtual thread when the JVM has them (Java 21+, found reflectively because
+ * the build targets 17), otherwise on a bounded platform pool. Unknown ids and users
+ * ({@link NotFoundException}) map to 404, invalid input to 400, a wrong method to 405, a
+ * body over {@value #MAX_BODY_BYTES} bytes to 413, {@link RuleViolationException}s such as
+ * a second ACTIVE subscription to 409, a {@link ReadOnlyStoreException} to 503 and any
+ * other failure to 500, each with an {"error": message} body.
+ *
+ * Launch the JVM with {@code -Dsun.net.httpserver.nodelay=true}. The JDK server writes
+ * headers and body separately, and with Nagle's algorithm on each response then waits
+ * for the client's delayed ACK (about 40 ms). The server reads the property once, so
+ * it has to be set before the first server starts.
+ */
+public final class MembershipHttpServer implements AutoCloseable {
+    private static final int STOP_DELAY_SECONDS = 1;
+    /** Request bodies are small JSON objects; anything larger is refused with 413. */
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final MembershipService membershipService;
+    private final EntitlementService entitlementService; // null: entitlements route disabled
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private MembershipHttpServer(HttpServer server, ExecutorService executor, boolean virtualThreads,
+                                 MembershipService membershipService, EntitlementService entitlementService) {
+        this.server = server;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+        this.membershipService = membershipService;
+        this.entitlementService = entitlementService;
+    }
+
+    /**
+     * Binds and starts the server. Port 0 picks a free port; backlog is the number of
+     * connections the OS queues before they are accepted.
+     */
+    public static MembershipHttpServer start(InetSocketAddress address, int backlog,
+                                             MembershipService membershipService,
+                                             EntitlementService entitlementService) throws IOException {
+        HttpServer http = HttpServer.create(address, backlog);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        ExecutorService executor = virtual != null ? virtual : newPlatformPool();
+        MembershipHttpServer server = new MembershipHttpServer(http, executor, virtual != null,
+                membershipService, entitlementService);
+        http.createContext("/", server::handle);
+        http.setExecutor(executor);
+        http.start();
+        return server;
+    }
+
+    public int port() { return server.getAddress().getPort(); }
+
+    /** Whether requests run on virtual threads rather than the platform pool. */
+    public boolean usesVirtualThreads() { return virtualThreads; }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Routing
+    // ------------------------------------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try {
+            String[] path = segments(exchange.getRequestURI().getPath());
+            String method = exchange.getRequestMethod();
+            Response r = route(method, path, exchange);
+            status = r.status();
+            body = r.body();
+        } catch (MethodNotAllowed e) {
+            status = 405;
+            body = error(e.getMessage());
+        } catch (PayloadTooLarge e) {
+            status = 413;
+            body = error(e.getMessage());
+        } catch (NotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuleViolationException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (ReadOnlyStoreException e) {
+            status = 503;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error: " + e.getMessage());
+        }
+        send(exchange, status, body);
+    }
+
+    private record Response(int status, String body) {}
+
+    private Response route(String method, String[] path, HttpExchange exchange) throws IOException {
+        if (path.length == 1 && path[0].equals("plans")) {
+            requireMethod(method, "GET");
+            return ok(plans(membershipService.listPlans()));
+        }
+        if (path.length >= 1 && path[0].equals("subscriptions")) {
+            if (path.length == 1) {
+                requireMethod(method, "POST");
+                Map<String, Object> req = readObject(exchange);
+                Subscription s = membershipService.subscribe(field(req, "userId"), field(req, "planId"),
+                        field(req, "tierId"), flag(req, "autoRenew", false));
+                return new Response(201, subscription(new StringBuilder(), s).toString());
+            }
+            String id = path[1];
+            if (path.length == 2) {
+                requireMethod(method, "GET");
+                Subscription s = membershipService.getSubscription(id)
+                        .orElseThrow(() -> new NotFoundException("Subscription", id));
+                return ok(subscription(new StringBuilder(), s).toString());
+            }
+            if (path.length == 3) {
+                requireMethod(method, "POST");
+                switch (path[2]) {
+                    case "tier" -> {
+                        Map<String, Object> req = readObject(exchange);
+                        return ok(subscription(new StringBuilder(),
+                                membershipService.upgradeOrDowngrade(id, field(req, "tierId"))).toString());
+                    }
+                    case "cancel" -> {
+                        return ok(subscription(new StringBuilder(), membershipService.cancelSubscription(id)).toString());
+                    }
+                    case "auto-renew" -> {
+                        Map<String, Object> req = readObject(exchange);
+                        if (!req.containsKey("enabled")) throw new IllegalArgumentException("Field enabled is required");
+                        return ok(subscription(new StringBuilder(),
+                                membershipService.setAutoRenew(id, flag(req, "enabled", false))).toString());
+                    }
+                    case "evaluate" -> {
+                        Map<String, Number> metrics = new HashMap<>();
+                        for (Map.Entry<String, Object> e : readObject(exchange).entrySet()) {
+                            if (!(e.getValue() instanceof Number n)) {
+                                throw new IllegalArgumentException("Metric " + e.getKey() + " must be a number");
+                            }
+                            metrics.put(e.getKey(), n);
+                        }
+                        return ok(subscription(new StringBuilder(),
+                                membershipService.evaluateAndApplyTier(id, metrics)).toString());
+                    }
+                    default -> { }
+                }
+            }
+        }
+        if (path.length == 3 && path[0].equals("users")) {
+            requireMethod(method, "GET");
+            String userId = path[1];
+            if (path[2].equals("subscriptions")) {
+                return ok(subscriptions(membershipService.getSubscriptionsForUser(userId)));
+            }
+            if (path[2].equals("entitlements") && entitlementService != null) {
+                return ok(entitlements(userId, entitlementService.entitlementsFor(userId)));
+            }
+        }
+        if (path.length == 2 && path[0].equals("stats") && path[1].equals("subscriptions")) {
+            requireMethod(method, "GET");
+            return ok(counts(membershipService.subscriptionCounts()));
+        }
+        return new Response(404, error("No such resource"));
+    }
+
+    private static void requireMethod(String actual, String expected) {
+        if (!expected.equals(actual)) throw new MethodNotAllowed(expected);
+    }
+
+    /** Signals a 405 to {@link #handle}. */
+    private static final class MethodNotAllowed extends RuntimeException {
+        MethodNotAllowed(String allowed) { super("Method not allowed; use " + allowed); }
+    }
+
+    /** Signals a 413 to {@link #handle}. */
+    private static final class PayloadTooLarge extends RuntimeException {
+        PayloadTooLarge() { super("Request body exceeds " + MAX_BODY_BYTES + " bytes"); }
+    }
+
+    private static String[] segments(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+
+    /** Reads at most MAX_BODY_BYTES, so an oversized or endless body cannot exhaust the heap. */
+    private static Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) throw new PayloadTooLarge();
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return Json.parseObject(text.isBlank() ? "{}" : text);
+    }
+
+    private static String field(Map<String, Object> req, String name) {
+        Object v = req.get(name);
+        if (!(v instanceof String s) || s.isBlank()) {
+            throw new IllegalArgumentException("Field " + name + " is required");
+        }
+        return s;
+    }
+
+    private static boolean flag(Map<String, Object> req, String name, boolean absent) {
+        Object v = req.get(name);
+        if (v == null) return absent;
+        if (!(v instanceof Boolean b)) throw new IllegalArgumentException("Field " + name + " must be true or false");
+        return b;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // JSON views
+    // ------------------------------------------------------------
+
+    private static Response ok(String body) { return new Response(200, body); }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    private static String plans(List<MembershipPlan> plans) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < plans.size(); i++) {
+            MembershipPlan p = plans.get(i);
+            if (i > 0) out.append(',');
+            Json.quote(out.append("{\"id\":"), p.getId());
+            Json.quote(out.append(",\"description\":"), p.getDescription());
+            out.append(",\"priceInINR\":").append(p.getPriceInINR());
+            Json.quote(out.append(",\"duration\":"), p.getDuration().toString());
+            out.append(",\"tiers\":[");
+            for (int t = 0; t < p.getTiers().size(); t++) {
+                Tier tier = p.getTiers().get(t);
+                if (t > 0) out.append(',');
+                Json.quote(out.append("{\"id\":"), tier.getId());
+                Json.quote(out.append(",\"name\":"), tier.getName());
+                out.append(",\"benefits\":[");
+                for (int b = 0; b < tier.getBenefits().size(); b++) {
+                    Benefit benefit = tier.getBenefits().get(b);
+                    if (b > 0) out.append(',');
+                    Json.quote(out.append("{\"id\":"), benefit.id());
+                    Json.quote(out.append(",\"type\":"), benefit.type().name());
+                    out.append(",\"value\":").append(benefit.value());
+                    Json.quote(out.append(",\"description\":"), benefit.description()).append('}');
+                }
+                out.append("]}");
+            }
+            out.append("]}");
+        }
+        return out.append(']').toString();
+    }
+
+    private static String subscriptions(List<Subscription> subscriptions) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < subscriptions.size(); i++) {
+            if (i > 0) out.append(',');
+            subscription(out, subscriptions.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    private static StringBuilder subscription(StringBuilder out, Subscription s) {
+        Json.quote(out.append("{\"id\":"), s.getId());
+        Json.quote(out.append(",\"userId\":"), s.getUserId());
+        Json.quote(out.append(",\"planId\":"), s.getPlanId());
+        Json.quote(out.append(",\"tierId\":"), s.getTierId());
+        Json.quote(out.append(",\"status\":"), s.getStatus().name());
+        Json.quote(out.append(",\"startAt\":"), s.getStartAt().toString());
+        Json.quote(out.append(",\"expiresAt\":"), s.getExpiresAt().toString());
+        return out.append(",\"autoRenew\":").append(s.isAutoRenew()).append('}');
+    }
+
+    private static String counts(Map<SubscriptionCounts.Key, Long> counts) {
+        StringBuilder out = new StringBuilder("[");
+        for (Map.Entry<SubscriptionCounts.Key, Long> e : counts.entrySet()) {
+            if (out.length() > 1) out.append(',');
+            Json.quote(out.append("{\"planId\":"), e.getKey().planId());
+            Json.quote(out.append(",\"tierId\":"), e.getKey().tierId());
+            Json.quote(out.append(",\"status\":"), e.getKey().status().name());
+            out.append(",\"count\":").append(e.getValue()).append('}');
+        }
+        return out.append(']').toString();
+    }
+
+    private static String entitlements(String userId, Entitlements e) {
+        StringBuilder out = new StringBuilder();
+        Json.quote(out.append("{\"userId\":"), userId);
+        out.append(",\"freeDeliveryThreshold\":")
+                .append(e.has(BenefitType.DELIVERY) ? String.valueOf(e.value(BenefitType.DELIVERY)) : "null");
+        out.append(",\"discountPercent\":").append(e.discountPercent());
+        out.append(",\"earlyAccess\":").append(e.has(BenefitType.EARLY_ACCESS));
+        out.append(",\"prioritySupport\":").append(e.has(BenefitType.SUPPORT));
+        return out.append('}').toString();
+    }
+
+    // ------------------------------------------------------------
+    // Executors
+    // ------------------------------------------------------------
+
+    /** Executors.newVirtualThreadPerTaskExecutor() when the running JVM supports it, else null. */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // before Java 21, or preview features disabled
+        }
+    }
+
+    /** Fallback for older JVMs: requests are short and in-memory, so a bounded pool keeps up. */
+    private static ExecutorService newPlatformPool() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "http-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(Math.max(16, Runtime.getRuntime().availableProcessors() * 8), factory);
+    }
+}
@@ -0,0 +1,116 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.http.Json;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives a running server through its HTTP/JSON API. Status codes map back to the
+ * service's exceptions: 400 and 404 to IllegalArgumentException, 409 to
+ * IllegalStateException; any other non-2xx status is an IOException.
+ */
+public final class HttpTarget implements LoadTarget {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String base;
+
+    public HttpTarget(URI base) {
+        String s = base.toString();
+        this.base = s.endsWith("/") ? s.substring(0, s.length() - 1) : s;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(TIMEOUT).build();
+    }
+
+    @Override
+    public String subscribe(String userId, String planId, String tierId) throws IOException {
+        StringBuilder body = new StringBuilder();
+        Json.quote(body.append("{\"userId\":"), userId);
+        Json.quote(body.append(",\"planId\":"), planId);
+        Json.quote(body.append(",\"tierId\":"), tierId).append('}');
+        return (String) Json.parseObject(send("POST", "/subscriptions", body.toString())).get("id");
+    }
+
+    @Override
+    public void changeTier(String subscriptionId, String tierId) throws IOException {
+        StringBuilder body = new StringBuilder();
+        Json.quote(body.append("{\"tierId\":"), tierId).append('}');
+        send("POST", "/subscriptions/" + encode(subscriptionId) + "/tier", body.toString());
+    }
+
+    @Override
+    public void evaluate(String subscriptionId, Map<String, Number> metrics) throws IOException {
+        StringBuilder body = new StringBuilder("{");
+        for (Map.Entry<String, Number> e : metrics.entrySet()) {
+            if (body.length() > 1) body.append(',');
+            Json.quote(body, e.getKey()).append(':').append(e.getValue());
+        }
+        send("POST", "/subscriptions/" + encode(subscriptionId) + "/evaluate", body.append('}').toString());
+    }
+
+    @Override
+    public void cancel(String subscriptionId) throws IOException {
+        send("POST", "/subscriptions/" + encode(subscriptionId) + "/cancel", "");
+    }
+
+    @Override
+    public List<Row> list(String userId) throws IOException {
+        List<?> items = (List<?>) Json.parse(send("GET", "/users/" + encode(userId) + "/subscriptions", null));
+        List<Row> rows = new ArrayList<>(items.size());
+        for (Object item : items) {
+            Map<?, ?> s = (Map<?, ?>) item;
+            rows.add(new Row((String) s.get("id"), (String) s.get("tierId"),
+                    SubscriptionStatus.valueOf((String) s.get("status")), Instant.parse((String) s.get("expiresAt"))));
+        }
+        return rows;
+    }
+
+    private String send(String method, String path, String body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path)).timeout(TIMEOUT);
+        if (body == null) {
+            request.GET();
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        }
+        HttpResponse<String> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + method + " " + path, e);
+        }
+        int status = response.statusCode();
+        if (status / 100 == 2) return response.body();
+        String message = errorMessage(response.body());
+        switch (status) {
+            case 400, 404 -> throw new IllegalArgumentException(message);
+            case 409 -> throw new IllegalStateException(message);
+            default -> throw new IOException(method + " " + path + " returned " + status + ": " + message);
+        }
+    }
+
+    private static String errorMessage(String body) {
+        try {
+            Object error = Json.parseObject(body).get("error");
+            return error != null ? error.toString() : body;
+        } catch (IllegalArgumentException e) {
+            return body;
+        }
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.OffHeapSubscriptionRepository;
+import com.firstclub.membership.repo.SubscriptionRepository;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.RuleBasedTierEvaluator;
+import com.firstclub.membership.util.StripedLocks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Drives a {@link MembershipService} in this JVM, with no transport in between. */
+public final class InProcessTarget implements LoadTarget {
+    private final MembershipService service;
+    private final SubscriptionRepository subscriptionRepository;
+
+    public InProcessTarget(MembershipService service, SubscriptionRepository subscriptionRepository) {
+        this.service = service;
+        this.subscriptionRepository = subscriptionRepository;
+    }
+
+    /**
+     * A fresh service wired like Main's (rule-based tiers, seeded plans) with the
+     * given number of load users; offHeap selects the off-heap subscription store.
+     */
+    public static InProcessTarget standalone(int users, boolean offHeap) {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        SubscriptionRepository subRepo = offHeap
+                ? new OffHeapSubscriptionRepository()
+                : new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        DataBootstrap.seedLoadUsers(userRepo, users);
+        MembershipService service = new MembershipService(subRepo, planRepo, userRepo,
+                RuleBasedTierEvaluator.fromResource("tier-rules.properties"), StripedLocks.forAvailableProcessors());
+        return new InProcessTarget(service, subRepo);
+    }
+
+    @Override
+    public String subscribe(String userId, String planId, String tierId) {
+        return service.subscribe(userId, planId, tierId).getId();
+    }
+
+    @Override
+    public void changeTier(String subscriptionId, String tierId) {
+        service.upgradeOrDowngrade(subscriptionId, tierId);
+    }
+
+    @Override
+    public void evaluate(String subscriptionId, Map<String, Number> metrics) {
+        service.evaluateAndApplyTier(subscriptionId, metrics);
+    }
+
+    @Override
+    public void cancel(String subscriptionId) {
+        service.cancelSubscription(subscriptionId);
+    }
+
+    @Override
+    public List<Row> list(String userId) {
+        List<Subscription> subs = service.getSubscriptionsForUser(userId);
+        List<Row> rows = new ArrayList<>(subs.size());
+        for (Subscription s : subs) {
+            rows.add(new Row(s.getId(), s.getTierId(), s.getStatus(), s.getExpiresAt()));
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean lapse(String subscriptionId) {
+        Instant past = Instant.now().minusSeconds(1);
+        while (true) {
+            Subscription s = subscriptionRepository.findById(subscriptionId).orElse(null);
+            if (s == null || subscriptionRepository.replace(s, s.withExpiry(past))) return true;
+        }
+    }
+
+    @Override
+    public boolean sweep() {
+        service.expireDueSubscriptions();
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks one user's subscriptions, as the target reports them, against what the
+ * generator knows it created. Callers must keep the user's operations out while a
+ * check runs, otherwise a listing taken mid-operation can look inconsistent.
+ */
+public final class InvariantChecker {
+
+    public enum Invariant {
+        /** More than one ACTIVE subscription for a user. */
+        MULTIPLE_ACTIVE,
+        /** A subscription the target acknowledged is missing from the user's listing. */
+        MISSING_SUBSCRIPTION,
+        /** An ACTIVE subscription expired longer ago than the sweep should allow. */
+        STALE_ACTIVE
+    }
+
+    private static final int MAX_EXAMPLES = 20;
+
+    private final Duration expiryGrace;
+    private final LongAdder[] counts = new LongAdder[Invariant.values().length];
+    private final LongAdder usersChecked = new LongAdder();
+    private final ConcurrentLinkedQueue<String> examples = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger exampleCount = new AtomicInteger();
+
+    /** expiryGrace: how long past its expiry an ACTIVE subscription may survive; null disables the check. */
+    public InvariantChecker(Duration expiryGrace) {
+        this.expiryGrace = expiryGrace;
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+    }
+
+    /** Returns the number of violations found for this user. */
+    public int check(String userId, Collection<String> acknowledged, List<LoadTarget.Row> rows, Instant now) {
+        usersChecked.increment();
+        int found = 0;
+        List<String> active = new ArrayList<>(1);
+        Set<String> listed = new HashSet<>();
+        for (LoadTarget.Row row : rows) {
+            listed.add(row.id());
+            if (row.status() != SubscriptionStatus.ACTIVE) continue;
+            active.add(row.id());
+            if (expiryGrace != null && row.expiresAt().plus(expiryGrace).isBefore(now)) {
+                found += violation(Invariant.STALE_ACTIVE, userId + ": " + row.id() + " expired at " + row.expiresAt());
+            }
+        }
+        if (active.size() > 1) {
+            found += violation(Invariant.MULTIPLE_ACTIVE, userId + ": " + active);
+        }
+        for (String id : acknowledged) {
+            if (!listed.contains(id)) found += violation(Invariant.MISSING_SUBSCRIPTION, userId + ": " + id);
+        }
+        return found;
+    }
+
+    private int violation(Invariant invariant, String detail) {
+        counts[invariant.ordinal()].increment();
+        if (exampleCount.getAndIncrement() < MAX_EXAMPLES) examples.add(invariant + " " + detail);
+        return 1;
+    }
+
+    public long usersChecked() {
+        return usersChecked.sum();
+    }
+
+    public long total() {
+        long sum = 0;
+        for (LongAdder c : counts) sum += c.sum();
+        return sum;
+    }
+
+    public Map<Invariant, Long> counts() {
+        Map<Invariant, Long> out = new EnumMap<>(Invariant.class);
+        for (Invariant i : Invariant.values()) out.put(i, counts[i.ordinal()].sum());
+        return out;
+    }
+
+    /** The first few violations found, for the report. */
+    public List<String> examples() {
+        return List.copyOf(examples);
+    }
+}
@@ -0,0 +1,42 @@
+package com.firstclub.membership.loadgen;
+
+import java.time.Duration;
+
+/**
+ * One load run.
+ *
+ * @param users             simulated users, load-0 .. load-(users-1); they must exist on the target
+ * @param ratePerSecond     arrivals per second, independent of how fast the target answers
+ * @param duration          how long arrivals are issued
+ * @param workers           threads executing arrivals
+ * @param maxOutstanding    arrivals queued or running before new ones are dropped (and counted)
+ * @param mix               operation weights
+ * @param poisson           exponential inter-arrival times instead of a fixed spacing
+ * @param reportInterval    how often a progress line is printed and a batch of users is checked
+ * @param expiryInterval    how often the generator runs an expiry sweep, for targets that allow it
+ * @param expiryGrace       how long an ACTIVE subscription may outlive its expiry; null disables the check
+ * @param checkUsersPerPass users checked per reportInterval while running; all are checked at the end
+ * @param seed              seed for the arrival sequence (which user, which operation)
+ */
+public record LoadConfig(int users, double ratePerSecond, Duration duration, int workers, int maxOutstanding,
+                         OperationMix mix, boolean poisson, Duration reportInterval, Duration expiryInterval,
+                         Duration expiryGrace, int checkUsersPerPass, long seed) {
+
+    public LoadConfig {
+        if (users <= 0) throw new IllegalArgumentException("users must be positive");
+        if (!(ratePerSecond > 0)) throw new IllegalArgumentException("rate must be positive");
+        if (workers <= 0) throw new IllegalArgumentException("workers must be positive");
+        if (maxOutstanding <= 0) throw new IllegalArgumentException("maxOutstanding must be positive");
+        if (checkUsersPerPass < 0) throw new IllegalArgumentException("checkUsersPerPass must not be negative");
+        if (duration.isNegative() || reportInterval.isNegative() || reportInterval.isZero()
+                || expiryInterval.isNegative() || expiryInterval.isZero()) {
+            throw new IllegalArgumentException("durations must be positive");
+        }
+    }
+
+    /** Defaults for everything but the population, rate and length of the run. */
+    public static LoadConfig of(int users, double ratePerSecond, Duration duration) {
+        return new LoadConfig(users, ratePerSecond, duration, 64, 100_000, OperationMix.DEFAULT, true,
+                Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(10), 1_000, 42L);
+    }
+}
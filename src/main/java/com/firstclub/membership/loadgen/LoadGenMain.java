@@ -0,0 +1,85 @@
+package com.firstclub.membership.loadgen;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line entry point for load and soak runs.
+ *
+ * <pre>
+ * java -cp membership-program.jar com.firstclub.membership.loadgen.LoadGenMain \
+ *     --users 10000 --rate 2000 --duration 2h [--target http://localhost:8080] [--mix subscribe=20,...]
+ * </pre>
+ *
+ * Without --target a fresh service is built in this JVM (--store offheap for the
+ * off-heap store, --shards N for the partitioned single-writer mode). With --target the server must have been started with
+ * -Dmembership.loadUsers at least as large as --users. Exits 1 if any invariant was
+ * violated or any operation failed unexpectedly.
+ */
+public final class LoadGenMain {
+    private LoadGenMain() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        LoadConfig defaults = LoadConfig.of(1, 1, Duration.ZERO);
+        int users = Integer.parseInt(opts.getOrDefault("users", "10000"));
+        LoadConfig config = new LoadConfig(
+                users,
+                Double.parseDouble(opts.getOrDefault("rate", "1000")),
+                duration(opts.getOrDefault("duration", "60s")),
+                Integer.parseInt(opts.getOrDefault("workers", String.valueOf(defaults.workers()))),
+                Integer.parseInt(opts.getOrDefault("max-outstanding", String.valueOf(defaults.maxOutstanding()))),
+                opts.containsKey("mix") ? OperationMix.parse(opts.get("mix")) : defaults.mix(),
+                !"uniform".equalsIgnoreCase(opts.getOrDefault("arrivals", "poisson")),
+                duration(opts.getOrDefault("report", "10s")),
+                duration(opts.getOrDefault("expiry-interval", "1s")),
+                "off".equalsIgnoreCase(opts.get("expiry-grace")) ? null : duration(opts.getOrDefault("expiry-grace", "10s")),
+                Integer.parseInt(opts.getOrDefault("check-per-pass", String.valueOf(defaults.checkUsersPerPass()))),
+                Long.parseLong(opts.getOrDefault("seed", String.valueOf(defaults.seed()))));
+
+        LoadTarget target;
+        if (opts.containsKey("target")) {
+            target = new HttpTarget(URI.create(opts.get("target")));
+        } else if (opts.containsKey("shards")) {
+            target = PartitionedTarget.standalone(users, Integer.parseInt(opts.get("shards")));
+        } else {
+            target = InProcessTarget.standalone(users, "offheap".equalsIgnoreCase(opts.get("store")));
+        }
+        System.out.printf("Load: %d users, %.0f arrivals/s (%s), %s, mix %s, target %s%n",
+                config.users(), config.ratePerSecond(), config.poisson() ? "poisson" : "uniform",
+                config.duration(), config.mix(), opts.getOrDefault("target", "in-process"));
+        LoadReport report;
+        try (target) {
+            report = new LoadGenerator(config, target, System.out).run();
+        }
+        report.print(System.out);
+        System.exit(report.violationCount() == 0 && report.errors() == 0 ? 0 : 1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value: " + args[i]);
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+
+    /** Parses 500ms, 30s, 15m, 2h or a bare number of seconds. */
+    static Duration duration(String text) {
+        String t = text.trim().toLowerCase();
+        try {
+            if (t.endsWith("ms")) return Duration.ofMillis(Long.parseLong(t.substring(0, t.length() - 2)));
+            if (t.endsWith("s")) return Duration.ofSeconds(Long.parseLong(t.substring(0, t.length() - 1)));
+            if (t.endsWith("m")) return Duration.ofMinutes(Long.parseLong(t.substring(0, t.length() - 1)));
+            if (t.endsWith("h")) return Duration.ofHours(Long.parseLong(t.substring(0, t.length() - 1)));
+            return Duration.ofSeconds(Long.parseLong(t));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open-loop load generator. One thread issues arrivals on a fixed schedule (evenly
+ * spaced or Poisson) whether or not earlier ones have finished; workers execute them,
+ * and each latency is taken from the arrival's scheduled time. A slow target therefore
+ * shows up as queueing in the percentiles instead of silently lowering the offered
+ * rate (coordinated omission). Arrivals beyond {@link LoadConfig#maxOutstanding()} are
+ * dropped and counted rather than buffered without bound.
+ *
+ * Each arrival picks a user and an operation from the mix. Operations on one user may
+ * run concurrently with each other; the invariant checker locks a user out only while
+ * it lists that user's subscriptions. Expiry sweeps run on their own thread alongside.
+ */
+public final class LoadGenerator {
+    // The catalog DataBootstrap seeds
+    private static final String[] PLANS = {"MONTHLY", "YEARLY"};
+    private static final String[] TIERS = {"SILVER", "GOLD", "PLATINUM"};
+
+    private final LoadConfig config;
+    private final LoadTarget target;
+    private final PrintStream out;
+    private final UserState[] users;
+    private final InvariantChecker checker;
+
+    private final LatencyHistogram[] latency = new LatencyHistogram[LoadOperation.values().length];
+    private final LongAdder[] ok = new LongAdder[LoadOperation.values().length];
+    private final LongAdder[] rejected = new LongAdder[LoadOperation.values().length];
+    private final LongAdder[] errors = new LongAdder[LoadOperation.values().length];
+    private final LatencyHistogram interval = new LatencyHistogram();
+    private final LatencyHistogram sweepLatency = new LatencyHistogram();
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Map<String, LongAdder> errorMessages = new ConcurrentHashMap<>();
+    private volatile boolean targetSweeps = true;
+    private int checkCursor;
+
+    /** What the generator knows about one simulated user. */
+    private static final class UserState {
+        final String id;
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Set<String> acknowledged = ConcurrentHashMap.newKeySet();
+        volatile String latest;
+
+        UserState(String id) {
+            this.id = id;
+        }
+    }
+
+    public LoadGenerator(LoadConfig config, LoadTarget target, PrintStream out) {
+        this.config = config;
+        this.target = target;
+        this.out = out;
+        this.users = new UserState[config.users()];
+        for (int i = 0; i < users.length; i++) users[i] = new UserState(DataBootstrap.LOAD_USER_PREFIX + i);
+        this.checker = new InvariantChecker(config.expiryGrace());
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LatencyHistogram();
+            ok[i] = new LongAdder();
+            rejected[i] = new LongAdder();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /** Runs for the configured duration, waits for in-flight work, checks every user and reports. */
+    public LoadReport run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(config.workers(), daemon("loadgen-worker"));
+        ScheduledExecutorService background = Executors.newScheduledThreadPool(3, daemon("loadgen-background"));
+        long begin = System.nanoTime();
+        background.scheduleWithFixedDelay(this::sweepOnce, 0, config.expiryInterval().toNanos(), TimeUnit.NANOSECONDS);
+        long reportNanos = config.reportInterval().toNanos();
+        background.scheduleAtFixedRate(() -> printProgress(begin), reportNanos, reportNanos, TimeUnit.NANOSECONDS);
+        background.scheduleWithFixedDelay(this::checkSome, reportNanos, reportNanos, TimeUnit.NANOSECONDS);
+
+        long arrivals = issueArrivals(workers, begin);
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        background.shutdown();
+        background.awaitTermination(1, TimeUnit.MINUTES);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - begin);
+
+        // Quiescent now: every user can be checked against the final state
+        for (UserState u : users) checkUser(u);
+        return report(elapsed, arrivals);
+    }
+
+    private long issueArrivals(ExecutorService workers, long begin) {
+        SplittableRandom random = new SplittableRandom(config.seed());
+        double meanGapNanos = 1_000_000_000.0 / config.ratePerSecond();
+        long end = begin + config.duration().toNanos();
+        double offset = 0;
+        long arrivals = 0;
+        while (true) {
+            offset += config.poisson() ? -Math.log(1.0 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long scheduled = begin + (long) offset;
+            if (scheduled - end >= 0) return arrivals;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            arrivals++;
+            UserState user = users[random.nextInt(users.length)];
+            LoadOperation op = config.mix().pick(random.nextDouble());
+            if (outstanding.incrementAndGet() > config.maxOutstanding()) {
+                outstanding.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            workers.execute(() -> {
+                try {
+                    execute(user, op, scheduled);
+                } finally {
+                    outstanding.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void execute(UserState user, LoadOperation op, long scheduled) {
+        String id = user.latest;
+        if (id == null && op != LoadOperation.LIST) op = LoadOperation.SUBSCRIBE;
+        int i = op.ordinal();
+        user.lock.readLock().lock();
+        try {
+            if (!perform(user, op, id)) {
+                skipped.increment();
+                return;
+            }
+            ok[i].increment();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            rejected[i].increment();
+        } catch (Exception e) {
+            errors[i].increment();
+            errorMessages.computeIfAbsent(op.key() + ": " + e, k -> new LongAdder()).increment();
+        } finally {
+            user.lock.readLock().unlock();
+        }
+        long nanos = System.nanoTime() - scheduled;
+        latency[i].record(nanos);
+        interval.record(nanos);
+    }
+
+    /** Returns false if the target does not support the operation. */
+    private boolean perform(UserState user, LoadOperation op, String id) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (op) {
+            case SUBSCRIBE -> {
+                String created = target.subscribe(user.id, PLANS[random.nextInt(PLANS.length)],
+                        TIERS[random.nextInt(TIERS.length)]);
+                user.acknowledged.add(created);
+                user.latest = created;
+            }
+            case CHANGE_TIER -> target.changeTier(id, TIERS[random.nextInt(TIERS.length)]);
+            case EVALUATE -> target.evaluate(id, Map.of(
+                    "ordersCount", random.nextInt(16), "orderValue", random.nextInt(80_000)));
+            case CANCEL -> target.cancel(id);
+            case LIST -> target.list(user.id);
+            case LAPSE -> {
+                return target.lapse(id);
+            }
+        }
+        return true;
+    }
+
+    private void sweepOnce() {
+        if (!targetSweeps) return;
+        long began = System.nanoTime();
+        try {
+            if (!target.sweep()) {
+                // The target expires on its own schedule
+                targetSweeps = false;
+                return;
+            }
+            sweeps.increment();
+            sweepLatency.record(System.nanoTime() - began);
+        } catch (RuntimeException e) {
+            errorMessages.computeIfAbsent("sweep: " + e, k -> new LongAdder()).increment();
+        }
+    }
+
+    private void checkSome() {
+        for (int n = 0; n < Math.min(config.checkUsersPerPass(), users.length); n++) {
+            checkUser(users[checkCursor]);
+            checkCursor = (checkCursor + 1) % users.length;
+        }
+    }
+
+    private void checkUser(UserState user) {
+        user.lock.writeLock().lock();
+        try {
+            checker.check(user.id, user.acknowledged, target.list(user.id), Instant.now());
+        } catch (Exception e) {
+            errorMessages.computeIfAbsent("check: " + e, k -> new LongAdder()).increment();
+        } finally {
+            user.lock.writeLock().unlock();
+        }
+    }
+
+    private void printProgress(long begin) {
+        LatencyHistogram.Snapshot s = interval.snapshot();
+        interval.reset();
+        double seconds = config.reportInterval().toNanos() / 1_000_000_000.0;
+        out.printf("[%5ds] %8.0f ops/s  p50 %8.1f us  p99 %8.1f us  p999 %8.1f us  max %8.1f us"
+                        + "  outstanding %d  dropped %d  errors %d  violations %d%n",
+                (System.nanoTime() - begin) / 1_000_000_000L, s.count() / seconds, s.p50() / 1_000.0,
+                s.p99() / 1_000.0, s.p999() / 1_000.0, s.max() / 1_000.0, outstanding.get(), dropped.sum(),
+                totalErrors(), checker.total());
+    }
+
+    private long totalErrors() {
+        long sum = 0;
+        for (LongAdder e : errors) sum += e.sum();
+        return sum;
+    }
+
+    private LoadReport report(Duration elapsed, long arrivals) {
+        List<LoadReport.OpStats> ops = new ArrayList<>();
+        for (LoadOperation op : LoadOperation.values()) {
+            int i = op.ordinal();
+            LatencyHistogram.Snapshot s = latency[i].snapshot();
+            if (s.count() == 0) continue;
+            ops.add(new LoadReport.OpStats(op, ok[i].sum(), rejected[i].sum(), errors[i].sum(), s));
+        }
+        List<String> examples = new ArrayList<>(checker.examples());
+        errorMessages.forEach((message, count) -> examples.add("error x" + count.sum() + " " + message));
+        return new LoadReport(elapsed, arrivals, dropped.sum(), skipped.sum(), ops, sweeps.sum(),
+                sweepLatency.snapshot(), checker.usersChecked(), checker.counts(), examples);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
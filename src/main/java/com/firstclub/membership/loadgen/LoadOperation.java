@@ -0,0 +1,29 @@
+package com.firstclub.membership.loadgen;
+
+/** Operations a simulated user performs; key is the name used in a mix spec. */
+public enum LoadOperation {
+    SUBSCRIBE("subscribe"),
+    CHANGE_TIER("tier"),
+    EVALUATE("evaluate"),
+    CANCEL("cancel"),
+    LIST("list"),
+    /** Backdates a subscription's expiry so the concurrent sweep expires it. */
+    LAPSE("lapse");
+
+    private final String key;
+
+    LoadOperation(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public static LoadOperation fromKey(String key) {
+        for (LoadOperation op : values()) {
+            if (op.key.equalsIgnoreCase(key)) return op;
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,61 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a load run. Latencies are measured from each arrival's scheduled time,
+ * not from when a worker picked it up, so queueing behind a slow target is included.
+ */
+public record LoadReport(Duration elapsed, long arrivals, long dropped, long skipped, List<OpStats> operations,
+                         long sweeps, LatencyHistogram.Snapshot sweepLatency, long usersChecked,
+                         Map<InvariantChecker.Invariant, Long> violations, List<String> examples) {
+
+    /** Per operation: succeeded, refused by a business rule, failed otherwise. */
+    public record OpStats(LoadOperation operation, long ok, long rejected, long errors,
+                          LatencyHistogram.Snapshot latency) {
+        public long completed() {
+            return ok + rejected + errors;
+        }
+    }
+
+    public long completed() {
+        return operations.stream().mapToLong(OpStats::completed).sum();
+    }
+
+    public long errors() {
+        return operations.stream().mapToLong(OpStats::errors).sum();
+    }
+
+    public long violationCount() {
+        return violations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double throughputPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0.0 : completed() * 1_000_000_000.0 / nanos;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nLoad run: %d s, %d arrivals, %d completed (%.0f/s), %d dropped, %d skipped%n",
+                elapsed.toSeconds(), arrivals, completed(), throughputPerSecond(), dropped, skipped);
+        out.printf("%-10s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "ok", "rejected", "errors", "mean(us)", "p50(us)", "p99(us)", "p999(us)", "max(us)");
+        for (OpStats s : operations) {
+            LatencyHistogram.Snapshot l = s.latency();
+            out.printf("%-10s %10d %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    s.operation().key(), s.ok(), s.rejected(), s.errors(), l.mean() / 1_000.0,
+                    l.p50() / 1_000.0, l.p99() / 1_000.0, l.p999() / 1_000.0, l.max() / 1_000.0);
+        }
+        if (sweeps > 0) {
+            out.printf("expiry sweeps: %d, p50 %.1f ms, max %.1f ms%n",
+                    sweeps, sweepLatency.p50() / 1_000_000.0, sweepLatency.max() / 1_000_000.0);
+        }
+        out.printf("invariants: %d user checks, %d violations %s%n", usersChecked, violationCount(), violations);
+        for (String example : examples) out.println("  " + example);
+    }
+}
@@ -0,0 +1,47 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The surface the load generator drives, either a service in this JVM or a running
+ * server's HTTP API. Business refusals surface the way the service reports them:
+ * IllegalArgumentException for unknown ids and bad input, IllegalStateException for
+ * rule violations. Anything else thrown is counted as an error.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+    /** What the invariant checker needs to know about one subscription. */
+    record Row(String id, String tierId, SubscriptionStatus status, Instant expiresAt) {}
+
+    /** Returns the new subscription's id. */
+    String subscribe(String userId, String planId, String tierId) throws IOException;
+
+    void changeTier(String subscriptionId, String tierId) throws IOException;
+
+    void evaluate(String subscriptionId, Map<String, Number> metrics) throws IOException;
+
+    void cancel(String subscriptionId) throws IOException;
+
+    List<Row> list(String userId) throws IOException;
+
+    /**
+     * Moves a subscription's expiry into the past so the next sweep expires it;
+     * returns false when the target cannot do that (a remote server).
+     */
+    default boolean lapse(String subscriptionId) {
+        return false;
+    }
+
+    /** Runs one expiry sweep; returns false when the target sweeps on its own schedule. */
+    default boolean sweep() {
+        return false;
+    }
+
+    @Override
+    default void close() {}
+}
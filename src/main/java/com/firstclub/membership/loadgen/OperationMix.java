@@ -0,0 +1,74 @@
+package com.firstclub.membership.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Relative weights of the operations a simulated user picks from, e.g.
+ * "subscribe=20,tier=15,evaluate=30,cancel=10,list=23,lapse=2". Operations left out
+ * get weight zero.
+ */
+public final class OperationMix {
+    public static final OperationMix DEFAULT = parse("subscribe=20,tier=15,evaluate=30,cancel=10,list=23,lapse=2");
+
+    private final LoadOperation[] ops;
+    private final int[] cumulative;
+    private final int total;
+
+    private OperationMix(Map<LoadOperation, Integer> weights) {
+        ops = new LoadOperation[weights.size()];
+        cumulative = new int[weights.size()];
+        int i = 0, sum = 0;
+        for (Map.Entry<LoadOperation, Integer> e : weights.entrySet()) {
+            sum += e.getValue();
+            ops[i] = e.getKey();
+            cumulative[i++] = sum;
+        }
+        if (sum == 0) throw new IllegalArgumentException("Operation mix has no positive weight");
+        total = sum;
+    }
+
+    public static OperationMix parse(String spec) {
+        Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            int eq = part.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected op=weight: " + part.trim());
+            int weight;
+            try {
+                weight = Integer.parseInt(part.substring(eq + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight: " + part.trim());
+            }
+            if (weight < 0) throw new IllegalArgumentException("Invalid weight: " + part.trim());
+            if (weight > 0) weights.merge(LoadOperation.fromKey(part.substring(0, eq).trim()), weight, Integer::sum);
+        }
+        return new OperationMix(weights);
+    }
+
+    /** Picks an operation given a uniform draw in [0, 1). */
+    public LoadOperation pick(double draw) {
+        int point = (int) (draw * total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (point < cumulative[i]) return ops[i];
+        }
+        return ops[ops.length - 1];
+    }
+
+    public int weight(LoadOperation op) {
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] == op) return cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (LoadOperation op : ops) {
+            if (out.length() > 0) out.append(',');
+            out.append(op.key()).append('=').append(weight(op));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.PartitionedMembershipService;
+import com.firstclub.membership.service.RuleBasedTierEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Drives a {@link PartitionedMembershipService} in this JVM. Each operation waits for
+ * its future, so latency includes the time queued behind the shard's writer. Lapse is
+ * not supported: shards only change through their own service operations.
+ */
+public final class PartitionedTarget implements LoadTarget {
+    private final PartitionedMembershipService service;
+
+    public PartitionedTarget(PartitionedMembershipService service) {
+        this.service = service;
+    }
+
+    /** A fresh partitioned service wired like Main's, with the given shard count and load users. */
+    public static PartitionedTarget standalone(int users, int shards) {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        DataBootstrap.seedLoadUsers(userRepo, users);
+        return new PartitionedTarget(new PartitionedMembershipService(shards, planRepo, userRepo,
+                RuleBasedTierEvaluator.fromResource("tier-rules.properties")));
+    }
+
+    @Override
+    public String subscribe(String userId, String planId, String tierId) {
+        return await(service.subscribe(userId, planId, tierId)).getId();
+    }
+
+    @Override
+    public void changeTier(String subscriptionId, String tierId) {
+        await(service.upgradeOrDowngrade(subscriptionId, tierId));
+    }
+
+    @Override
+    public void evaluate(String subscriptionId, Map<String, Number> metrics) {
+        await(service.evaluateAndApplyTier(subscriptionId, metrics));
+    }
+
+    @Override
+    public void cancel(String subscriptionId) {
+        await(service.cancelSubscription(subscriptionId));
+    }
+
+    @Override
+    public List<Row> list(String userId) {
+        List<Subscription> subs = service.getSubscriptionsForUser(userId);
+        List<Row> rows = new ArrayList<>(subs.size());
+        for (Subscription s : subs) {
+            rows.add(new Row(s.getId(), s.getTierId(), s.getStatus(), s.getExpiresAt()));
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean sweep() {
+        await(service.expireDueSubscriptions());
+        return true;
+    }
+
+    @Override
+    public void close() {
+        service.close();
+    }
+
+    /** Waits for the result, rethrowing the service's own exception rather than a wrapper. */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
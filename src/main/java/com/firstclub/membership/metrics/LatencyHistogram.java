@@ -0,0 +1,97 @@
+package com.firstclub.membership.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, HdrHistogram style.
+ *
+ * Values below 2^SUB_BUCKET_BITS nanoseconds get a bucket each; above that every
+ * power of two is split into 2^(SUB_BUCKET_BITS - 1) equal buckets, so any recorded
+ * value is reported within 1/64 (about 1.6%) of its true value. Values beyond
+ * {@link #MAX_TRACKABLE_NANOS} (about 37 minutes) land in the last bucket. Recording
+ * is one atomic increment, a {@link LongAdder} add and a max check; nothing is
+ * allocated. Snapshots read the buckets without stopping writers, so a snapshot taken
+ * under load may be off by the handful of values recorded while it was read.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT >>> 1;
+    private static final int HALF_MASK = HALF_COUNT - 1;
+    private static final int MAX_EXPONENT = 41;
+    public static final long MAX_TRACKABLE_NANOS = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.getAndIncrement(indexOf(Math.min(nanos, MAX_TRACKABLE_NANOS)));
+        total.add(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+    }
+
+    /** Clears all recorded values; values recorded concurrently may survive. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        max.set(0);
+    }
+
+    public Snapshot snapshot() {
+        return snapshotOf(List.of(this));
+    }
+
+    /** One summary of the values recorded in all the histograms, as if they had been recorded in one. */
+    public static Snapshot snapshotOf(Collection<LatencyHistogram> histograms) {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (LatencyHistogram h : histograms) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = h.counts.get(i);
+                copy[i] += c;
+                count += c;
+            }
+            sum += h.total.sum();
+            max = Math.max(max, h.max.get());
+        }
+        return new Snapshot(count, count == 0 ? 0 : (double) sum / count, max,
+                percentile(copy, count, 50.0), percentile(copy, count, 99.0), percentile(copy, count, 99.9));
+    }
+
+    /** Summary in nanoseconds; percentiles are the highest value of the bucket they fall in. */
+    public record Snapshot(long count, double mean, long max, long p50, long p99, long p999) {}
+
+    private static long percentile(long[] counts, long count, double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return highestValueIn(i);
+        }
+        return highestValueIn(counts.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift + 1) * HALF_COUNT + (int) ((value >>> shift) & HALF_MASK);
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int shift = index / HALF_COUNT - 1;
+        long lowest = (long) (HALF_COUNT + (index & HALF_MASK)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,179 @@
+package com.firstclub.membership.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live {@link ServiceMetrics}: a {@link LatencyHistogram} per {@link Operation},
+ * a {@link LongAdder} per {@link Rejection}, and expiry sweep figures. Repository
+ * sizes are gauges read only when someone asks.
+ *
+ * {@link #register(MBeanServer)} exposes everything as MXBeans under
+ * {@value #DOMAIN}: one {@code type=Operation,name=<method>} bean per operation and
+ * a {@code type=Membership} bean for counters and gauges.
+ */
+public final class MembershipMetrics implements ServiceMetrics {
+    public static final String DOMAIN = "com.firstclub.membership";
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] rejections = new LongAdder[Rejection.values().length];
+    private final LongAdder expired = new LongAdder();
+    private volatile long lastSweepNanos;
+    private final LongSupplier subscriptionCount;
+    private final LongSupplier userCount;
+    private final List<ObjectName> registered = new ArrayList<>(); // guarded by this
+    private MBeanServer server; // guarded by this
+
+    public MembershipMetrics(LongSupplier subscriptionCount, LongSupplier userCount) {
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        for (int i = 0; i < rejections.length; i++) rejections[i] = new LongAdder();
+        this.subscriptionCount = subscriptionCount;
+        this.userCount = userCount;
+    }
+
+    @Override
+    public long start() { return System.nanoTime(); }
+
+    @Override
+    public void record(Operation operation, long start) {
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void reject(Rejection reason) { rejections[reason.ordinal()].increment(); }
+
+    @Override
+    public void sweepCompleted(long start, int expiredCount) {
+        long nanos = System.nanoTime() - start;
+        latencies[Operation.EXPIRE_DUE.ordinal()].record(nanos);
+        lastSweepNanos = nanos;
+        expired.add(expiredCount);
+    }
+
+    public LatencyHistogram.Snapshot latency(Operation operation) {
+        return latencies[operation.ordinal()].snapshot();
+    }
+
+    public long rejections(Rejection reason) { return rejections[reason.ordinal()].sum(); }
+
+    public long expiredTotal() { return expired.sum(); }
+
+    /**
+     * Latency of the operation summed over the {@code MembershipMetrics} among parts,
+     * e.g. one per shard; other {@link ServiceMetrics} such as NOOP add nothing.
+     */
+    public static LatencyHistogram.Snapshot latency(Collection<? extends ServiceMetrics> parts, Operation operation) {
+        List<LatencyHistogram> histograms = new ArrayList<>(parts.size());
+        for (ServiceMetrics m : parts) {
+            if (m instanceof MembershipMetrics live) histograms.add(live.latencies[operation.ordinal()]);
+        }
+        return LatencyHistogram.snapshotOf(histograms);
+    }
+
+    /** Rejections for the reason summed over parts, as {@link #latency(Collection, Operation)} does. */
+    public static long rejections(Collection<? extends ServiceMetrics> parts, Rejection reason) {
+        long total = 0;
+        for (ServiceMetrics m : parts) {
+            if (m instanceof MembershipMetrics live) total += live.rejections(reason);
+        }
+        return total;
+    }
+
+    /** Subscriptions expired by sweeps, summed over parts. */
+    public static long expiredTotal(Collection<? extends ServiceMetrics> parts) {
+        long total = 0;
+        for (ServiceMetrics m : parts) {
+            if (m instanceof MembershipMetrics live) total += live.expiredTotal();
+        }
+        return total;
+    }
+
+    /** Registers the MXBeans; call {@link #unregister()} before registering another instance. */
+    public synchronized MembershipMetrics register(MBeanServer server) throws JMException {
+        for (Operation op : Operation.values()) {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + op.methodName());
+            server.registerMBean(new OperationStats(latencies[op.ordinal()]), name);
+            registered.add(name);
+        }
+        ObjectName name = new ObjectName(DOMAIN + ":type=Membership");
+        server.registerMBean(new MembershipStats(), name);
+        registered.add(name);
+        this.server = server;
+        return this;
+    }
+
+    public synchronized void unregister() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private static double micros(double nanos) { return nanos / 1_000.0; }
+
+    private static final class OperationStats implements OperationStatsMXBean {
+        private final LatencyHistogram histogram;
+
+        OperationStats(LatencyHistogram histogram) { this.histogram = histogram; }
+
+        @Override
+        public long getCount() { return histogram.snapshot().count(); }
+
+        @Override
+        public double getMeanMicros() { return micros(histogram.snapshot().mean()); }
+
+        @Override
+        public double getMaxMicros() { return micros(histogram.snapshot().max()); }
+
+        @Override
+        public double getP50Micros() { return micros(histogram.snapshot().p50()); }
+
+        @Override
+        public double getP99Micros() { return micros(histogram.snapshot().p99()); }
+
+        @Override
+        public double getP999Micros() { return micros(histogram.snapshot().p999()); }
+
+        @Override
+        public void reset() { histogram.reset(); }
+    }
+
+    private final class MembershipStats implements MembershipStatsMXBean {
+        @Override
+        public long getSubscriptionCount() { return subscriptionCount.getAsLong(); }
+
+        @Override
+        public long getUserCount() { return userCount.getAsLong(); }
+
+        @Override
+        public Map<String, Long> getRejections() {
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Rejection r : Rejection.values()) out.put(r.name(), rejections(r));
+            return out;
+        }
+
+        @Override
+        public long getExpiredTotal() { return expiredTotal(); }
+
+        @Override
+        public long getSweepCount() { return latency(Operation.EXPIRE_DUE).count(); }
+
+        @Override
+        public double getLastSweepMillis() { return lastSweepNanos / 1_000_000.0; }
+
+        @Override
+        public double getSweepP99Millis() { return latency(Operation.EXPIRE_DUE).p99() / 1_000_000.0; }
+    }
+}
@@ -0,0 +1,21 @@
+package com.firstclub.membership.metrics;
+
+import java.util.Map;
+
+/** Service-wide counters and gauges. */
+public interface MembershipStatsMXBean {
+    long getSubscriptionCount();
+
+    long getUserCount();
+
+    /** Rejected calls by {@link Rejection} name. */
+    Map<String, Long> getRejections();
+
+    long getExpiredTotal();
+
+    long getSweepCount();
+
+    double getLastSweepMillis();
+
+    double getSweepP99Millis();
+}
@@ -0,0 +1,26 @@
+package com.firstclub.membership.metrics;
+
+/** Public {@code MembershipService} operations that get a latency histogram. */
+public enum Operation {
+    LIST_PLANS("listPlans"),
+    GET_PLAN("getPlan"),
+    SUBSCRIBE("subscribe"),
+    UPGRADE_OR_DOWNGRADE("upgradeOrDowngrade"),
+    CANCEL("cancelSubscription"),
+    SET_AUTO_RENEW("setAutoRenew"),
+    GET_SUBSCRIPTION("getSubscription"),
+    GET_SUBSCRIPTIONS_FOR_USER("getSubscriptionsForUser"),
+    LIST_SUBSCRIPTIONS("listSubscriptions"),
+    COUNT_SUBSCRIPTIONS("countSubscriptions"),
+    EVALUATE_AND_APPLY_TIER("evaluateAndApplyTier"),
+    EXPIRE_DUE("expireDueSubscriptions"),
+    SUBSCRIBE_ALL("subscribeAll"),
+    CANCEL_ALL("cancelAll"),
+    CHANGE_TIER_ALL("changeTierAll");
+
+    private final String methodName;
+
+    Operation(String methodName) { this.methodName = methodName; }
+
+    public String methodName() { return methodName; }
+}
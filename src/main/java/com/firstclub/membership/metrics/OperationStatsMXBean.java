@@ -0,0 +1,18 @@
+package com.firstclub.membership.metrics;
+
+/** Latency of one service operation, in microseconds, since start or the last reset. */
+public interface OperationStatsMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    void reset();
+}
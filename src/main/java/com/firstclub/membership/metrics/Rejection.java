@@ -0,0 +1,11 @@
+package com.firstclub.membership.metrics;
+
+/** Reasons a service call (or one item of a bulk call) is refused. */
+public enum Rejection {
+    USER_NOT_FOUND,
+    PLAN_NOT_FOUND,
+    INVALID_TIER,
+    ALREADY_ACTIVE,
+    SUBSCRIPTION_NOT_FOUND,
+    NOT_ACTIVE
+}
@@ -0,0 +1,35 @@
+package com.firstclub.membership.metrics;
+
+/**
+ * Instrumentation hooks called by {@code MembershipService}. A call is timed as
+ * {@code long t = start(); ... record(op, t);}.
+ *
+ * {@link #NOOP} does not read the clock and has empty bodies, so when metrics are
+ * disabled the JIT inlines the calls away.
+ */
+public interface ServiceMetrics {
+
+    ServiceMetrics NOOP = new ServiceMetrics() {
+        @Override
+        public long start() { return 0; }
+
+        @Override
+        public void record(Operation operation, long start) {}
+
+        @Override
+        public void reject(Rejection reason) {}
+
+        @Override
+        public void sweepCompleted(long start, int expired) {}
+    };
+
+    /** Timestamp to pass back to {@link #record} or {@link #sweepCompleted}. */
+    long start();
+
+    void record(Operation operation, long start);
+
+    void reject(Rejection reason);
+
+    /** An expiry sweep begun at start finished after expiring the given number of subscriptions. */
+    void sweepCompleted(long start, int expired);
+}
@@ -4,17 +4,24 @@ import java.util.Objects;
 
 public final class Benefit {
     private final String id;
+    private final int code;
     private final String description;
     private final BenefitType type;
     private final int value;
 
     private Benefit(String id, String description, BenefitType type, int value) {
         this.id = Objects.requireNonNull(id);
+        this.code = IdDictionary.BENEFITS.code(id);
         this.description = Objects.requireNonNull(description);
         this.type = Objects.requireNonNull(type);
         this.value = value;
     }
 
+    /** Rebuilds a benefit from its parts, e.g. when loading persisted plans. */
+    public static Benefit of(String id, String description, BenefitType type, int value) {
+        return new Benefit(id, description, type, value);
+    }
+
     public static Benefit freeDelivery(int threshold) {
         return new Benefit("FREE_DELIVERY", "Free delivery over " + threshold, BenefitType.DELIVERY, threshold);
     }
@@ -32,6 +39,8 @@ public final class Benefit {
     }
 
     public String id() { return id; }
+    /** Dictionary code of the id; see {@link IdDictionary#BENEFITS}. */
+    public int code() { return code; }
     public String description() { return description; }
     public BenefitType type() { return type; }
     public int value() { return value; }
@@ -0,0 +1,47 @@
+package com.firstclub.membership.model;
+
+import java.util.List;
+
+/**
+ * A tier's benefits flattened into arrays indexed by {@link BenefitType} ordinal, so
+ * entitlement questions are answered with one array read and no allocation.
+ * When a tier lists several benefits of one type, the best one for the member wins:
+ * the lowest free-delivery threshold, the highest value otherwise.
+ */
+public final class Entitlements {
+    private static final BenefitType[] TYPES = BenefitType.values();
+
+    /** No benefits; what a user without an ACTIVE subscription gets. */
+    public static final Entitlements NONE = new Entitlements(List.of());
+
+    private final boolean[] granted = new boolean[TYPES.length];
+    private final int[] values = new int[TYPES.length];
+
+    public static Entitlements of(List<Benefit> benefits) {
+        return benefits.isEmpty() ? NONE : new Entitlements(benefits);
+    }
+
+    private Entitlements(List<Benefit> benefits) {
+        for (Benefit b : benefits) {
+            int t = b.type().ordinal();
+            if (!granted[t]) {
+                granted[t] = true;
+                values[t] = b.value();
+            } else {
+                values[t] = b.type() == BenefitType.DELIVERY
+                        ? Math.min(values[t], b.value()) : Math.max(values[t], b.value());
+            }
+        }
+    }
+
+    public boolean has(BenefitType type) { return granted[type.ordinal()]; }
+
+    /** Value of the benefit (threshold, percent, ...), or 0 if not granted. */
+    public int value(BenefitType type) { return values[type.ordinal()]; }
+
+    public boolean freeDeliveryOn(int orderValueInINR) {
+        return granted[BenefitType.DELIVERY.ordinal()] && orderValueInINR >= values[BenefitType.DELIVERY.ordinal()];
+    }
+
+    public int discountPercent() { return values[BenefitType.DISCOUNT.ordinal()]; }
+}
@@ -0,0 +1,61 @@
+package com.firstclub.membership.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide dictionary encoding for low-cardinality identifiers.
+ * Each distinct id gets a dense int code the first time it is seen; codes are never
+ * reused, so the model can store and compare ints and decode back to the string only
+ * at API and CLI boundaries. Decoding is a single array read.
+ */
+public final class IdDictionary {
+    public static final IdDictionary PLANS = new IdDictionary("plan");
+    public static final IdDictionary TIERS = new IdDictionary("tier");
+    public static final IdDictionary BENEFITS = new IdDictionary("benefit");
+
+    private final String kind;
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size; // guarded by this
+
+    private IdDictionary(String kind) {
+        this.kind = kind;
+    }
+
+    /** Code for the id, registering it if new. */
+    public int code(String id) {
+        Integer code = codes.get(Objects.requireNonNull(id));
+        return code != null ? code : register(id);
+    }
+
+    /** Code for the id, or -1 if it has never been registered. */
+    public int codeIfPresent(String id) {
+        Integer code = id == null ? null : codes.get(id);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        String[] current = names;
+        String id = code >= 0 && code < current.length ? current[code] : null;
+        if (id == null) throw new IllegalArgumentException("Unknown " + kind + " code: " + code);
+        return id;
+    }
+
+    public synchronized int size() { return size; }
+
+    private synchronized int register(String id) {
+        Integer existing = codes.get(id);
+        if (existing != null) return existing;
+        int code = size;
+        String[] current = names;
+        if (code == current.length) current = Arrays.copyOf(current, code * 2);
+        current[code] = id;
+        names = current; // publish the name before the code becomes visible
+        codes.put(id, code);
+        size = code + 1;
+        return code;
+    }
+}
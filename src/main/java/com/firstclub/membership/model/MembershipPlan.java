@@ -7,25 +7,52 @@ import java.util.Objects;
 
 public final class MembershipPlan {
     private final String id;
+    private final int code;
     private final String description;
     private final int priceInINR;
     private final Period duration;
     private final List<Tier> tiers;
+    private final Tier[] tiersByCode; // indexed by tier code; lookups are one array read
 
     public MembershipPlan(String id, String description, int priceInINR, Period duration, List<Tier> tiers) {
         this.id = Objects.requireNonNull(id);
+        this.code = IdDictionary.PLANS.code(id);
         this.description = Objects.requireNonNull(description);
         this.priceInINR = priceInINR;
         this.duration = Objects.requireNonNull(duration);
         this.tiers = Collections.unmodifiableList(Objects.requireNonNull(tiers));
+        int maxCode = -1;
+        for (Tier t : tiers) maxCode = Math.max(maxCode, t.getCode());
+        Tier[] index = new Tier[maxCode + 1];
+        for (Tier t : tiers) {
+            if (index[t.getCode()] != null) {
+                throw new IllegalArgumentException("Duplicate tier " + t.getId() + " in plan: " + id);
+            }
+            index[t.getCode()] = t;
+        }
+        this.tiersByCode = index;
     }
 
     public String getId() { return id; }
+    /** Dictionary code of the id; see {@link IdDictionary#PLANS}. */
+    public int getCode() { return code; }
     public String getDescription() { return description; }
     public int getPriceInINR() { return priceInINR; }
     public Period getDuration() { return duration; }
     public List<Tier> getTiers() { return tiers; }
 
+    public boolean hasTier(String tierId) { return tier(tierId) != null; }
+
+    public boolean hasTier(int tierCode) { return tier(tierCode) != null; }
+
+    /** Tier with the given id, or null if it is not part of this plan. */
+    public Tier tier(String tierId) { return tier(IdDictionary.TIERS.codeIfPresent(tierId)); }
+
+    /** Tier with the given code, or null if it is not part of this plan. */
+    public Tier tier(int tierCode) {
+        return tierCode >= 0 && tierCode < tiersByCode.length ? tiersByCode[tierCode] : null;
+    }
+
     public String brief() {
         return id + " - " + description + " - ₹" + priceInINR + " - " + duration.toString();
     }
@@ -0,0 +1,59 @@
+package com.firstclub.membership.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of all membership plans. Readers get the pre-built
+ * list and indexes as they are; nothing is copied per call. Changes produce a new
+ * catalog with the next version, so an operation that pins one catalog sees one
+ * consistent set of plans throughout.
+ */
+public final class PlanCatalog {
+    public static final PlanCatalog EMPTY = new PlanCatalog(0, List.of(), Map.of(), new MembershipPlan[0]);
+
+    private final long version;
+    private final List<MembershipPlan> plans;
+    private final Map<String, MembershipPlan> byId;
+    private final MembershipPlan[] byCode; // indexed by plan code
+
+    private PlanCatalog(long version, List<MembershipPlan> plans, Map<String, MembershipPlan> byId,
+                        MembershipPlan[] byCode) {
+        this.version = version;
+        this.plans = plans;
+        this.byId = byId;
+        this.byCode = byCode;
+    }
+
+    /** A new catalog, one version up, with the plan added or replacing the plan with the same id. */
+    public PlanCatalog with(MembershipPlan plan) {
+        List<MembershipPlan> nextPlans = new ArrayList<>(plans);
+        MembershipPlan previous = byId.get(plan.getId());
+        if (previous != null) nextPlans.set(nextPlans.indexOf(previous), plan);
+        else nextPlans.add(plan);
+        Map<String, MembershipPlan> nextById = new HashMap<>(byId);
+        nextById.put(plan.getId(), plan);
+        MembershipPlan[] nextByCode = Arrays.copyOf(byCode, Math.max(byCode.length, plan.getCode() + 1));
+        nextByCode[plan.getCode()] = plan;
+        return new PlanCatalog(version + 1, Collections.unmodifiableList(nextPlans),
+                Collections.unmodifiableMap(nextById), nextByCode);
+    }
+
+    /** Increases by one with every published change; 0 is the empty catalog. */
+    public long version() { return version; }
+
+    /** All plans in the order they were first added; unmodifiable. */
+    public List<MembershipPlan> plans() { return plans; }
+
+    /** The plan with the given id, or null. */
+    public MembershipPlan find(String planId) { return byId.get(planId); }
+
+    /** The plan with the given {@link IdDictionary#PLANS} code, or null. */
+    public MembershipPlan find(int planCode) {
+        return planCode >= 0 && planCode < byCode.length ? byCode[planCode] : null;
+    }
+}
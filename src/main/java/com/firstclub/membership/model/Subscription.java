@@ -4,48 +4,168 @@ import java.time.Instant;
 import java.util.Objects;
 
 /**
- * Subscription is mutable and thread-safe for mutations (synchronized).
+ * Subscription is an immutable value with a version number. A change is a new value
+ * from one of the {@code with...} methods, one version higher, which a repository
+ * swaps in with {@code SubscriptionRepository.replace} only if the version it was
+ * derived from is still the stored one; a writer that loses the race re-reads and
+ * retries. Readers therefore always see a whole, consistent state and never lock.
+ * Plan and tier are held as {@link IdDictionary} codes and decoded on access.
+ * A subscription flagged for auto-renewal is extended by its plan's period shortly
+ * before it expires instead of lapsing; see {@code RenewalEngine}.
+ * Subscriptions created from a generated numeric id render the "sub-N" text form
+ * only when it is first asked for.
  */
 public final class Subscription {
-    private final String id;
+    public static final String ID_PREFIX = "sub";
+
+    private final long numericId; // -1 when created from a text id
+    private String id;            // rendered lazily; racing renders produce equal strings
     private final String userId;
-    private final String planId;
-    private volatile String tierId;
+    private final int planCode;
+    private final int tierCode;
     private final Instant startAt;
-    private volatile Instant expiresAt;
-    private volatile SubscriptionStatus status;
+    private final Instant expiresAt;
+    private final SubscriptionStatus status;
+    private final long version;
+    private final boolean autoRenew;
 
     public Subscription(String id, String userId, String planId, String tierId, Instant startAt, Instant expiresAt) {
-        this.id = Objects.requireNonNull(id);
+        this(-1, Objects.requireNonNull(id), userId, IdDictionary.PLANS.code(planId), IdDictionary.TIERS.code(tierId),
+                startAt, expiresAt, SubscriptionStatus.ACTIVE, 0, false);
+    }
+
+    /** A subscription with a generated numeric id, e.g. from {@link com.firstclub.membership.util.IdGenerator#next()}. */
+    public Subscription(long numericId, String userId, String planId, String tierId, Instant startAt, Instant expiresAt) {
+        this(numericId, userId, planId, tierId, startAt, expiresAt, false);
+    }
+
+    /** A new ACTIVE subscription with a generated numeric id, flagged for auto-renewal or not. */
+    public Subscription(long numericId, String userId, String planId, String tierId, Instant startAt, Instant expiresAt,
+                        boolean autoRenew) {
+        this(requireNonNegative(numericId), null, userId, IdDictionary.PLANS.code(planId),
+                IdDictionary.TIERS.code(tierId), startAt, expiresAt, SubscriptionStatus.ACTIVE, 0, autoRenew);
+    }
+
+    private Subscription(long numericId, String id, String userId, int planCode, int tierCode,
+                         Instant startAt, Instant expiresAt, SubscriptionStatus status, long version,
+                         boolean autoRenew) {
+        this.numericId = numericId;
+        this.id = id;
         this.userId = Objects.requireNonNull(userId);
-        this.planId = Objects.requireNonNull(planId);
-        this.tierId = Objects.requireNonNull(tierId);
+        this.planCode = planCode;
+        this.tierCode = tierCode;
         this.startAt = Objects.requireNonNull(startAt);
         this.expiresAt = Objects.requireNonNull(expiresAt);
-        this.status = SubscriptionStatus.ACTIVE;
+        this.status = Objects.requireNonNull(status);
+        this.version = version;
+        this.autoRenew = autoRenew;
     }
 
-    public String getId() { return id; }
+    /** Rebuilds a subscription in a known state, e.g. when loading persisted data. */
+    public static Subscription restore(String id, String userId, String planId, String tierId,
+                                       Instant startAt, Instant expiresAt, SubscriptionStatus status) {
+        return restore(id, userId, planId, tierId, startAt, expiresAt, status, 0);
+    }
+
+    /** Numeric-id form of {@link #restore(String, String, String, String, Instant, Instant, SubscriptionStatus)}. */
+    public static Subscription restore(long numericId, String userId, String planId, String tierId,
+                                       Instant startAt, Instant expiresAt, SubscriptionStatus status) {
+        return restore(numericId, userId, planId, tierId, startAt, expiresAt, status, 0);
+    }
+
+    /** Rebuilds a subscription at a known version, not flagged for auto-renewal. */
+    public static Subscription restore(String id, String userId, String planId, String tierId,
+                                       Instant startAt, Instant expiresAt, SubscriptionStatus status, long version) {
+        return restore(id, userId, planId, tierId, startAt, expiresAt, status, version, false);
+    }
+
+    /** Numeric-id form of {@link #restore(String, String, String, String, Instant, Instant, SubscriptionStatus, long)}. */
+    public static Subscription restore(long numericId, String userId, String planId, String tierId,
+                                       Instant startAt, Instant expiresAt, SubscriptionStatus status, long version) {
+        return restore(numericId, userId, planId, tierId, startAt, expiresAt, status, version, false);
+    }
+
+    /** Rebuilds a subscription at a known version and auto-renewal setting. */
+    public static Subscription restore(String id, String userId, String planId, String tierId, Instant startAt,
+                                       Instant expiresAt, SubscriptionStatus status, long version, boolean autoRenew) {
+        return new Subscription(-1, Objects.requireNonNull(id), userId, IdDictionary.PLANS.code(planId),
+                IdDictionary.TIERS.code(tierId), startAt, expiresAt, status, version, autoRenew);
+    }
+
+    /** Numeric-id form of {@link #restore(String, String, String, String, Instant, Instant, SubscriptionStatus, long, boolean)}. */
+    public static Subscription restore(long numericId, String userId, String planId, String tierId, Instant startAt,
+                                       Instant expiresAt, SubscriptionStatus status, long version, boolean autoRenew) {
+        return new Subscription(requireNonNegative(numericId), null, userId, IdDictionary.PLANS.code(planId),
+                IdDictionary.TIERS.code(tierId), startAt, expiresAt, status, version, autoRenew);
+    }
+
+    public String getId() {
+        String rendered = id;
+        if (rendered == null) id = rendered = ID_PREFIX + "-" + numericId;
+        return rendered;
+    }
+
+    /** The generated numeric id, or -1 if this subscription was created from a text id. */
+    public long getNumericId() { return numericId; }
+
+    /** The number in an id of the form {@code sub-<number>}, as {@link #getId} renders it; -1 for any other id. */
+    public static long numericIdOf(String id) {
+        int start = ID_PREFIX.length() + 1;
+        if (id == null || id.length() == start || !id.startsWith(ID_PREFIX + "-")) return -1;
+        long key = 0;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9' || (c == '0' && i == start && id.length() > i + 1)) return -1;
+            if (key > (Long.MAX_VALUE - (c - '0')) / 10) return -1;
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
     public String getUserId() { return userId; }
-    public String getPlanId() { return planId; }
-    public String getTierId() { return tierId; }
+    public String getPlanId() { return IdDictionary.PLANS.decode(planCode); }
+    public String getTierId() { return IdDictionary.TIERS.decode(tierCode); }
+    public int getPlanCode() { return planCode; }
+    public int getTierCode() { return tierCode; }
     public Instant getStartAt() { return startAt; }
     public Instant getExpiresAt() { return expiresAt; }
     public SubscriptionStatus getStatus() { return status; }
+    /** Starts at 0 and grows by one with every change. */
+    public long getVersion() { return version; }
+    public boolean isAutoRenew() { return autoRenew; }
+
+    private static long requireNonNegative(long numericId) {
+        if (numericId < 0) throw new IllegalArgumentException("Numeric id must not be negative: " + numericId);
+        return numericId;
+    }
 
-    public synchronized void changeTier(String newTierId) {
-        this.tierId = Objects.requireNonNull(newTierId);
+    /** This subscription on another tier; returns this instance if the tier is unchanged. */
+    public Subscription withTier(String newTierId) {
+        int code = IdDictionary.TIERS.code(newTierId);
+        if (code == tierCode) return this;
+        return new Subscription(numericId, id, userId, planCode, code, startAt, expiresAt, status, version + 1,
+                autoRenew);
     }
 
-    public synchronized void extendExpiry(Instant newExpiry) {
-        this.expiresAt = Objects.requireNonNull(newExpiry);
+    public Subscription withExpiry(Instant newExpiry) {
+        return new Subscription(numericId, id, userId, planCode, tierCode, startAt, Objects.requireNonNull(newExpiry),
+                status, version + 1, autoRenew);
     }
 
-    public synchronized void cancel() {
-        this.status = SubscriptionStatus.CANCELLED;
+    /** This subscription with another status; returns this instance if the status is unchanged. */
+    public Subscription withStatus(SubscriptionStatus newStatus) {
+        if (Objects.requireNonNull(newStatus) == status) return this;
+        return new Subscription(numericId, id, userId, planCode, tierCode, startAt, expiresAt,
+                newStatus, version + 1, autoRenew);
     }
 
-    public synchronized void expire() {
-        this.status = SubscriptionStatus.EXPIRED;
+    /** This subscription with auto-renewal switched on or off; returns this instance if unchanged. */
+    public Subscription withAutoRenew(boolean enabled) {
+        if (enabled == autoRenew) return this;
+        return new Subscription(numericId, id, userId, planCode, tierCode, startAt, expiresAt, status, version + 1,
+                enabled);
     }
+
+    public Subscription cancelled() { return withStatus(SubscriptionStatus.CANCELLED); }
+
+    public Subscription expired() { return withStatus(SubscriptionStatus.EXPIRED); }
 }
@@ -6,18 +6,26 @@ import java.util.Objects;
 
 public final class Tier {
     private final String id;
+    private final int code;
     private final String name;
     private final List<Benefit> benefits;
+    private final Entitlements entitlements;
 
     public Tier(String id, String name, List<Benefit> benefits) {
         this.id = Objects.requireNonNull(id);
+        this.code = IdDictionary.TIERS.code(id);
         this.name = Objects.requireNonNull(name);
         this.benefits = Collections.unmodifiableList(Objects.requireNonNull(benefits));
+        this.entitlements = Entitlements.of(this.benefits);
     }
 
     public String getId() { return id; }
+    /** Dictionary code of the id; see {@link IdDictionary#TIERS}. */
+    public int getCode() { return code; }
     public String getName() { return name; }
     public List<Benefit> getBenefits() { return benefits; }
+    /** Benefits precomputed for constant-time checks. */
+    public Entitlements getEntitlements() { return entitlements; }
 
     public String brief() {
         StringBuilder sb = new StringBuilder(name + " [" + id + "]: ");
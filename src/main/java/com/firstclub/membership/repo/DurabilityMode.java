@@ -0,0 +1,13 @@
+package com.firstclub.membership.repo;
+
+/**
+ * When a write-ahead log append is considered durable.
+ */
+public enum DurabilityMode {
+    /** Every append is written and fsynced on its own before returning. */
+    PER_WRITE,
+    /** Group commit: concurrent appends share one fsync; each caller waits until its record is on disk. */
+    BATCHED,
+    /** Appends return immediately; a background flusher fsyncs every few milliseconds. */
+    ASYNC
+}
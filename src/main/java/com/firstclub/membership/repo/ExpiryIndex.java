@@ -0,0 +1,53 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Deadline-ordered index of ACTIVE subscriptions.
+ * Only ACTIVE subscriptions are tracked; any other status drops the entry.
+ * Looking up due subscriptions costs O(log n + due), independent of store size.
+ * Stores keep it in step with {@link #refresh}, which reads the subscription's current
+ * value under the entry's own lock, so writers that finish out of order cannot leave
+ * an older deadline behind.
+ */
+public final class ExpiryIndex {
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparing(Entry::deadline).thenComparing(Entry::id);
+
+    private final NavigableSet<Entry> deadlines = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentMap<String, Entry> scheduled = new ConcurrentHashMap<>();
+
+    /** Re-reads the subscription's current value and (re)schedules or drops it accordingly. */
+    public void refresh(String subscriptionId, Function<String, Subscription> current) {
+        scheduled.compute(subscriptionId, (id, old) -> {
+            if (old != null) deadlines.remove(old);
+            Subscription s = current.apply(id);
+            if (s == null || s.getStatus() != SubscriptionStatus.ACTIVE) return null;
+            Entry e = new Entry(s.getExpiresAt(), id);
+            deadlines.add(e);
+            return e;
+        });
+    }
+
+    /**
+     * Ids of tracked subscriptions whose deadline is strictly before the cutoff, earliest
+     * first, read lazily from the live index.
+     */
+    public Stream<String> dueBefore(Instant cutoff) {
+        return deadlines.headSet(new Entry(cutoff, ""), false).stream().map(Entry::id);
+    }
+
+    public int size() { return scheduled.size(); }
+
+    private record Entry(Instant deadline, String id) {}
+}
@@ -1,21 +1,20 @@
 package com.firstclub.membership.repo;
 
 import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
 
-import java.util.Collection;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Holds the current {@link PlanCatalog} in an AtomicReference. Saves build the next
+ * version and swap it in atomically; readers never lock or copy.
+ */
 public class InMemoryPlanRepository implements PlanRepository {
-    private final Map<String, MembershipPlan> store = new ConcurrentHashMap<>();
+    private final AtomicReference<PlanCatalog> catalog = new AtomicReference<>(PlanCatalog.EMPTY);
 
     @Override
-    public void save(MembershipPlan plan) { store.put(plan.getId(), plan); }
+    public void save(MembershipPlan plan) { catalog.updateAndGet(c -> c.with(plan)); }
 
     @Override
-    public Optional<MembershipPlan> findById(String id) { return Optional.ofNullable(store.get(id)); }
-
-    @Override
-    public Collection<MembershipPlan> findAll() { return store.values(); }
+    public PlanCatalog catalog() { return catalog.get(); }
 }
@@ -1,29 +1,146 @@
 package com.firstclub.membership.repo;
 
 import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
+/**
+ * In-memory subscription store with a secondary userId -> subscription ids index,
+ * so per-user lookups cost O(subscriptions of that user) instead of a full scan,
+ * an {@link ExpiryIndex} so expiry sweeps only touch due subscriptions, a sorted
+ * set of ids that paged cursors resume from, and {@link SubscriptionCounts} kept in
+ * step with every write.
+ *
+ * Reads are plain map lookups of immutable values and never lock. {@link #replace}
+ * is {@link ConcurrentMap#replace(Object, Object, Object)} on the entry: it succeeds
+ * only if the instance the caller read is still stored, so writers on different
+ * subscriptions never wait for each other. The user index holds ids, which a change
+ * never alters, and the expiry index re-reads the current value after every write.
+ */
 public class InMemorySubscriptionRepository implements SubscriptionRepository {
     private final ConcurrentMap<String, Subscription> store = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> byUser = new ConcurrentHashMap<>();
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final NavigableSet<String> sortedIds = new ConcurrentSkipListSet<>();
+    private final SubscriptionCounts counts = new SubscriptionCounts();
+
+    /** Marks page tokens issued by this store; the rest of the token is the last id returned. */
+    static final String TOKEN_PREFIX = "after:";
+
+    @Override
+    public void save(Subscription s) {
+        store.compute(s.getId(), (id, prev) -> {
+            if (prev != null && !prev.getUserId().equals(s.getUserId())) unindex(prev);
+            index(s);
+            if (prev == null) {
+                sortedIds.add(id);
+                counts.add(s);
+            } else {
+                counts.move(prev, s);
+            }
+            return s;
+        });
+        expiryIndex.refresh(s.getId(), store::get);
+    }
 
     @Override
-    public void save(Subscription s) { store.put(s.getId(), s); }
+    public boolean replace(Subscription expected, Subscription next) {
+        if (!store.replace(expected.getId(), expected, next)) return false;
+        counts.move(expected, next);
+        expiryIndex.refresh(next.getId(), store::get);
+        return true;
+    }
 
     @Override
     public Optional<Subscription> findById(String id) { return Optional.ofNullable(store.get(id)); }
 
     @Override
     public List<Subscription> findByUserId(String userId) {
-        return store.values().stream().filter(s -> s.getUserId().equals(userId)).collect(Collectors.toList());
+        Set<String> ids = byUser.get(userId);
+        if (ids == null) return new ArrayList<>();
+        List<Subscription> subs = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Subscription s = store.get(id);
+            if (s != null) subs.add(s);
+        }
+        return subs;
     }
 
     @Override
     public Collection<Subscription> findAll() { return new ArrayList<>(store.values()); }
 
     @Override
-    public void delete(String id) { store.remove(id); }
+    public int size() { return store.size(); }
+
+    /** Streams the live map; its spliterator splits by hash bins, and nothing is copied. */
+    @Override
+    public Stream<Subscription> stream() { return store.values().stream(); }
+
+    /** ACTIVE-with-cutoff filters walk the expiry index instead of the whole store. */
+    @Override
+    public Stream<Subscription> stream(SubscriptionFilter filter) {
+        if (filter.status() == SubscriptionStatus.ACTIVE && filter.expiringBefore() != null) {
+            return expiryIndex.dueBefore(filter.expiringBefore())
+                    .map(store::get)
+                    .filter(s -> s != null && filter.matches(s));
+        }
+        return stream().filter(filter::matches);
+    }
+
+    /**
+     * Walks the sorted ids from the token, which is the last id returned behind
+     * {@link #TOKEN_PREFIX}. Ids may be any string, so the prefix is what tells a token
+     * this store issued from a foreign or garbage one, which is rejected.
+     */
+    @Override
+    public SubscriptionPage page(SubscriptionFilter filter, String pageToken, int limit) {
+        SubscriptionPage.requireLimit(limit);
+        String after = null;
+        if (pageToken != null) {
+            if (!pageToken.startsWith(TOKEN_PREFIX)) throw SubscriptionPage.invalidToken(pageToken);
+            after = pageToken.substring(TOKEN_PREFIX.length());
+        }
+        List<Subscription> items = new ArrayList<>(Math.min(limit, 1024));
+        for (String id : after == null ? sortedIds : sortedIds.tailSet(after, false)) {
+            Subscription s = store.get(id);
+            if (s == null || !filter.matches(s)) continue;
+            items.add(s);
+            if (items.size() == limit) return new SubscriptionPage(items, TOKEN_PREFIX + id);
+        }
+        return new SubscriptionPage(items, null);
+    }
+
+    @Override
+    public void delete(String id) {
+        store.computeIfPresent(id, (k, prev) -> {
+            unindex(prev);
+            sortedIds.remove(k);
+            counts.remove(prev);
+            return null;
+        });
+        expiryIndex.refresh(id, store::get);
+    }
+
+    @Override
+    public SubscriptionCounts counts() { return counts; }
+
+    private void index(Subscription s) {
+        byUser.compute(s.getUserId(), (u, ids) -> {
+            if (ids == null) ids = ConcurrentHashMap.newKeySet();
+            ids.add(s.getId());
+            return ids;
+        });
+    }
+
+    private void unindex(Subscription s) {
+        byUser.computeIfPresent(s.getUserId(), (u, ids) -> {
+            ids.remove(s.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
 }
@@ -2,6 +2,7 @@ package com.firstclub.membership.repo;
 
 import com.firstclub.membership.model.User;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -14,4 +15,10 @@ public class InMemoryUserRepository implements UserRepository {
 
     @Override
     public Optional<User> findById(String id) { return Optional.ofNullable(store.get(id)); }
+
+    @Override
+    public Collection<User> findAll() { return store.values(); }
+
+    @Override
+    public int size() { return store.size(); }
 }
@@ -0,0 +1,719 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Subscription store that keeps rows column by column in direct (off-heap) memory,
+ * so a large member base costs the GC almost nothing to trace.
+ *
+ * Rows live in fixed-size segments; each segment is one direct buffer holding the
+ * columns back to back: id (long, the numeric part of "sub-N"), start and expiry
+ * (epoch millis), version (long), user code (int), next row of the same user (int),
+ * position in its deadline bucket (int), and plan, tier, status and flag bytes. Ids are
+ * found through an off-heap open-addressing table with linear probing. ACTIVE rows are also
+ * filed by expiry minute in {@link DeadlineBucket}s, so an expiry sweep visits only due rows
+ * and the minute it stops in, not the whole store. Plan and tier codes are the shared {@link IdDictionary}
+ * codes; only the user id dictionary stays on the heap.
+ *
+ * Timestamps are stored with millisecond precision. {@link #findById} and friends return
+ * detached copies; save them back to persist a change. Scans that should not allocate
+ * can use {@link #forEach} and {@link #read}, which pass a reusable {@link Cursor};
+ * {@link #stream} and {@link #page} test filters on the columns before materializing.
+ * {@link #replace} compares the stored version column, since callers hold copies.
+ * All writes share one lock: the columns are not safe for concurrent writers.
+ */
+public class OffHeapSubscriptionRepository implements SubscriptionRepository {
+    private static final String ID_PREFIX = Subscription.ID_PREFIX + "-";
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+    private static final byte FREE = -1; // status code of an unused row
+    private static final SubscriptionStatus[] STATUSES = SubscriptionStatus.values();
+
+    // Column offsets inside a segment
+    private static final int ID = 0;
+    private static final int START = ID + 8 * SEGMENT_ROWS;
+    private static final int EXPIRES = START + 8 * SEGMENT_ROWS;
+    private static final int VERSION = EXPIRES + 8 * SEGMENT_ROWS;
+    private static final int USER = VERSION + 8 * SEGMENT_ROWS;
+    private static final int NEXT_FOR_USER = USER + 4 * SEGMENT_ROWS;
+    private static final int DEADLINE_SLOT = NEXT_FOR_USER + 4 * SEGMENT_ROWS;
+    private static final int PLAN = DEADLINE_SLOT + 4 * SEGMENT_ROWS;
+    private static final int TIER = PLAN + SEGMENT_ROWS;
+    private static final int STATUS = TIER + SEGMENT_ROWS;
+    private static final int FLAGS = STATUS + SEGMENT_ROWS;
+    private static final int SEGMENT_BYTES = FLAGS + SEGMENT_ROWS;
+    private static final byte AUTO_RENEW = 1;
+    private static final long BUCKET_MILLIS = 60_000;
+    private static final byte ACTIVE = (byte) SubscriptionStatus.ACTIVE.ordinal();
+
+    /** Bytes of column data per row. */
+    public static final int ROW_BYTES = SEGMENT_BYTES / SEGMENT_ROWS;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final Index index = new Index(1024);
+    private final Map<String, Integer> userCodes = new HashMap<>();
+    private final List<String> users = new ArrayList<>();
+    private final SubscriptionCounts counts = new SubscriptionCounts();
+    private final TreeMap<Long, DeadlineBucket> deadlines = new TreeMap<>(); // expiry minute -> ACTIVE rows
+    private int[] userHeads = new int[1024]; // first row + 1 per user code, 0 = none
+    private int[] freeRows = new int[64];
+    private int freeCount;
+    private int highWater;
+    private int size;
+
+    @Override
+    public void save(Subscription s) {
+        long id = numericId(s);
+        lockForWrite();
+        try {
+            put(id, s);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Subscription> subscriptions) {
+        long[] ids = new long[subscriptions.size()];
+        int i = 0;
+        for (Subscription s : subscriptions) ids[i++] = numericId(s); // validate before writing any
+        lockForWrite();
+        try {
+            i = 0;
+            for (Subscription s : subscriptions) put(ids[i++], s);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(Subscription expected, Subscription next) {
+        long id = numericId(next);
+        lockForWrite();
+        try {
+            return replaceRow(id, expected, next);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] replaceAll(List<Subscription> expected, List<Subscription> next) {
+        long[] ids = new long[next.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = numericId(next.get(i));
+        boolean[] replaced = new boolean[ids.length];
+        lockForWrite();
+        try {
+            for (int i = 0; i < ids.length; i++) replaced[i] = replaceRow(ids[i], expected.get(i), next.get(i));
+            return replaced;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the write lock, failing fast on a thread that holds the read lock: the lock
+     * cannot be upgraded, so waiting would deadlock a forEach or read callback.
+     */
+    private void lockForWrite() {
+        if (lock.getReadHoldCount() > 0) {
+            throw new IllegalStateException("Cannot write to the off-heap store inside forEach or read");
+        }
+        lock.writeLock().lock();
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) {
+        long key = Subscription.numericIdOf(id);
+        if (key < 0) return Optional.empty();
+        lock.readLock().lock();
+        try {
+            int row = index.get(key);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Subscription> findByUserId(String userId) {
+        List<Subscription> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Integer user = userCodes.get(userId);
+            if (user == null) return result;
+            for (int next = userHeads[user]; next != 0; next = nextForUser(next - 1)) {
+                result.add(materialize(next - 1));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Subscription> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Subscription> result = new ArrayList<>(size);
+            for (int row = 0; row < highWater; row++) {
+                if (status(row) != FREE) result.add(materialize(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        long key = Subscription.numericIdOf(id);
+        if (key < 0) return;
+        lockForWrite();
+        try {
+            int row = index.remove(key);
+            if (row < 0) return;
+            unlinkUser(row, userCode(row));
+            uncount(row);
+            if (status(row) == ACTIVE) unschedule(row);
+            segment(row).put(STATUS + (row & SEGMENT_MASK), FREE);
+            if (freeCount == freeRows.length) freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            freeRows[freeCount++] = row;
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Streams {@link SubscriptionFilter#ALL}. */
+    @Override
+    public Stream<Subscription> stream() {
+        return stream(SubscriptionFilter.ALL);
+    }
+
+    /**
+     * Streams rows in row order, splitting by row range. The filter is tested on the plan,
+     * status and expiry columns, so only matching rows are materialized. Rows are read in
+     * batches under the read lock, which is released before they reach the stream, so the
+     * pipeline may write back to this store. ACTIVE-with-cutoff filters read the due rows
+     * from the deadline buckets instead, earliest minute first.
+     */
+    @Override
+    public Stream<Subscription> stream(SubscriptionFilter filter) {
+        if (filter.status() == SubscriptionStatus.ACTIVE && filter.expiringBefore() != null) {
+            return IntStream.of(dueRows(filter)).mapToObj(row -> materializeIfMatches(filter, row)).filter(Objects::nonNull);
+        }
+        int fence;
+        lock.readLock().lock();
+        try {
+            fence = highWater;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return StreamSupport.stream(new RowSpliterator(filter, 0, fence), false);
+    }
+
+    /** The token is the row to resume from; rows are never moved, so it survives writes. */
+    @Override
+    public SubscriptionPage page(SubscriptionFilter filter, String pageToken, int limit) {
+        SubscriptionPage.requireLimit(limit);
+        int row = 0;
+        if (pageToken != null) {
+            try {
+                row = Integer.parseInt(pageToken);
+            } catch (NumberFormatException e) {
+                throw SubscriptionPage.invalidToken(pageToken);
+            }
+            if (row < 0) throw SubscriptionPage.invalidToken(pageToken);
+        }
+        List<Subscription> items = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            for (; row < highWater; row++) {
+                if (!matches(filter, row)) continue;
+                items.add(materialize(row));
+                if (items.size() == limit) return new SubscriptionPage(items, Integer.toString(row + 1));
+            }
+            return new SubscriptionPage(items, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every stored subscription through one reused cursor, valid only inside the
+     * callback. The read lock is held throughout, so the callback must not write to this
+     * store: a save, replace or delete from inside it throws {@link IllegalStateException}
+     * rather than wait for a lock its own thread holds. Collect ids and write afterwards.
+     */
+    public void forEach(Consumer<? super Cursor> action) {
+        Cursor cursor = new Cursor();
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < highWater; row++) {
+                if (status(row) == FREE) continue;
+                cursor.row = row;
+                action.accept(cursor);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes a cursor over the subscription to the action, if present; the cursor is valid
+     * only inside it. As with {@link #forEach}, the action must not write to this store.
+     */
+    public boolean read(String id, Consumer<? super Cursor> action) {
+        long key = Subscription.numericIdOf(id);
+        if (key < 0) return false;
+        lock.readLock().lock();
+        try {
+            int row = index.get(key);
+            if (row < 0) return false;
+            Cursor cursor = new Cursor();
+            cursor.row = row;
+            action.accept(cursor);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Kept under the write lock with the rows; reads need no lock. */
+    @Override
+    public SubscriptionCounts counts() { return counts; }
+
+    /** Direct memory held by columns and the id index. */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) segments.size() * SEGMENT_BYTES + index.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flyweight view of one row. Instances are reused across rows and must not be
+     * kept beyond the callback that received them.
+     */
+    public final class Cursor {
+        private int row;
+
+        private Cursor() {}
+
+        public String id() { return ID_PREFIX + numericId(); }
+        public long numericId() { return segment(row).getLong(ID + 8 * (row & SEGMENT_MASK)); }
+        public String userId() { return users.get(userCode(row)); }
+        public String planId() { return IdDictionary.PLANS.decode(segment(row).get(PLAN + (row & SEGMENT_MASK))); }
+        public String tierId() { return IdDictionary.TIERS.decode(segment(row).get(TIER + (row & SEGMENT_MASK))); }
+        public long startMillis() { return segment(row).getLong(START + 8 * (row & SEGMENT_MASK)); }
+        public long expiresMillis() { return segment(row).getLong(EXPIRES + 8 * (row & SEGMENT_MASK)); }
+        public long version() { return segment(row).getLong(VERSION + 8 * (row & SEGMENT_MASK)); }
+        public SubscriptionStatus status() { return STATUSES[OffHeapSubscriptionRepository.this.status(row)]; }
+        public boolean autoRenew() { return (segment(row).get(FLAGS + (row & SEGMENT_MASK)) & AUTO_RENEW) != 0; }
+        public Subscription toSubscription() { return materialize(row); }
+    }
+
+    // ------------------------------------------------------------
+    // Row storage (callers hold the lock)
+    // ------------------------------------------------------------
+
+    private void put(long id, Subscription s) {
+        byte plan = byteCode(s.getPlanCode());
+        byte tier = byteCode(s.getTierCode());
+        int user = internUser(s.getUserId());
+
+        int row = index.get(id);
+        if (row < 0) {
+            index.ensureRoom(); // before allocating, so a full index leaves no half-added row
+            row = allocateRow();
+            index.put(id, row);
+            linkUser(row, user);
+            size++;
+        } else {
+            uncount(row);
+            if (status(row) == ACTIVE) unschedule(row);
+            if (userCode(row) != user) {
+                unlinkUser(row, userCode(row));
+                linkUser(row, user);
+            }
+        }
+        counts.add(s);
+
+        ByteBuffer seg = segment(row);
+        int slot = row & SEGMENT_MASK;
+        seg.putLong(ID + 8 * slot, id);
+        seg.putLong(START + 8 * slot, s.getStartAt().toEpochMilli());
+        seg.putLong(EXPIRES + 8 * slot, s.getExpiresAt().toEpochMilli());
+        seg.putLong(VERSION + 8 * slot, s.getVersion());
+        seg.putInt(USER + 4 * slot, user);
+        seg.put(PLAN + slot, plan);
+        seg.put(TIER + slot, tier);
+        seg.put(STATUS + slot, (byte) s.getStatus().ordinal());
+        seg.put(FLAGS + slot, s.isAutoRenew() ? AUTO_RENEW : 0);
+        if (s.getStatus() == SubscriptionStatus.ACTIVE) schedule(row);
+    }
+
+    private boolean replaceRow(long id, Subscription expected, Subscription next) {
+        int row = index.get(id);
+        if (row < 0 || segment(row).getLong(VERSION + 8 * (row & SEGMENT_MASK)) != expected.getVersion()) return false;
+        put(id, next);
+        return true;
+    }
+
+    private boolean matches(SubscriptionFilter filter, int row) {
+        ByteBuffer seg = segment(row);
+        int slot = row & SEGMENT_MASK;
+        byte status = seg.get(STATUS + slot);
+        return status != FREE && filter.matches(seg.get(PLAN + slot), status, seg.getLong(EXPIRES + 8 * slot));
+    }
+
+    /** ACTIVE rows whose expiry minute can hold a match, tested on the columns. */
+    private int[] dueRows(SubscriptionFilter filter) {
+        lock.readLock().lock();
+        try {
+            long lastBucket = Math.floorDiv(filter.expiringBeforeMillis() - 1, BUCKET_MILLIS);
+            int[] due = new int[64];
+            int n = 0;
+            for (DeadlineBucket bucket : deadlines.headMap(lastBucket, true).values()) {
+                for (int i = 0; i < bucket.size; i++) {
+                    int row = bucket.rows[i];
+                    if (!matches(filter, row)) continue;
+                    if (n == due.length) due = Arrays.copyOf(due, n * 2);
+                    due[n++] = row;
+                }
+            }
+            return Arrays.copyOf(due, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Re-tests a row collected earlier, since the lock was released in between. */
+    private Subscription materializeIfMatches(SubscriptionFilter filter, int row) {
+        lock.readLock().lock();
+        try {
+            return matches(filter, row) ? materialize(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void schedule(int row) {
+        DeadlineBucket bucket = deadlines.computeIfAbsent(bucketOf(row), k -> new DeadlineBucket());
+        setDeadlineSlot(row, bucket.size);
+        bucket.add(row);
+    }
+
+    /** Call before the row's expiry or status column changes: the bucket is found from them. */
+    private void unschedule(int row) {
+        long key = bucketOf(row);
+        DeadlineBucket bucket = deadlines.get(key);
+        int slot = deadlineSlot(row);
+        int moved = bucket.removeAt(slot);
+        if (moved >= 0) setDeadlineSlot(moved, slot);
+        if (bucket.size == 0) deadlines.remove(key);
+    }
+
+    private long bucketOf(int row) {
+        return Math.floorDiv(segment(row).getLong(EXPIRES + 8 * (row & SEGMENT_MASK)), BUCKET_MILLIS);
+    }
+
+    private void uncount(int row) {
+        ByteBuffer seg = segment(row);
+        int slot = row & SEGMENT_MASK;
+        counts.adjust(seg.get(PLAN + slot), seg.get(TIER + slot), seg.get(STATUS + slot), -1);
+    }
+
+    private Subscription materialize(int row) {
+        ByteBuffer seg = segment(row);
+        int slot = row & SEGMENT_MASK;
+        return Subscription.restore(
+                seg.getLong(ID + 8 * slot),
+                users.get(seg.getInt(USER + 4 * slot)),
+                IdDictionary.PLANS.decode(seg.get(PLAN + slot)),
+                IdDictionary.TIERS.decode(seg.get(TIER + slot)),
+                Instant.ofEpochMilli(seg.getLong(START + 8 * slot)),
+                Instant.ofEpochMilli(seg.getLong(EXPIRES + 8 * slot)),
+                STATUSES[seg.get(STATUS + slot)],
+                seg.getLong(VERSION + 8 * slot),
+                (seg.get(FLAGS + slot) & AUTO_RENEW) != 0);
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) return freeRows[--freeCount];
+        int row = highWater++;
+        if ((row >>> SEGMENT_SHIFT) == segments.size()) segments.add(ByteBuffer.allocateDirect(SEGMENT_BYTES));
+        return row;
+    }
+
+    private ByteBuffer segment(int row) { return segments.get(row >>> SEGMENT_SHIFT); }
+
+    private byte status(int row) { return segment(row).get(STATUS + (row & SEGMENT_MASK)); }
+
+    private int userCode(int row) { return segment(row).getInt(USER + 4 * (row & SEGMENT_MASK)); }
+
+    private int nextForUser(int row) { return segment(row).getInt(NEXT_FOR_USER + 4 * (row & SEGMENT_MASK)); }
+
+    private void setNextForUser(int row, int next) { segment(row).putInt(NEXT_FOR_USER + 4 * (row & SEGMENT_MASK), next); }
+
+    private int deadlineSlot(int row) { return segment(row).getInt(DEADLINE_SLOT + 4 * (row & SEGMENT_MASK)); }
+
+    private void setDeadlineSlot(int row, int slot) { segment(row).putInt(DEADLINE_SLOT + 4 * (row & SEGMENT_MASK), slot); }
+
+    private int internUser(String userId) {
+        Integer code = userCodes.get(userId);
+        if (code != null) return code;
+        int next = users.size();
+        users.add(userId);
+        userCodes.put(userId, next);
+        if (next == userHeads.length) userHeads = Arrays.copyOf(userHeads, next * 2);
+        return next;
+    }
+
+    private void linkUser(int row, int user) {
+        setNextForUser(row, userHeads[user]);
+        userHeads[user] = row + 1;
+    }
+
+    private void unlinkUser(int row, int user) {
+        if (userHeads[user] == row + 1) {
+            userHeads[user] = nextForUser(row);
+            return;
+        }
+        for (int prev = userHeads[user] - 1; prev >= 0; prev = nextForUser(prev) - 1) {
+            if (nextForUser(prev) == row + 1) {
+                setNextForUser(prev, nextForUser(row));
+                return;
+            }
+        }
+    }
+
+    private static byte byteCode(int code) {
+        if (code > Byte.MAX_VALUE) throw new IllegalStateException("Dictionary code too large for a byte column: " + code);
+        return (byte) code;
+    }
+
+    /** Numeric part of a "sub-N" id; generated ids carry it already and are not re-parsed. */
+    private static long numericId(Subscription s) {
+        if (s.getNumericId() >= 0) return s.getNumericId();
+        long key = Subscription.numericIdOf(s.getId());
+        if (key < 0) throw new IllegalArgumentException("Off-heap store needs ids of the form sub-<number>: " + s.getId());
+        return key;
+    }
+
+    /**
+     * Row range [row, fence) of the store. Splits in half down to {@link #MIN_SPLIT_ROWS};
+     * rows allocated past the fence after the stream was created are not visited.
+     */
+    private final class RowSpliterator implements Spliterator<Subscription> {
+        private static final int MIN_SPLIT_ROWS = 4096;
+        private static final int BATCH = 256;
+
+        private final SubscriptionFilter filter;
+        private int row;
+        private final int fence;
+
+        RowSpliterator(SubscriptionFilter filter, int row, int fence) {
+            this.filter = filter;
+            this.row = row;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Subscription> action) {
+            Subscription next = null;
+            lock.readLock().lock();
+            try {
+                while (next == null && row < fence) {
+                    if (matches(filter, row)) next = materialize(row);
+                    row++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (next == null) return false;
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Subscription> action) {
+            Subscription[] batch = new Subscription[BATCH];
+            while (row < fence) {
+                int n = 0;
+                lock.readLock().lock();
+                try {
+                    for (; row < fence && n < BATCH; row++) {
+                        if (matches(filter, row)) batch[n++] = materialize(row);
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                for (int i = 0; i < n; i++) {
+                    action.accept(batch[i]);
+                    batch[i] = null;
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Subscription> trySplit() {
+            int mid = (row + fence) >>> 1;
+            if (fence - row < 2 * MIN_SPLIT_ROWS) return null;
+            RowSpliterator prefix = new RowSpliterator(filter, row, mid);
+            row = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() { return fence - row; }
+
+        @Override
+        public int characteristics() { return NONNULL | CONCURRENT; }
+    }
+
+    /**
+     * ACTIVE rows expiring within one minute, unordered. Each row records its position in
+     * its {@link #DEADLINE_SLOT} column, so removal swaps the last row into the gap in O(1).
+     */
+    private static final class DeadlineBucket {
+        private int[] rows = new int[8];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+            rows[size++] = row;
+        }
+
+        /** Removes the row at the position and returns the row moved into it, or -1 if none moved. */
+        int removeAt(int slot) {
+            int last = rows[--size];
+            if (slot == size) return -1;
+            rows[slot] = last;
+            return last;
+        }
+    }
+
+    /**
+     * Off-heap open-addressing map from id to row with linear probing. Each slot is a
+     * long key followed by an int holding row + 1 (0 marks an empty slot). Removal
+     * shifts later entries back, so no tombstones build up.
+     */
+    private static final class Index {
+        private static final int SLOT = 12;
+        /** Largest power-of-two slot count whose byte offsets fit in a buffer's int index. */
+        private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE / SLOT);
+
+        private ByteBuffer slots;
+        private int mask;
+        private int size;
+
+        Index(int capacity) {
+            if (capacity <= 0 || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Index capacity must be a power of two up to " + MAX_CAPACITY + ": " + capacity);
+            }
+            slots = ByteBuffer.allocateDirect(capacity * SLOT);
+            mask = capacity - 1;
+        }
+
+        int get(long key) {
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                int value = slots.getInt(i * SLOT + 8);
+                if (value == 0) return -1;
+                if (slots.getLong(i * SLOT) == key) return value - 1;
+            }
+        }
+
+        /** Grows the table if one more key would take it past three quarters full. */
+        void ensureRoom() {
+            if ((size + 1) * 4L > (mask + 1) * 3L) grow();
+        }
+
+        void put(long key, int row) {
+            ensureRoom();
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                int value = slots.getInt(i * SLOT + 8);
+                if (value == 0) {
+                    slots.putLong(i * SLOT, key).putInt(i * SLOT + 8, row + 1);
+                    size++;
+                    return;
+                }
+                if (slots.getLong(i * SLOT) == key) {
+                    slots.putInt(i * SLOT + 8, row + 1);
+                    return;
+                }
+            }
+        }
+
+        /** Removes the key and returns its row, or -1 if absent. */
+        int remove(long key) {
+            int hole = home(key);
+            while (true) {
+                int value = slots.getInt(hole * SLOT + 8);
+                if (value == 0) return -1;
+                if (slots.getLong(hole * SLOT) == key) break;
+                hole = (hole + 1) & mask;
+            }
+            int row = slots.getInt(hole * SLOT + 8) - 1;
+            for (int j = (hole + 1) & mask; slots.getInt(j * SLOT + 8) != 0; j = (j + 1) & mask) {
+                int home = home(slots.getLong(j * SLOT));
+                // Move j into the hole unless its home lies cyclically between the hole and j
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    slots.putLong(hole * SLOT, slots.getLong(j * SLOT)).putInt(hole * SLOT + 8, slots.getInt(j * SLOT + 8));
+                    hole = j;
+                }
+            }
+            slots.putLong(hole * SLOT, 0).putInt(hole * SLOT + 8, 0);
+            size--;
+            return row;
+        }
+
+        long bytes() { return slots.capacity(); }
+
+        private int home(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private void grow() {
+            ByteBuffer old = slots;
+            int oldCapacity = mask + 1;
+            if (oldCapacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Off-heap id index is full at " + size + " subscriptions");
+            }
+            slots = ByteBuffer.allocateDirect(oldCapacity * 2 * SLOT);
+            mask = oldCapacity * 2 - 1;
+            size = 0;
+            for (int i = 0; i < oldCapacity; i++) {
+                int value = old.getInt(i * SLOT + 8);
+                if (value != 0) put(old.getLong(i * SLOT), value - 1);
+            }
+        }
+    }
+}
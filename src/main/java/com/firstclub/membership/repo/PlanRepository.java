@@ -1,18 +1,33 @@
 package com.firstclub.membership.repo;
 
+import com.firstclub.membership.model.IdDictionary;
 import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
 
 import java.util.Collection;
 import java.util.Optional;
 
 /**
  * Repository interface for storing and retrieving membership plans.
+ * Reads are served from an immutable {@link PlanCatalog}; each save publishes a new version.
  */
 public interface PlanRepository {
 
     void save(MembershipPlan plan);
 
-    Optional<MembershipPlan> findById(String id);
+    /** Current catalog; pin it once per operation for consistent, copy-free lookups. */
+    PlanCatalog catalog();
 
-    Collection<MembershipPlan> findAll();
+    default Optional<MembershipPlan> findById(String id) {
+        return Optional.ofNullable(catalog().find(id));
+    }
+
+    /** Lookup by {@link IdDictionary#PLANS} code. */
+    default Optional<MembershipPlan> findByCode(int planCode) {
+        return Optional.ofNullable(catalog().find(planCode));
+    }
+
+    default Collection<MembershipPlan> findAll() {
+        return catalog().plans();
+    }
 }
@@ -0,0 +1,13 @@
+package com.firstclub.membership.repo;
+
+/**
+ * A write refused because the store can no longer make changes durable, for example
+ * after its log failed. The request itself was fine; it can succeed once the store
+ * has been restarted.
+ */
+public final class ReadOnlyStoreException extends IllegalStateException {
+
+    public ReadOnlyStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
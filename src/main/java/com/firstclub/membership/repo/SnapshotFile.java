@@ -0,0 +1,201 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of plans, users and subscriptions.
+ *
+ * Layout: [magic][version][walLsn] [plans] [users] [subscriptions][subscription count]
+ * [crc32c of everything before it]. The subscription count follows the rows so they can
+ * be streamed straight from a live store without copying them first. Snapshots are
+ * written to a temp file, fsynced and atomically renamed, so a crash never leaves a
+ * half-written snapshot in place. Loading maps the file read-only and decodes
+ * straight out of the {@link MappedByteBuffer}; the recorded WAL LSN tells the caller
+ * where log replay has to resume.
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x46435331; // "FCS1"
+    private static final int VERSION = 1;
+    private static final int CHUNK = 1 << 20;
+    private static final BenefitType[] BENEFIT_TYPES = BenefitType.values();
+
+    /** What a snapshot contained and the WAL position it covers. */
+    public record Header(long walLsn, int plans, int users, long subscriptions) {}
+
+    private SnapshotFile() {}
+
+    /** Writes a snapshot whose contents include every WAL record before {@code walLsn}. */
+    public static Header write(Path file, long walLsn, Collection<MembershipPlan> livePlans,
+                               Collection<User> liveUsers, Collection<Subscription> liveSubscriptions) throws IOException {
+        return write(file, walLsn, livePlans, liveUsers, liveSubscriptions.stream());
+    }
+
+    /**
+     * Writes a snapshot, encoding subscriptions as the stream yields them rather than
+     * collecting them first. The caller keeps ownership of the stream and closes it.
+     */
+    public static Header write(Path file, long walLsn, Collection<MembershipPlan> livePlans,
+                               Collection<User> liveUsers, Stream<Subscription> liveSubscriptions) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        // Copy the references first: a live collection's size can change while we iterate
+        List<MembershipPlan> plans = new ArrayList<>(livePlans);
+        List<User> users = new ArrayList<>(liveUsers);
+        long subs = 0;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(ch, crc);
+            out.ensure(16).putInt(MAGIC).putInt(VERSION).putLong(walLsn);
+
+            out.ensure(4).putInt(plans.size());
+            for (MembershipPlan p : plans) writePlan(p, out);
+
+            out.ensure(4).putInt(users.size());
+            for (User u : users) {
+                ByteBuffer b = out.ensure(4 + 3 * (u.getId().length() + u.getName().length()));
+                SubscriptionCodec.writeString(u.getId(), b);
+                SubscriptionCodec.writeString(u.getName(), b);
+            }
+
+            for (Iterator<Subscription> it = liveSubscriptions.iterator(); it.hasNext(); subs++) {
+                Subscription s = it.next();
+                SubscriptionCodec.write(s, out.ensure(SubscriptionCodec.maxSize(s)));
+            }
+            out.ensure(8).putLong(subs);
+
+            out.drain();
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+            while (trailer.hasRemaining()) ch.write(trailer);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Header(walLsn, plans.size(), users.size(), subs);
+    }
+
+    /** Verifies the checksum, then loads the snapshot's contents into the given repositories. */
+    public static Header load(Path file, PlanRepository plans, UserRepository users,
+                              SubscriptionRepository subscriptions) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map in one region: " + size);
+            if (size < 20) throw new IOException("Snapshot truncated: " + file);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int bodyLength = (int) size - 4;
+            CRC32C crc = new CRC32C();
+            crc.update(map.slice(0, bodyLength));
+            if ((int) crc.getValue() != map.getInt(bodyLength)) throw new IOException("Snapshot checksum mismatch: " + file);
+
+            ByteBuffer in = map.slice(0, bodyLength);
+            if (in.getInt() != MAGIC) throw new IOException("Not a snapshot file: " + file);
+            int version = in.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version: " + version);
+            long walLsn = in.getLong();
+
+            int planCount = in.getInt();
+            for (int i = 0; i < planCount; i++) plans.save(readPlan(in));
+
+            int userCount = in.getInt();
+            for (int i = 0; i < userCount; i++) {
+                users.save(new User(SubscriptionCodec.readString(in), SubscriptionCodec.readString(in)));
+            }
+
+            long subCount = in.getLong(bodyLength - 8);
+            List<Subscription> batch = new ArrayList<>(CHUNK / 64);
+            for (long i = 0; i < subCount; i++) {
+                batch.add(SubscriptionCodec.read(in));
+                if (batch.size() == CHUNK / 64) {
+                    subscriptions.saveAll(batch);
+                    batch.clear();
+                }
+            }
+            subscriptions.saveAll(batch);
+            return new Header(walLsn, planCount, userCount, subCount);
+        }
+    }
+
+    private static void writePlan(MembershipPlan p, Writer out) throws IOException {
+        ByteBuffer b = out.ensure(4 + 3 * (p.getId().length() + p.getDescription().length()) + 4 + 64 + 4);
+        SubscriptionCodec.writeString(p.getId(), b);
+        SubscriptionCodec.writeString(p.getDescription(), b);
+        b.putInt(p.getPriceInINR());
+        SubscriptionCodec.writeString(p.getDuration().toString(), b);
+        b.putInt(p.getTiers().size());
+        for (Tier t : p.getTiers()) {
+            b = out.ensure(4 + 3 * (t.getId().length() + t.getName().length()) + 4);
+            SubscriptionCodec.writeString(t.getId(), b);
+            SubscriptionCodec.writeString(t.getName(), b);
+            b.putInt(t.getBenefits().size());
+            for (Benefit benefit : t.getBenefits()) {
+                b = out.ensure(4 + 3 * (benefit.id().length() + benefit.description().length()) + 5);
+                SubscriptionCodec.writeString(benefit.id(), b);
+                SubscriptionCodec.writeString(benefit.description(), b);
+                b.put((byte) benefit.type().ordinal());
+                b.putInt(benefit.value());
+            }
+        }
+    }
+
+    private static MembershipPlan readPlan(ByteBuffer in) {
+        String id = SubscriptionCodec.readString(in);
+        String description = SubscriptionCodec.readString(in);
+        int price = in.getInt();
+        Period duration = Period.parse(SubscriptionCodec.readString(in));
+        int tierCount = in.getInt();
+        List<Tier> tiers = new ArrayList<>(tierCount);
+        for (int i = 0; i < tierCount; i++) {
+            String tierId = SubscriptionCodec.readString(in);
+            String name = SubscriptionCodec.readString(in);
+            int benefitCount = in.getInt();
+            List<Benefit> benefits = new ArrayList<>(benefitCount);
+            for (int j = 0; j < benefitCount; j++) {
+                benefits.add(Benefit.of(SubscriptionCodec.readString(in), SubscriptionCodec.readString(in),
+                        BENEFIT_TYPES[in.get()], in.getInt()));
+            }
+            tiers.add(new Tier(tierId, name, benefits));
+        }
+        return new MembershipPlan(id, description, price, duration, tiers);
+    }
+
+    /** Chunked channel writer that checksums everything it writes. */
+    private static final class Writer {
+        private final FileChannel channel;
+        private final CRC32C crc;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK);
+
+        Writer(FileChannel channel, CRC32C crc) {
+            this.channel = channel;
+            this.crc = crc;
+        }
+
+        /** Returns the buffer with at least the requested space, draining it to the file first if needed. */
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (bytes > CHUNK) throw new IOException("Record too large for snapshot chunk: " + bytes);
+            if (buffer.remaining() < bytes) drain();
+            return buffer;
+        }
+
+        void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
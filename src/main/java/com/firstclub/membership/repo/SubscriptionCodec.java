@@ -0,0 +1,76 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary form of a subscription, shared by the write-ahead log and snapshots.
+ * Strings are UTF-8 with an unsigned short length; instants are epoch seconds + nanos.
+ * The version follows the status, and the auto-renewal flag rides in the status byte's
+ * top bit.
+ */
+public final class SubscriptionCodec {
+    private static final SubscriptionStatus[] STATUSES = SubscriptionStatus.values();
+    private static final int AUTO_RENEW = 0x80;
+
+    private SubscriptionCodec() {}
+
+    public static int maxSize(Subscription s) {
+        return 4 * 2 + 3 * (s.getId().length() + s.getUserId().length()
+                + s.getPlanId().length() + s.getTierId().length()) + 2 * 12 + 1 + 8;
+    }
+
+    public static void write(Subscription s, ByteBuffer out) {
+        writeString(s.getId(), out);
+        writeString(s.getUserId(), out);
+        writeString(s.getPlanId(), out);
+        writeString(s.getTierId(), out);
+        writeInstant(s.getStartAt(), out);
+        writeInstant(s.getExpiresAt(), out);
+        out.put((byte) (s.getStatus().ordinal() | (s.isAutoRenew() ? AUTO_RENEW : 0)));
+        out.putLong(s.getVersion());
+    }
+
+    public static Subscription read(ByteBuffer in) {
+        String id = readString(in);
+        String userId = readString(in);
+        String planId = readString(in);
+        String tierId = readString(in);
+        Instant startAt = readInstant(in);
+        Instant expiresAt = readInstant(in);
+        int statusByte = in.get();
+        SubscriptionStatus status = STATUSES[statusByte & ~AUTO_RENEW & 0xFF];
+        long version = in.getLong();
+        return Subscription.restore(id, userId, planId, tierId, startAt, expiresAt, status, version,
+                (statusByte & AUTO_RENEW) != 0);
+    }
+
+    public static void writeString(String value, ByteBuffer out) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("String too long to encode: " + bytes.length);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeInstant(Instant value, ByteBuffer out) {
+        out.putLong(value.getEpochSecond());
+        out.putInt(value.getNano());
+    }
+
+    public static Instant readInstant(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return Instant.ofEpochSecond(seconds, nanos);
+    }
+}
@@ -0,0 +1,147 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live subscription counts by (plan, tier, status), kept by a store in step with every
+ * write: a save or replace moves one unit from the old value's cell to the new one's,
+ * a delete takes one away. Each cell is a {@link LongAdder}, whose internal striping
+ * keeps concurrent writers to a popular cell (ACTIVE on the default plan) from
+ * contending on one cache line. Cells are keyed by the dictionary codes packed into a
+ * long, so a count is one map lookup and a sum, independent of store size.
+ *
+ * Updates follow the store's write, so a reader racing a writer can see a count one
+ * off for that moment; once writes stop, counts match the store exactly, which
+ * {@link #mismatches} checks against a full scan.
+ */
+public final class SubscriptionCounts {
+    private static final SubscriptionStatus[] STATUSES = SubscriptionStatus.values();
+
+    /** One cell of the counts, decoded. */
+    public record Key(String planId, String tierId, SubscriptionStatus status) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key o) {
+            int c = planId.compareTo(o.planId);
+            if (c == 0) c = tierId.compareTo(o.tierId);
+            return c != 0 ? c : status.compareTo(o.status);
+        }
+
+        @Override
+        public String toString() {
+            return planId + "/" + tierId + "/" + status;
+        }
+    }
+
+    private static final int PLAN_SHIFT = 40;
+    private static final long MAX_PLAN_CODE = (1L << (Long.SIZE - 1 - PLAN_SHIFT)) - 1;
+
+    private final ConcurrentMap<Long, LongAdder> cells = new ConcurrentHashMap<>();
+
+    /** Counts built from a full scan, e.g. for stores that do not keep them. */
+    public static SubscriptionCounts of(Iterable<Subscription> subscriptions) {
+        SubscriptionCounts counts = new SubscriptionCounts();
+        for (Subscription s : subscriptions) counts.add(s);
+        return counts;
+    }
+
+    /** Subscriptions on the plan and tier with the status; 0 for ids never seen. */
+    public long count(String planId, String tierId, SubscriptionStatus status) {
+        int plan = IdDictionary.PLANS.codeIfPresent(planId);
+        int tier = IdDictionary.TIERS.codeIfPresent(tierId);
+        if (plan < 0 || tier < 0) return 0;
+        LongAdder cell = cells.get(key(plan, tier, status.ordinal()));
+        return cell == null ? 0 : cell.sum();
+    }
+
+    /** Subscriptions with the status across all plans and tiers; sums the handful of cells. */
+    public long count(SubscriptionStatus status) {
+        long total = 0;
+        for (Map.Entry<Long, LongAdder> e : cells.entrySet()) {
+            if ((e.getKey() & 0xFF) == status.ordinal()) total += e.getValue().sum();
+        }
+        return total;
+    }
+
+    /** Every non-zero cell, ordered by plan, tier and status. */
+    public Map<Key, Long> snapshot() {
+        Map<Key, Long> out = new TreeMap<>();
+        cells.forEach((key, cell) -> {
+            long n = cell.sum();
+            if (n != 0) out.put(decode(key), n);
+        });
+        return out;
+    }
+
+    /**
+     * Compares the counts with a full scan of the given subscriptions (the whole store)
+     * and describes each cell that differs; empty when they agree. Only meaningful
+     * while no writes are in flight.
+     */
+    public List<String> mismatches(Iterable<Subscription> all) {
+        Map<Key, Long> scanned = of(all).snapshot();
+        Map<Key, Long> kept = snapshot();
+        Set<Key> keys = new TreeSet<>(scanned.keySet());
+        keys.addAll(kept.keySet());
+        List<String> out = new ArrayList<>();
+        for (Key k : keys) {
+            long expected = scanned.getOrDefault(k, 0L);
+            long actual = kept.getOrDefault(k, 0L);
+            if (expected != actual) out.add(k + ": counted " + actual + ", scanned " + expected);
+        }
+        return out;
+    }
+
+    // ------------------------------------------------------------
+    // Maintenance, called by stores after each write
+    // ------------------------------------------------------------
+
+    void add(Subscription s) {
+        adjust(s.getPlanCode(), s.getTierCode(), s.getStatus().ordinal(), 1);
+    }
+
+    void remove(Subscription s) {
+        adjust(s.getPlanCode(), s.getTierCode(), s.getStatus().ordinal(), -1);
+    }
+
+    /** Moves one unit from before's cell to after's; nothing when they share a cell. */
+    void move(Subscription before, Subscription after) {
+        if (before.getPlanCode() == after.getPlanCode() && before.getTierCode() == after.getTierCode()
+                && before.getStatus() == after.getStatus()) {
+            return;
+        }
+        remove(before);
+        add(after);
+    }
+
+    void adjust(int planCode, int tierCode, int status, long delta) {
+        LongAdder cell = cells.get(key(planCode, tierCode, status));
+        if (cell == null) cell = cells.computeIfAbsent(key(planCode, tierCode, status), k -> new LongAdder());
+        cell.add(delta);
+    }
+
+    /**
+     * Plan above bit 40, tier in the 32 bits below it, status in the low byte: every tier
+     * code fits, and plan codes would have to pass 2^23 to collide, which is refused.
+     */
+    private static long key(int planCode, int tierCode, int status) {
+        if (planCode > MAX_PLAN_CODE) throw new IllegalStateException("Plan code out of range for counts: " + planCode);
+        return (long) planCode << PLAN_SHIFT | (long) tierCode << 8 | status;
+    }
+
+    private static Key decode(long key) {
+        return new Key(IdDictionary.PLANS.decode((int) (key >>> PLAN_SHIFT)),
+                IdDictionary.TIERS.decode((int) (key >>> 8)), STATUSES[(int) (key & 0xFF)]);
+    }
+}
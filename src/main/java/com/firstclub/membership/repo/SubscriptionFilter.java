@@ -0,0 +1,97 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Which subscriptions a scan should return: optionally one status, one plan and an
+ * expiry cutoff, all of which must hold. Stores push it down rather than filter copies:
+ * the off-heap store tests its plan, status and expiry columns before materializing a
+ * row, and the in-memory store answers an ACTIVE-with-cutoff filter from its expiry index.
+ *
+ * The plan is resolved to its dictionary code when the filter is built, so matching is
+ * an int compare; a plan id the dictionary has never seen matches nothing.
+ */
+public final class SubscriptionFilter {
+    private static final int ANY = -1;
+    private static final int UNKNOWN = -2;
+
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(null, null, null);
+
+    private final SubscriptionStatus status;
+    private final String planId;
+    private final int planCode;
+    private final Instant expiringBefore;
+
+    private SubscriptionFilter(SubscriptionStatus status, String planId, Instant expiringBefore) {
+        this.status = status;
+        this.planId = planId;
+        this.expiringBefore = expiringBefore;
+        if (planId == null) {
+            planCode = ANY;
+        } else {
+            int code = IdDictionary.PLANS.codeIfPresent(planId);
+            planCode = code < 0 ? UNKNOWN : code;
+        }
+    }
+
+    public static SubscriptionFilter byStatus(SubscriptionStatus status) {
+        return ALL.withStatus(status);
+    }
+
+    public static SubscriptionFilter byPlan(String planId) {
+        return ALL.withPlan(planId);
+    }
+
+    /** ACTIVE subscriptions whose expiry is strictly before the cutoff: what an expiry sweep needs. */
+    public static SubscriptionFilter activeExpiringBefore(Instant cutoff) {
+        return new SubscriptionFilter(SubscriptionStatus.ACTIVE, null, Objects.requireNonNull(cutoff, "cutoff"));
+    }
+
+    public SubscriptionFilter withStatus(SubscriptionStatus status) {
+        return new SubscriptionFilter(Objects.requireNonNull(status, "status"), planId, expiringBefore);
+    }
+
+    public SubscriptionFilter withPlan(String planId) {
+        return new SubscriptionFilter(status, Objects.requireNonNull(planId, "planId"), expiringBefore);
+    }
+
+    /** Required status, or null for any. */
+    public SubscriptionStatus status() { return status; }
+
+    /** Required plan, or null for any. */
+    public String planId() { return planId; }
+
+    /** Exclusive expiry cutoff, or null for none. */
+    public Instant expiringBefore() { return expiringBefore; }
+
+    public boolean matches(Subscription s) {
+        return (status == null || s.getStatus() == status)
+                && (planCode == ANY || s.getPlanCode() == planCode)
+                && (expiringBefore == null || s.getExpiresAt().isBefore(expiringBefore));
+    }
+
+    /**
+     * Column form of {@link #matches} for stores that keep whole-millisecond expiries:
+     * e < cutoff holds exactly when e < ceil(cutoff in millis).
+     */
+    boolean matches(int planCode, int statusOrdinal, long expiresMillis) {
+        if (status != null && statusOrdinal != status.ordinal()) return false;
+        if (this.planCode != ANY && planCode != this.planCode) return false;
+        return expiringBefore == null || expiresMillis < expiringBeforeMillis();
+    }
+
+    /** The cutoff rounded up to a whole millisecond; only meaningful when there is a cutoff. */
+    long expiringBeforeMillis() {
+        return expiringBefore.toEpochMilli() + (expiringBefore.getNano() % 1_000_000 == 0 ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionFilter[status=" + status + ", planId=" + planId + ", expiringBefore=" + expiringBefore + "]";
+    }
+}
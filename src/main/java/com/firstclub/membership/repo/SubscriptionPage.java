@@ -0,0 +1,23 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+
+import java.util.List;
+
+/**
+ * One page of a cursor scan. Passing {@code nextToken} back resumes the scan after the
+ * last item, however much later; it is null once the scan has reached the end. A full
+ * page can be followed by an empty last page.
+ */
+public record SubscriptionPage(List<Subscription> items, String nextToken) {
+
+    public boolean hasMore() { return nextToken != null; }
+
+    static void requireLimit(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Page size must be positive: " + limit);
+    }
+
+    static IllegalArgumentException invalidToken(String token) {
+        return new IllegalArgumentException("Invalid page token: " + token);
+    }
+}
@@ -2,23 +2,106 @@ package com.firstclub.membership.repo;
 
 import com.firstclub.membership.model.Subscription;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for subscriptions.
- * Supports CRUD-like operations and user-based lookups.
+ * Supports CRUD-like operations and user-based lookups. Stored subscriptions are
+ * immutable; changes go through {@link #replace}, a compare-and-set on the stored version.
  */
 public interface SubscriptionRepository {
 
+    /** Inserts, or overwrites unconditionally; changes to existing subscriptions should use {@link #replace}. */
     void save(Subscription subscription);
 
+    /**
+     * Stores {@code next} only if {@code expected} is still the stored version of that
+     * subscription. Returns false, storing nothing, if another writer changed or deleted
+     * it first; the caller should re-read, re-validate and retry.
+     */
+    boolean replace(Subscription expected, Subscription next);
+
+    /**
+     * Batch form of {@link #replace}; element i of the result tells whether pair i was
+     * stored. Implementations that can write in bulk should override.
+     */
+    default boolean[] replaceAll(List<Subscription> expected, List<Subscription> next) {
+        boolean[] replaced = new boolean[expected.size()];
+        for (int i = 0; i < replaced.length; i++) replaced[i] = replace(expected.get(i), next.get(i));
+        return replaced;
+    }
+
+    /** Saves a batch; implementations that can write in bulk should override. */
+    default void saveAll(Collection<Subscription> subscriptions) {
+        for (Subscription s : subscriptions) save(s);
+    }
+
     Optional<Subscription> findById(String id);
 
     List<Subscription> findByUserId(String userId);
 
+    /** A copy of every stored subscription; prefer {@link #stream} or {@link #page} for large stores. */
     Collection<Subscription> findAll();
 
+    /**
+     * Every stored subscription, read lazily. Weakly consistent: a subscription stored for
+     * the whole traversal is returned exactly once, in its state at the time it is reached,
+     * and writes made during the traversal may or may not be seen. The spliterator splits,
+     * so {@code parallel()} spreads the scan over cores. The default streams a copy from
+     * {@link #findAll}; implementations should stream the store itself.
+     */
+    default Stream<Subscription> stream() {
+        return findAll().stream();
+    }
+
+    /** {@link #stream} restricted to the filter; stores that can test it before materializing should override. */
+    default Stream<Subscription> stream(SubscriptionFilter filter) {
+        return stream().filter(filter::matches);
+    }
+
+    /**
+     * Up to {@code limit} matching subscriptions, starting after {@code pageToken} (null for
+     * the first page). Tokens are opaque and stay valid across writes, which may or may not
+     * show up in later pages. The default sorts a full scan by id on every call;
+     * implementations should keep a resumable position instead.
+     *
+     * @throws IllegalArgumentException if limit is not positive or the token is not one this store issued
+     */
+    default SubscriptionPage page(SubscriptionFilter filter, String pageToken, int limit) {
+        SubscriptionPage.requireLimit(limit);
+        List<Subscription> items = stream(filter)
+                .filter(s -> pageToken == null || s.getId().compareTo(pageToken) > 0)
+                .sorted(Comparator.comparing(Subscription::getId))
+                .limit(limit)
+                .toList();
+        return new SubscriptionPage(items, items.size() < limit ? null : items.get(limit - 1).getId());
+    }
+
     void delete(String id);
+
+    /** Number of stored subscriptions; the default copies the store, so implementations should override. */
+    default int size() {
+        return findAll().size();
+    }
+
+    /**
+     * ACTIVE subscriptions whose expiry is strictly before the cutoff, collected from
+     * {@link #stream(SubscriptionFilter)}, which indexed implementations answer without a full scan.
+     */
+    default List<Subscription> findActiveExpiringBefore(Instant cutoff) {
+        return stream(SubscriptionFilter.activeExpiringBefore(cutoff)).toList();
+    }
+
+    /**
+     * Subscription counts by plan, tier and status. The default counts a full scan on
+     * every call; implementations should keep live counts and return them.
+     */
+    default SubscriptionCounts counts() {
+        return SubscriptionCounts.of(findAll());
+    }
 }
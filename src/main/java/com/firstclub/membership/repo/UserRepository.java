@@ -2,6 +2,7 @@ package com.firstclub.membership.repo;
 
 import com.firstclub.membership.model.User;
 
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -12,4 +13,10 @@ public interface UserRepository {
     void save(User user);
 
     Optional<User> findById(String id);
+
+    Collection<User> findAll();
+
+    default int size() {
+        return findAll().size();
+    }
 }
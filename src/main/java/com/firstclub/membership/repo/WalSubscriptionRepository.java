@@ -0,0 +1,246 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Durable subscription repository: every save/delete is appended to a
+ * {@link WriteAheadLog} before it is applied to an in-memory store, and the log is
+ * replayed on open to recover state after a restart or crash.
+ *
+ * Each save logs the subscription's full state, so subscribe, tier change, cancel
+ * and expire all become idempotent upserts on replay. Reads are served from the
+ * in-memory store and keep its user and expiry indexes.
+ *
+ * A {@link #replace} is decided by the in-memory compare-and-set first and logged only
+ * if it won, so a lost race never reaches the log. Two writers of one subscription can
+ * therefore log in the opposite order to the one they applied in; records carry the
+ * subscription's version and replay keeps the higher one, which makes order irrelevant.
+ * A replace is visible to readers slightly before its record is durable.
+ *
+ * If an append fails, the write throws and the store becomes read-only until restart:
+ * a replace that was already applied in memory is rolled back to the value it replaced,
+ * and every later write fails fast without touching memory. A failed ASYNC background
+ * flush makes the store read-only the same way, from the next write on. A failed log
+ * stays failed, so retrying would not help. Only writes racing the failure itself can leave an
+ * unlogged value in memory, and each of them has thrown to its caller.
+ *
+ * Writers hold a shared lock across append and apply, so {@link #checkpointLsn()}
+ * can briefly take it exclusively to find an LSN whose records are all in memory.
+ */
+public class WalSubscriptionRepository implements SubscriptionRepository, Closeable {
+    static final byte OP_PUT = 1;
+    static final byte OP_DELETE = 2;
+
+    private final InMemorySubscriptionRepository memory;
+    private final WriteAheadLog log;
+    private final ReadWriteLock applyLock = new ReentrantReadWriteLock();
+    private volatile RuntimeException failure; // first append failure; the store is read-only after it
+
+    public WalSubscriptionRepository(Path logFile, DurabilityMode mode) throws IOException {
+        this(logFile, mode, new InMemorySubscriptionRepository(), 0);
+    }
+
+    /**
+     * Opens the log over an existing store (e.g. one restored from a snapshot) and
+     * replays the records from the given LSN into it.
+     */
+    public WalSubscriptionRepository(Path logFile, DurabilityMode mode, InMemorySubscriptionRepository memory,
+                                     long fromLsn) throws IOException {
+        this.memory = memory;
+        this.log = WriteAheadLog.open(logFile, mode, fromLsn, record -> apply(memory, record));
+    }
+
+    /** Applies one logged record to a store; used by replay. */
+    static void apply(SubscriptionRepository target, ByteBuffer record) {
+        byte op = record.get();
+        switch (op) {
+            case OP_PUT -> saveIfNotOlder(target, SubscriptionCodec.read(record));
+            case OP_DELETE -> target.delete(SubscriptionCodec.readString(record));
+            default -> throw new IllegalStateException("Unknown WAL record type: " + op);
+        }
+    }
+
+    private static void saveIfNotOlder(SubscriptionRepository target, Subscription s) {
+        Optional<Subscription> current = target.findById(s.getId());
+        if (current.isEmpty() || current.get().getVersion() <= s.getVersion()) target.save(s);
+    }
+
+    @Override
+    public void save(Subscription s) {
+        applyLock.readLock().lock();
+        try {
+            checkWritable();
+            logged(() -> log.append(encodePut(s)));
+            memory.save(s);
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Subscription> subscriptions) {
+        List<ByteBuffer> records = new ArrayList<>(subscriptions.size());
+        for (Subscription s : subscriptions) records.add(encodePut(s));
+        applyLock.readLock().lock();
+        try {
+            checkWritable();
+            logged(() -> log.appendAll(records)); // one group commit for the whole batch
+            memory.saveAll(subscriptions);
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(Subscription expected, Subscription next) {
+        ByteBuffer record = encodePut(next);
+        applyLock.readLock().lock();
+        try {
+            checkWritable();
+            if (!memory.replace(expected, next)) return false;
+            try {
+                logged(() -> log.append(record));
+            } catch (RuntimeException e) {
+                memory.replace(next, expected);
+                throw e;
+            }
+            return true;
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] replaceAll(List<Subscription> expected, List<Subscription> next) {
+        applyLock.readLock().lock();
+        try {
+            checkWritable();
+            boolean[] replaced = memory.replaceAll(expected, next);
+            List<ByteBuffer> records = new ArrayList<>(next.size());
+            for (int i = 0; i < replaced.length; i++) {
+                if (replaced[i]) records.add(encodePut(next.get(i)));
+            }
+            try {
+                if (!records.isEmpty()) logged(() -> log.appendAll(records)); // one group commit for the winners
+            } catch (RuntimeException e) {
+                for (int i = replaced.length - 1; i >= 0; i--) {
+                    if (replaced[i]) memory.replace(next.get(i), expected.get(i));
+                }
+                throw e;
+            }
+            return replaced;
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + 3 * id.length());
+        record.put(OP_DELETE);
+        SubscriptionCodec.writeString(id, record);
+        applyLock.readLock().lock();
+        try {
+            checkWritable();
+            logged(() -> log.append(record.flip()));
+            memory.delete(id);
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) { return memory.findById(id); }
+
+    @Override
+    public List<Subscription> findByUserId(String userId) { return memory.findByUserId(userId); }
+
+    @Override
+    public Collection<Subscription> findAll() { return memory.findAll(); }
+
+    @Override
+    public int size() { return memory.size(); }
+
+    @Override
+    public Stream<Subscription> stream() { return memory.stream(); }
+
+    @Override
+    public Stream<Subscription> stream(SubscriptionFilter filter) { return memory.stream(filter); }
+
+    @Override
+    public SubscriptionPage page(SubscriptionFilter filter, String pageToken, int limit) {
+        return memory.page(filter, pageToken, limit);
+    }
+
+    @Override
+    public List<Subscription> findActiveExpiringBefore(Instant cutoff) { return memory.findActiveExpiringBefore(cutoff); }
+
+    @Override
+    public SubscriptionCounts counts() { return memory.counts(); }
+
+    public WriteAheadLog log() { return log; }
+
+    /**
+     * An LSN such that every record before it has been applied to memory and is durable
+     * on disk. A snapshot taken after this call, replayed from this LSN, reproduces the
+     * current state: records after it may already be in the snapshot, but replaying them
+     * is idempotent. In ASYNC mode this waits for the log to be flushed up to the LSN, so
+     * a snapshot never names a position past the end of the file; it throws if the log
+     * has failed, and no snapshot should then be written.
+     */
+    public long checkpointLsn() {
+        long lsn;
+        applyLock.writeLock().lock();
+        try {
+            lsn = log.appendedLsn();
+        } finally {
+            applyLock.writeLock().unlock();
+        }
+        log.awaitDurable(lsn); // outside the lock, so writers are not held up by the fsync
+        return lsn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Throws once an append, or an ASYNC background flush, has failed: nothing may change
+     * in memory that the log would not have.
+     */
+    private void checkWritable() {
+        Exception f = failure != null ? failure : log.failure();
+        if (f != null) throw new ReadOnlyStoreException("Subscription log failed; the store is read-only until restart.", f);
+    }
+
+    /** Runs an append, marking the store read-only if it fails. */
+    private void logged(Runnable append) {
+        try {
+            append.run();
+        } catch (RuntimeException e) {
+            if (failure == null) failure = e;
+            throw e;
+        }
+    }
+
+    private static ByteBuffer encodePut(Subscription s) {
+        ByteBuffer record = ByteBuffer.allocate(1 + SubscriptionCodec.maxSize(s));
+        record.put(OP_PUT);
+        SubscriptionCodec.write(s, record);
+        return record.flip();
+    }
+}
@@ -0,0 +1,290 @@
+package com.firstclub.membership.repo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log file of length-prefixed, checksummed records: [int length][int crc32c][payload].
+ *
+ * Appends are copied into an in-memory pending buffer under a short lock. Flushing
+ * uses leader/follower group commit: the first caller that needs durability swaps
+ * the pending buffer out, writes and fsyncs it without holding the lock, and wakes
+ * everyone whose record made it into that batch. The log sequence number (LSN) of
+ * a record is the file offset just past its end.
+ *
+ * On open, a torn or corrupt tail left by a crash is truncated so appends continue
+ * from the last intact record. The first failed write, including one by the ASYNC
+ * background flusher, is kept in {@link #failure()} and every later append refuses.
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final int HEADER = 8;
+    private static final int INITIAL_BUFFER = 64 * 1024;
+    private static final long ASYNC_FLUSH_MILLIS = 5;
+
+    private final FileChannel channel;
+    private final DurabilityMode mode;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final ScheduledExecutorService asyncFlusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER);
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private volatile IOException failure; // written under the lock; read without it by failure()
+    private boolean closed;
+
+    private WriteAheadLog(FileChannel channel, DurabilityMode mode, long validLength) {
+        this.channel = channel;
+        this.mode = mode;
+        this.appendedLsn = validLength;
+        this.durableLsn = validLength;
+        if (mode == DurabilityMode.ASYNC) {
+            asyncFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-async-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            asyncFlusher.scheduleWithFixedDelay(this::flushInBackground, ASYNC_FLUSH_MILLIS, ASYNC_FLUSH_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            asyncFlusher = null;
+        }
+    }
+
+    /**
+     * Opens (or creates) the log, passing every intact record's payload to the replay
+     * consumer in order before any new append is accepted.
+     */
+    public static WriteAheadLog open(Path file, DurabilityMode mode, Consumer<ByteBuffer> replay) throws IOException {
+        return open(file, mode, 0, replay);
+    }
+
+    /**
+     * Opens the log and replays only the records at or after the given LSN, e.g. the
+     * tail not yet covered by a snapshot.
+     */
+    public static WriteAheadLog open(Path file, DurabilityMode mode, long fromLsn, Consumer<ByteBuffer> replay)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (fromLsn > channel.size()) {
+            channel.close();
+            throw new IOException("Log " + file + " ends at " + channel.size() + ", before requested LSN " + fromLsn);
+        }
+        long valid = replay(channel, fromLsn, replay);
+        if (valid < channel.size()) {
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        channel.position(valid);
+        return new WriteAheadLog(channel, mode, valid);
+    }
+
+    /** Replays records starting at the given offset; returns the offset just past the last intact record. */
+    static long replay(FileChannel channel, long from, Consumer<ByteBuffer> consumer) throws IOException {
+        long size = channel.size();
+        long pos = from;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        CRC32C crc = new CRC32C();
+        while (pos + HEADER <= size) {
+            header.clear();
+            channel.read(header, pos);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || pos + HEADER + length > size) break; // torn tail
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining()) {
+                if (channel.read(payload, pos + HEADER + payload.position()) < 0) break;
+            }
+            payload.flip();
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break; // corrupt tail
+
+            consumer.accept(payload.asReadOnlyBuffer());
+            pos += HEADER + length;
+        }
+        return pos;
+    }
+
+    /** Appends one record and applies the durability mode. Returns the record's LSN. */
+    public long append(ByteBuffer payload) {
+        return appendAll(List.of(payload));
+    }
+
+    /** Appends records as one contiguous batch; durability is awaited once for the whole batch. */
+    public long appendAll(List<ByteBuffer> payloads) {
+        long lsn;
+        lock.lock();
+        try {
+            checkUsable();
+            CRC32C crc = new CRC32C();
+            for (ByteBuffer payload : payloads) {
+                int length = payload.remaining();
+                crc.reset();
+                crc.update(payload.duplicate());
+                ensureCapacity(HEADER + length);
+                pending.putInt(length).putInt((int) crc.getValue()).put(payload.duplicate());
+                appendedLsn += HEADER + length;
+            }
+            lsn = appendedLsn;
+            if (mode == DurabilityMode.PER_WRITE) {
+                // No sharing: this caller writes and fsyncs while holding the lock
+                try {
+                    writeAndForce(pending);
+                } catch (IOException e) {
+                    failure = e;
+                    throw new UncheckedIOException(e);
+                } finally {
+                    pending.clear();
+                }
+                durableLsn = lsn;
+                return lsn;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (mode == DurabilityMode.BATCHED) awaitDurable(lsn);
+        return lsn;
+    }
+
+    /** Blocks until every record up to the LSN is fsynced, leading a group flush if none is running. */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                checkFailure();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                ByteBuffer batch = pending;
+                pending = spare;
+                long target = appendedLsn;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    writeAndForce(batch);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                flushing = false;
+                batch.clear();
+                spare = batch;
+                if (error != null) failure = error;
+                else durableLsn = target;
+                flushed.signalAll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long durableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long appendedLsn() {
+        lock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public DurabilityMode mode() { return mode; }
+
+    /** The write that failed and made the log refuse further appends, or null while it is healthy. */
+    public IOException failure() { return failure; }
+
+    /** Flushes everything appended so far and closes the file. */
+    @Override
+    public void close() throws IOException {
+        if (asyncFlusher != null) {
+            // No shutdownNow: interrupting a thread inside FileChannel.write closes the channel
+            asyncFlusher.shutdown();
+            try {
+                asyncFlusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            awaitDurable(appendedLsn());
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            channel.close();
+        }
+    }
+
+    /** ASYNC flush tick. A failed flush is recorded in {@link #failure} by awaitDurable; nothing more to do here. */
+    private void flushInBackground() {
+        if (failure != null) return;
+        try {
+            awaitDurable(appendedLsn());
+        } catch (UncheckedIOException recorded) {
+            // Kept in failure; appends and the owning store now refuse writes
+        }
+    }
+
+    private void writeAndForce(ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) channel.write(batch);
+        channel.force(false);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (pending.remaining() >= extra) return;
+        int needed = pending.position() + extra;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, needed));
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    private void checkUsable() {
+        if (closed) throw new IllegalStateException("Write-ahead log is closed.");
+        try {
+            checkFailure();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) throw new IOException("Write-ahead log failed earlier; refusing further writes", failure);
+    }
+}
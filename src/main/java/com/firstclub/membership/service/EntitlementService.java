@@ -0,0 +1,70 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.model.BenefitType;
+import com.firstclub.membership.model.Entitlements;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.Tier;
+import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SubscriptionRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Answers checkout questions such as "free delivery on this order?" from a
+ * user -> {@link Entitlements} cache. A hit is one map read plus one array read and
+ * allocates nothing; a miss looks up the user's ACTIVE subscription once.
+ *
+ * Install it as (or ahead of) the service's {@link EventPublisher}: every lifecycle
+ * event drops the user's entry on the publishing thread, before the service call
+ * returns. Misses are filled inside {@code computeIfAbsent}, so an invalidation that
+ * races a fill waits for it and then removes the possibly stale value.
+ */
+public class EntitlementService implements EventPublisher {
+    private final SubscriptionRepository subscriptionRepository;
+    private final PlanRepository planRepository;
+    private final ConcurrentMap<String, Entitlements> byUser = new ConcurrentHashMap<>();
+
+    public EntitlementService(SubscriptionRepository subscriptionRepository, PlanRepository planRepository) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.planRepository = planRepository;
+    }
+
+    /** Effective benefits of the user's ACTIVE subscription; {@link Entitlements#NONE} if there is none. */
+    public Entitlements entitlementsFor(String userId) {
+        Entitlements cached = byUser.get(userId);
+        return cached != null ? cached : byUser.computeIfAbsent(userId, this::load);
+    }
+
+    public boolean has(String userId, BenefitType type) { return entitlementsFor(userId).has(type); }
+
+    public boolean freeDelivery(String userId, int orderValueInINR) {
+        return entitlementsFor(userId).freeDeliveryOn(orderValueInINR);
+    }
+
+    public int discountPercent(String userId) { return entitlementsFor(userId).discountPercent(); }
+
+    public void invalidate(String userId) { byUser.remove(userId); }
+
+    /** Drops every entry, e.g. after plans or tiers were changed. */
+    public void invalidateAll() { byUser.clear(); }
+
+    @Override
+    public void publish(LifecycleEventType type, Subscription subscription, int previousTierCode) {
+        invalidate(subscription.getUserId());
+    }
+
+    private Entitlements load(String userId) {
+        for (Subscription s : subscriptionRepository.findByUserId(userId)) {
+            if (s.getStatus() != SubscriptionStatus.ACTIVE) continue;
+            MembershipPlan plan = planRepository.catalog().find(s.getPlanCode());
+            Tier tier = plan != null ? plan.tier(s.getTierCode()) : null;
+            return tier != null ? tier.getEntitlements() : Entitlements.NONE;
+        }
+        return Entitlements.NONE;
+    }
+}
@@ -1,46 +1,133 @@
 package com.firstclub.membership.service;
 
+import com.firstclub.membership.dto.BulkResult;
+import com.firstclub.membership.dto.CreateSubscriptionRequest;
+import com.firstclub.membership.dto.UpdateSubscriptionRequest;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.metrics.Operation;
+import com.firstclub.membership.metrics.Rejection;
+import com.firstclub.membership.metrics.ServiceMetrics;
 import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
 import com.firstclub.membership.model.Subscription;
 import com.firstclub.membership.model.SubscriptionStatus;
 import com.firstclub.membership.model.User;
 import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SubscriptionCounts;
+import com.firstclub.membership.repo.SubscriptionFilter;
+import com.firstclub.membership.repo.SubscriptionPage;
 import com.firstclub.membership.repo.SubscriptionRepository;
 import com.firstclub.membership.repo.UserRepository;
 import com.firstclub.membership.util.IdGenerator;
+import com.firstclub.membership.util.StripedLocks;
 import com.firstclub.membership.util.TimeUtil;
 
 import java.time.Instant;
 import java.time.Period;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
 /**
- * Core business logic. Uses per-subscription synchronization on mutation.
+ * Core business logic. Subscriptions are immutable and versioned: a change reads the
+ * current version, validates it and swaps in its successor with
+ * {@link SubscriptionRepository#replace}. A writer that loses the race re-reads and
+ * re-validates instead of waiting, so writers on different subscriptions never block
+ * each other and readers never lock. Only subscribe locks: the user's striped lock
+ * makes "no ACTIVE subscription yet, so insert one" atomic without a global lock.
+ * Nothing else makes a subscription ACTIVE, so cancel, expire and tier changes take no lock.
+ * The stripes are ReentrantLocks, so a virtual thread blocked in one never pins a carrier.
+ * Lifecycle changes are reported to an {@link EventPublisher} once stored,
+ * so side effects such as logging run off the request path.
+ * Plan validation reads one immutable {@link PlanCatalog} version per operation.
+ * Every public method is timed, and every refusal counted, through {@link ServiceMetrics}.
  */
 public class MembershipService {
     private final SubscriptionRepository subscriptionRepository;
     private final PlanRepository planRepository;
     private final UserRepository userRepository;
     private final TierEvaluator tierEvaluator;
+    private final StripedLocks userLocks;
+    private final EventPublisher events;
+    private final ServiceMetrics serviceMetrics;
+    private final LongSupplier ids;
 
     public MembershipService(SubscriptionRepository subscriptionRepository,
                              PlanRepository planRepository,
                              UserRepository userRepository,
                              TierEvaluator tierEvaluator) {
+        this(subscriptionRepository, planRepository, userRepository, tierEvaluator,
+                StripedLocks.forAvailableProcessors());
+    }
+
+    public MembershipService(SubscriptionRepository subscriptionRepository,
+                             PlanRepository planRepository,
+                             UserRepository userRepository,
+                             TierEvaluator tierEvaluator,
+                             StripedLocks userLocks) {
+        this(subscriptionRepository, planRepository, userRepository, tierEvaluator, userLocks, EventPublisher.NOOP);
+    }
+
+    public MembershipService(SubscriptionRepository subscriptionRepository,
+                             PlanRepository planRepository,
+                             UserRepository userRepository,
+                             TierEvaluator tierEvaluator,
+                             StripedLocks userLocks,
+                             EventPublisher events) {
+        this(subscriptionRepository, planRepository, userRepository, tierEvaluator, userLocks, events,
+                ServiceMetrics.NOOP);
+    }
+
+    public MembershipService(SubscriptionRepository subscriptionRepository,
+                             PlanRepository planRepository,
+                             UserRepository userRepository,
+                             TierEvaluator tierEvaluator,
+                             StripedLocks userLocks,
+                             EventPublisher events,
+                             ServiceMetrics serviceMetrics) {
+        this(subscriptionRepository, planRepository, userRepository, tierEvaluator, userLocks, events, serviceMetrics,
+                IdGenerator::next);
+    }
+
+    /** As above, with new subscription ids drawn from ids rather than straight from {@link IdGenerator}. */
+    MembershipService(SubscriptionRepository subscriptionRepository,
+                      PlanRepository planRepository,
+                      UserRepository userRepository,
+                      TierEvaluator tierEvaluator,
+                      StripedLocks userLocks,
+                      EventPublisher events,
+                      ServiceMetrics serviceMetrics,
+                      LongSupplier ids) {
         this.subscriptionRepository = subscriptionRepository;
         this.planRepository = planRepository;
         this.userRepository = userRepository;
         this.tierEvaluator = tierEvaluator;
+        this.userLocks = userLocks;
+        this.events = events;
+        this.serviceMetrics = serviceMetrics;
+        this.ids = ids;
     }
 
     public List<MembershipPlan> listPlans() {
-        return List.copyOf(planRepository.findAll());
+        long began = serviceMetrics.start();
+        try {
+            return planRepository.catalog().plans(); // immutable: shared, not copied
+        } finally {
+            serviceMetrics.record(Operation.LIST_PLANS, began);
+        }
     }
 
     public Optional<MembershipPlan> getPlan(String planId) {
-        return planRepository.findById(planId);
+        long began = serviceMetrics.start();
+        try {
+            return Optional.ofNullable(planRepository.catalog().find(planId));
+        } finally {
+            serviceMetrics.record(Operation.GET_PLAN, began);
+        }
     }
 
     /**
@@ -48,44 +135,61 @@ public class MembershipService {
      * Rules:
      * - User must exist
      * - Plan & tier must exist
-     * - Only ONE ACTIVE subscription is allowed per user
+     * - Only ONE ACTIVE subscription is allowed per user (checked and saved under the user's stripe)
      */
     public Subscription subscribe(String userId, String planId, String tierId) {
+        return subscribe(userId, planId, tierId, false);
+    }
 
-        // Validate user exists
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
-
-        // Validate plan exists
-        MembershipPlan plan = planRepository.findById(planId)
-                .orElseThrow(() -> new IllegalArgumentException("Plan not found: " + planId));
-
-        // Validate tier exists in plan (List<Tier>)
-        boolean tierExists = plan.getTiers().stream()
-                .anyMatch(t -> t.getId().equals(tierId));
+    /**
+     * Subscribe user to a plan, optionally flagged for auto-renewal.
+     * Same rules as {@link #subscribe(String, String, String)}.
+     */
+    public Subscription subscribe(String userId, String planId, String tierId, boolean autoRenew) {
+        long began = serviceMetrics.start();
+        try {
+            // Validate user exists
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> rejected(Rejection.USER_NOT_FOUND,
+                            new NotFoundException("User", userId)));
+
+            // Validate plan exists
+            MembershipPlan plan = planRepository.catalog().find(planId);
+            if (plan == null) {
+                throw rejected(Rejection.PLAN_NOT_FOUND, new NotFoundException("Plan", planId));
+            }
 
-        if (!tierExists) {
-            throw new IllegalArgumentException("Tier " + tierId + " not part of plan: " + planId);
-        }
+            // Validate tier exists in plan
+            if (!plan.hasTier(tierId)) {
+                throw rejected(Rejection.INVALID_TIER,
+                        new IllegalArgumentException("Tier " + tierId + " not part of plan: " + planId));
+            }
 
-        // BUSINESS RULE: Only one ACTIVE subscription per user
-        List<Subscription> activeSubs = subscriptionRepository.findByUserId(userId).stream()
-                .filter(s -> s.getStatus() == SubscriptionStatus.ACTIVE)
-                .toList();
+            Subscription s;
+            Lock lock = userLocks.lockFor(userId);
+            lock.lock();
+            try {
+                // BUSINESS RULE: Only one ACTIVE subscription per user
+                if (hasActiveSubscription(userId)) {
+                    throw rejected(Rejection.ALREADY_ACTIVE,
+                            new RuleViolationException("User already has an ACTIVE subscription."));
+                }
 
-        if (!activeSubs.isEmpty()) {
-            throw new IllegalStateException("User already has an ACTIVE subscription.");
+                // Create subscription
+                Instant start = Instant.now();
+                Period duration = plan.getDuration();
+                Instant expiry = TimeUtil.plusPeriod(start, duration);
+                s = new Subscription(ids.getAsLong(), user.getId(), plan.getId(), tierId, start, expiry,
+                        autoRenew);
+                subscriptionRepository.save(s);
+            } finally {
+                lock.unlock();
+            }
+            events.publish(LifecycleEventType.SUBSCRIBED, s);
+            return s;
+        } finally {
+            serviceMetrics.record(Operation.SUBSCRIBE, began);
         }
-
-        // Create subscription
-        Instant start = Instant.now();
-        Period duration = plan.getDuration();
-        Instant expiry = TimeUtil.plusPeriod(start, duration);
-        String id = IdGenerator.nextId("sub");
-
-        Subscription s = new Subscription(id, user.getId(), plan.getId(), tierId, start, expiry);
-        subscriptionRepository.save(s);
-        return s;
     }
 
     /**
@@ -93,51 +197,99 @@ public class MembershipService {
      * Only ACTIVE subscriptions allowed.
      */
     public Subscription upgradeOrDowngrade(String subscriptionId, String newTierId) {
-
-        Subscription s = subscriptionRepository.findById(subscriptionId)
-                .orElseThrow(() -> new IllegalArgumentException("Subscription not found: " + subscriptionId));
-
-        if (s.getStatus() != SubscriptionStatus.ACTIVE) {
-            throw new IllegalStateException("Only ACTIVE subscriptions can change tiers.");
+        long began = serviceMetrics.start();
+        try {
+            PlanCatalog catalog = planRepository.catalog();
+            Change c = changeTier(subscriptionId, newTierId, catalog);
+            if (c.changed()) events.publish(LifecycleEventType.TIER_CHANGED, c.after(), c.before().getTierCode());
+            return c.after();
+        } finally {
+            serviceMetrics.record(Operation.UPGRADE_OR_DOWNGRADE, began);
         }
+    }
 
-        // Validate the new tier exists on the plan
-        MembershipPlan plan = planRepository.findById(s.getPlanId())
-                .orElseThrow(() -> new IllegalStateException("Plan missing for subscription."));
+    /**
+     * Cancel subscription.
+     * Returns the cancelled subscription as stored; one that is already CANCELLED is
+     * returned as it is, without a write or an event.
+     */
+    public Subscription cancelSubscription(String subscriptionId) {
+        long began = serviceMetrics.start();
+        try {
+            Change c = update(subscriptionId, s -> {}, Subscription::cancelled);
+            if (c.changed()) events.publish(LifecycleEventType.CANCELLED, c.after());
+            return c.after();
+        } finally {
+            serviceMetrics.record(Operation.CANCEL, began);
+        }
+    }
 
-        boolean tierExists = plan.getTiers().stream()
-                .anyMatch(t -> t.getId().equals(newTierId));
+    /**
+     * Switch auto-renewal on or off.
+     * Only ACTIVE subscriptions allowed.
+     */
+    public Subscription setAutoRenew(String subscriptionId, boolean enabled) {
+        long began = serviceMetrics.start();
+        try {
+            return update(subscriptionId, s -> requireActive(s, "Only ACTIVE subscriptions can change auto-renewal."),
+                    s -> s.withAutoRenew(enabled)).after();
+        } finally {
+            serviceMetrics.record(Operation.SET_AUTO_RENEW, began);
+        }
+    }
 
-        if (!tierExists) {
-            throw new IllegalArgumentException("Tier " + newTierId + " not part of plan: " + plan.getId());
+    public Optional<Subscription> getSubscription(String subscriptionId) {
+        long began = serviceMetrics.start();
+        try {
+            return subscriptionRepository.findById(subscriptionId);
+        } finally {
+            serviceMetrics.record(Operation.GET_SUBSCRIPTION, began);
         }
+    }
 
-        synchronized (s) {
-            s.changeTier(newTierId);
-            subscriptionRepository.save(s);
-            return s;
+    public List<Subscription> getSubscriptionsForUser(String userId) {
+        long began = serviceMetrics.start();
+        try {
+            return subscriptionRepository.findByUserId(userId);
+        } finally {
+            serviceMetrics.record(Operation.GET_SUBSCRIPTIONS_FOR_USER, began);
         }
     }
 
     /**
-     * Cancel subscription.
+     * One page of the subscriptions matching the filter; pass the page's
+     * {@link SubscriptionPage#nextToken} back for the next one.
      */
-    public void cancelSubscription(String subscriptionId) {
-        Subscription s = subscriptionRepository.findById(subscriptionId)
-                .orElseThrow(() -> new IllegalArgumentException("Subscription not found: " + subscriptionId));
-
-        synchronized (s) {
-            s.cancel();
-            subscriptionRepository.save(s);
+    public SubscriptionPage listSubscriptions(SubscriptionFilter filter, String pageToken, int pageSize) {
+        long began = serviceMetrics.start();
+        try {
+            return subscriptionRepository.page(filter, pageToken, pageSize);
+        } finally {
+            serviceMetrics.record(Operation.LIST_SUBSCRIPTIONS, began);
         }
     }
 
-    public Optional<Subscription> getSubscription(String subscriptionId) {
-        return subscriptionRepository.findById(subscriptionId);
+    /**
+     * Subscriptions on the plan and tier with the status, from the store's live counts;
+     * constant time regardless of how many subscriptions are stored.
+     */
+    public long countSubscriptions(String planId, String tierId, SubscriptionStatus status) {
+        long began = serviceMetrics.start();
+        try {
+            return subscriptionRepository.counts().count(planId, tierId, status);
+        } finally {
+            serviceMetrics.record(Operation.COUNT_SUBSCRIPTIONS, began);
+        }
     }
 
-    public List<Subscription> getSubscriptionsForUser(String userId) {
-        return subscriptionRepository.findByUserId(userId);
+    /** Every non-zero (plan, tier, status) count. */
+    public Map<SubscriptionCounts.Key, Long> subscriptionCounts() {
+        long began = serviceMetrics.start();
+        try {
+            return subscriptionRepository.counts().snapshot();
+        } finally {
+            serviceMetrics.record(Operation.COUNT_SUBSCRIPTIONS, began);
+        }
     }
 
     /**
@@ -145,50 +297,380 @@ public class MembershipService {
      * Only ACTIVE subscriptions allowed.
      */
     public Subscription evaluateAndApplyTier(String subscriptionId, Map<String, Number> metrics) {
+        long began = serviceMetrics.start();
+        try {
+            Subscription s = findForEvaluation(subscriptionId);
+            return applyEvaluatedTier(subscriptionId, tierEvaluator.evaluate(s.getPlanId(), metrics));
+        } finally {
+            serviceMetrics.record(Operation.EVALUATE_AND_APPLY_TIER, began);
+        }
+    }
+
+    /**
+     * Evaluate tier from a primitive metrics vector (no boxing or map lookups).
+     * Only ACTIVE subscriptions allowed.
+     */
+    public Subscription evaluateAndApplyTier(String subscriptionId, MetricsVector metrics) {
+        long began = serviceMetrics.start();
+        try {
+            Subscription s = findForEvaluation(subscriptionId);
+            return applyEvaluatedTier(subscriptionId, tierEvaluator.evaluate(s.getPlanId(), metrics));
+        } finally {
+            serviceMetrics.record(Operation.EVALUATE_AND_APPLY_TIER, began);
+        }
+    }
 
+    private Subscription findForEvaluation(String subscriptionId) {
         Subscription s = subscriptionRepository.findById(subscriptionId)
-                .orElseThrow(() -> new IllegalArgumentException("Subscription not found: " + subscriptionId));
+                .orElseThrow(() -> rejected(Rejection.SUBSCRIPTION_NOT_FOUND,
+                        new NotFoundException("Subscription", subscriptionId)));
 
-        if (s.getStatus() != SubscriptionStatus.ACTIVE) {
-            throw new IllegalStateException("Cannot evaluate tier for non-ACTIVE subscription.");
+        requireActive(s, "Cannot evaluate tier for non-ACTIVE subscription.");
+        return s;
+    }
+
+    private Subscription applyEvaluatedTier(String subscriptionId, String chosenTier) {
+        PlanCatalog catalog = planRepository.catalog();
+        Change c = update(subscriptionId, s -> {
+            requireActive(s, "Cannot evaluate tier for non-ACTIVE subscription.");
+            // Validate chosen tier is part of the plan
+            if (!planOf(s, catalog).hasTier(chosenTier)) {
+                throw rejected(Rejection.INVALID_TIER,
+                        new IllegalStateException("Tier evaluator returned invalid tier: " + chosenTier));
+            }
+        }, s -> s.withTier(chosenTier));
+        if (c.changed()) events.publish(LifecycleEventType.TIER_CHANGED, c.after(), c.before().getTierCode());
+        return c.after();
+    }
+
+    /**
+     * Expire all ACTIVE subscriptions whose expiry time has passed.
+     * Due subscriptions are streamed from the store, which answers the filter from its
+     * expiry index or columns, so the sweep holds no copy of the store. A sweep that
+     * fails part way is still recorded, with the subscriptions it expired before failing.
+     */
+    public void expireDueSubscriptions() {
+        long began = serviceMetrics.start();
+        Instant now = Instant.now();
+        int[] expired = {0};
+        try {
+            subscriptionRepository.stream(SubscriptionFilter.activeExpiringBefore(now))
+                    .forEach(due -> { if (expire(due, now)) expired[0]++; });
+        } finally {
+            serviceMetrics.sweepCompleted(began, expired[0]);
         }
+    }
 
-        String chosenTier = tierEvaluator.evaluate(metrics);
+    private boolean expire(Subscription due, Instant now) {
+        Subscription s = due;
+        while (s != null && s.getStatus() == SubscriptionStatus.ACTIVE && s.getExpiresAt().isBefore(now)) {
+            Subscription next = s.expired();
+            if (subscriptionRepository.replace(s, next)) {
+                events.publish(LifecycleEventType.EXPIRED, next);
+                return true;
+            }
+            // A concurrent cancel, extension or tier change won: re-check its result
+            s = subscriptionRepository.findById(s.getId()).orElse(null);
+        }
+        return false;
+    }
 
-        // Validate chosen tier is part of the plan
-        MembershipPlan plan = planRepository.findById(s.getPlanId())
-                .orElseThrow(() -> new IllegalStateException("Plan missing for subscription."));
+    // ------------------------------------------------------------
+    // Bulk operations
+    // ------------------------------------------------------------
 
-        boolean tierExists = plan.getTiers().stream()
-                .anyMatch(t -> t.getId().equals(chosenTier));
+    /**
+     * Subscribe many users at once. Users are looked up once per batch, plans come
+     * from one pinned catalog version, and expiry is computed once per plan from a single batch start time.
+     * Work is grouped by user stripe: each stripe is locked once, its users are
+     * checked for an ACTIVE subscription once, and its new subscriptions are saved
+     * with one saveAll. Results are returned in request order; a failing item never
+     * aborts the rest of the batch.
+     */
+    public List<BulkResult<Subscription>> subscribeAll(List<CreateSubscriptionRequest> requests) {
+        long began = serviceMetrics.start();
+        try {
+            List<BulkResult<Subscription>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+            PlanCatalog catalog = planRepository.catalog();
+            Map<String, Boolean> users = new HashMap<>();
+            Map<Lock, Map<String, List<Integer>>> byStripe = new IdentityHashMap<>();
+
+            for (int i = 0; i < requests.size(); i++) {
+                CreateSubscriptionRequest req = requests.get(i);
+                try {
+                    if (!users.computeIfAbsent(req.userId(), u -> userRepository.findById(u).isPresent())) {
+                        throw rejected(Rejection.USER_NOT_FOUND,
+                                new NotFoundException("User", req.userId()));
+                    }
+                    MembershipPlan plan = catalog.find(req.planId());
+                    if (plan == null) {
+                        throw rejected(Rejection.PLAN_NOT_FOUND,
+                                new NotFoundException("Plan", req.planId()));
+                    }
+                    if (!plan.hasTier(req.tierId())) {
+                        throw rejected(Rejection.INVALID_TIER,
+                                new IllegalArgumentException("Tier " + req.tierId() + " not part of plan: "
+                                        + req.planId()));
+                    }
+                    byStripe.computeIfAbsent(userLocks.lockFor(req.userId()), l -> new LinkedHashMap<>())
+                            .computeIfAbsent(req.userId(), u -> new ArrayList<>())
+                            .add(i);
+                } catch (RuntimeException e) {
+                    results.set(i, BulkResult.failed(e));
+                }
+            }
 
-        if (!tierExists) {
-            throw new IllegalStateException("Tier evaluator returned invalid tier: " + chosenTier);
+            Instant start = Instant.now();
+            Map<String, Instant> expiryByPlan = new HashMap<>();
+
+            for (Map.Entry<Lock, Map<String, List<Integer>>> stripe : byStripe.entrySet()) {
+                List<Subscription> created = new ArrayList<>();
+                boolean saved;
+                Lock lock = stripe.getKey();
+                lock.lock();
+                try {
+                    List<Integer> createdIdx = new ArrayList<>();
+                    for (Map.Entry<String, List<Integer>> user : stripe.getValue().entrySet()) {
+                        boolean active = hasActiveSubscription(user.getKey());
+                        for (int i : user.getValue()) {
+                            if (active) {
+                                results.set(i, BulkResult.failed(rejected(Rejection.ALREADY_ACTIVE,
+                                        new RuleViolationException("User already has an ACTIVE subscription."))));
+                                continue;
+                            }
+                            CreateSubscriptionRequest req = requests.get(i);
+                            MembershipPlan plan = catalog.find(req.planId());
+                            Instant expiry = expiryByPlan.computeIfAbsent(plan.getId(),
+                                    p -> TimeUtil.plusPeriod(start, plan.getDuration()));
+                            Subscription s = new Subscription(ids.getAsLong(), req.userId(), plan.getId(),
+                                    req.tierId(), start, expiry, req.autoRenew());
+                            created.add(s);
+                            createdIdx.add(i);
+                            active = true;
+                        }
+                    }
+                    saved = saveBatch(created, createdIdx, results);
+                } finally {
+                    lock.unlock();
+                }
+                if (saved) publishAll(LifecycleEventType.SUBSCRIBED, created);
+            }
+            return results;
+        } finally {
+            serviceMetrics.record(Operation.SUBSCRIBE_ALL, began);
         }
+    }
 
-        synchronized (s) {
-            s.changeTier(chosenTier);
-            subscriptionRepository.save(s);
-            return s;
+    /**
+     * Cancel many subscriptions, stored with one replaceAll. Any that changed between
+     * read and write are retried one by one. Results are in request order.
+     */
+    public List<BulkResult<Subscription>> cancelAll(List<String> subscriptionIds) {
+        long began = serviceMetrics.start();
+        try {
+            return cancelEach(subscriptionIds);
+        } finally {
+            serviceMetrics.record(Operation.CANCEL_ALL, began);
+        }
+    }
+
+    private List<BulkResult<Subscription>> cancelEach(List<String> subscriptionIds) {
+        List<BulkResult<Subscription>> results = new ArrayList<>(Collections.nCopies(subscriptionIds.size(), null));
+        List<Subscription> expected = new ArrayList<>();
+        List<Subscription> cancelled = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+
+        for (int i = 0; i < subscriptionIds.size(); i++) {
+            String id = subscriptionIds.get(i);
+            Optional<Subscription> s = subscriptionRepository.findById(id);
+            if (s.isEmpty()) {
+                results.set(i, BulkResult.failed(rejected(Rejection.SUBSCRIPTION_NOT_FOUND,
+                        new NotFoundException("Subscription", id))));
+                continue;
+            }
+            if (s.get().getStatus() == SubscriptionStatus.CANCELLED) {
+                results.set(i, BulkResult.ok(s.get()));
+                continue;
+            }
+            expected.add(s.get());
+            cancelled.add(s.get().cancelled());
+            indices.add(i);
+        }
+        for (Change c : replaceBatch(expected, cancelled, indices, results,
+                s -> update(s.getId(), current -> {}, Subscription::cancelled))) {
+            if (c.changed()) events.publish(LifecycleEventType.CANCELLED, c.after());
         }
+        return results;
     }
 
     /**
-     * Expire all ACTIVE subscriptions whose expiry time has passed.
+     * Change tiers for many subscriptions against one pinned catalog version, with one replaceAll.
+     * A request with a null newTierId cancels the subscription, as documented on
+     * {@link UpdateSubscriptionRequest}. Results are in request order.
      */
-    public void expireDueSubscriptions() {
-        Instant now = Instant.now();
+    public List<BulkResult<Subscription>> changeTierAll(List<UpdateSubscriptionRequest> requests) {
+        long began = serviceMetrics.start();
+        try {
+            List<BulkResult<Subscription>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+            PlanCatalog catalog = planRepository.catalog();
+            List<Subscription> expected = new ArrayList<>();
+            List<Subscription> changed = new ArrayList<>();
+            List<Integer> changedIdx = new ArrayList<>();
+            Map<String, String> tiers = new HashMap<>();
+            List<String> cancelIds = new ArrayList<>();
+            List<Integer> cancelIdx = new ArrayList<>();
+
+            for (int i = 0; i < requests.size(); i++) {
+                UpdateSubscriptionRequest req = requests.get(i);
+                if (req.newTierId() == null) {
+                    cancelIds.add(req.subscriptionId());
+                    cancelIdx.add(i);
+                    continue;
+                }
+                try {
+                    Subscription s = subscriptionRepository.findById(req.subscriptionId())
+                            .orElseThrow(() -> rejected(Rejection.SUBSCRIPTION_NOT_FOUND,
+                                    new NotFoundException("Subscription", req.subscriptionId())));
+                    checkTierChange(s, req.newTierId(), catalog);
+                    Subscription next = s.withTier(req.newTierId());
+                    if (next == s) {
+                        results.set(i, BulkResult.ok(s)); // already on that tier
+                        continue;
+                    }
+                    expected.add(s);
+                    changed.add(next);
+                    changedIdx.add(i);
+                    tiers.put(s.getId(), req.newTierId());
+                } catch (RuntimeException e) {
+                    results.set(i, BulkResult.failed(e));
+                }
+            }
+            for (Change c : replaceBatch(expected, changed, changedIdx, results,
+                    s -> changeTier(s.getId(), tiers.get(s.getId()), catalog))) {
+                if (c.changed()) {
+                    events.publish(LifecycleEventType.TIER_CHANGED, c.after(), c.before().getTierCode());
+                }
+            }
+
+            if (!cancelIds.isEmpty()) {
+                List<BulkResult<Subscription>> cancelled = cancelEach(cancelIds);
+                for (int j = 0; j < cancelIdx.size(); j++) results.set(cancelIdx.get(j), cancelled.get(j));
+            }
+            return results;
+        } finally {
+            serviceMetrics.record(Operation.CHANGE_TIER_ALL, began);
+        }
+    }
 
-        for (Subscription s : subscriptionRepository.findAll()) {
-            if (s.getStatus() == SubscriptionStatus.ACTIVE &&
-                    s.getExpiresAt().isBefore(now)) {
+    // ------------------------------------------------------------
+    // Optimistic updates
+    // ------------------------------------------------------------
 
-                synchronized (s) {
-                    s.expire();
-                    subscriptionRepository.save(s);
-                    System.out.println("Expired subscription: " + s.getId());
-                }
+    /** A stored change; before == after when there was nothing to change. */
+    private record Change(Subscription before, Subscription after) {
+        boolean changed() {
+            return before != after;
+        }
+    }
+
+    /**
+     * Reads the current version, validates it with check (which throws to refuse) and
+     * swaps in change's result; on a lost race, starts over from a fresh read.
+     */
+    private Change update(String subscriptionId, Consumer<Subscription> check, UnaryOperator<Subscription> change) {
+        while (true) {
+            Subscription current = subscriptionRepository.findById(subscriptionId)
+                    .orElseThrow(() -> rejected(Rejection.SUBSCRIPTION_NOT_FOUND,
+                            new NotFoundException("Subscription", subscriptionId)));
+            check.accept(current);
+            Subscription next = change.apply(current);
+            if (next == current || subscriptionRepository.replace(current, next)) return new Change(current, next);
+        }
+    }
+
+    private Change changeTier(String subscriptionId, String newTierId, PlanCatalog catalog) {
+        return update(subscriptionId, s -> checkTierChange(s, newTierId, catalog), s -> s.withTier(newTierId));
+    }
+
+    private void checkTierChange(Subscription s, String newTierId, PlanCatalog catalog) {
+        requireActive(s, "Only ACTIVE subscriptions can change tiers.");
+        // Validate the new tier exists on the plan
+        MembershipPlan plan = planOf(s, catalog);
+        if (!plan.hasTier(newTierId)) {
+            throw rejected(Rejection.INVALID_TIER,
+                    new IllegalArgumentException("Tier " + newTierId + " not part of plan: " + plan.getId()));
+        }
+    }
+
+    private void requireActive(Subscription s, String message) {
+        if (s.getStatus() != SubscriptionStatus.ACTIVE) {
+            throw rejected(Rejection.NOT_ACTIVE, new RuleViolationException(message));
+        }
+    }
+
+    private static MembershipPlan planOf(Subscription s, PlanCatalog catalog) {
+        MembershipPlan plan = catalog.find(s.getPlanCode());
+        if (plan == null) throw new IllegalStateException("Plan missing for subscription.");
+        return plan;
+    }
+
+    /**
+     * Stores a batch of changes with one replaceAll and records per-item results. Items
+     * that lost a race are retried one at a time through retry, which re-reads and
+     * re-validates. Returns the changes that were stored.
+     */
+    private List<Change> replaceBatch(List<Subscription> expected, List<Subscription> next, List<Integer> indices,
+                                      List<BulkResult<Subscription>> results, Function<Subscription, Change> retry) {
+        List<Change> stored = new ArrayList<>();
+        if (expected.isEmpty()) return stored;
+        boolean[] replaced;
+        try {
+            replaced = subscriptionRepository.replaceAll(expected, next);
+        } catch (RuntimeException e) {
+            for (int i : indices) results.set(i, BulkResult.failed(e));
+            return stored;
+        }
+        for (int j = 0; j < replaced.length; j++) {
+            Change c;
+            try {
+                c = replaced[j] ? new Change(expected.get(j), next.get(j)) : retry.apply(expected.get(j));
+            } catch (RuntimeException e) {
+                results.set(indices.get(j), BulkResult.failed(e));
+                continue;
             }
+            results.set(indices.get(j), BulkResult.ok(c.after()));
+            stored.add(c);
+        }
+        return stored;
+    }
+
+    private boolean hasActiveSubscription(String userId) {
+        for (Subscription s : subscriptionRepository.findByUserId(userId)) {
+            if (s.getStatus() == SubscriptionStatus.ACTIVE) return true;
+        }
+        return false;
+    }
+
+    /** Saves the batch and records per-item results; returns whether anything was saved. */
+    private boolean saveBatch(List<Subscription> batch, List<Integer> indices, List<BulkResult<Subscription>> results) {
+        if (batch.isEmpty()) return false;
+        try {
+            subscriptionRepository.saveAll(batch);
+            for (int j = 0; j < batch.size(); j++) results.set(indices.get(j), BulkResult.ok(batch.get(j)));
+            return true;
+        } catch (RuntimeException e) {
+            for (int i : indices) results.set(i, BulkResult.failed(e));
+            return false;
         }
     }
+
+    /** Counts the refusal and returns the exception to throw or report. */
+    private RuntimeException rejected(Rejection reason, RuntimeException e) {
+        serviceMetrics.reject(reason);
+        return e;
+    }
+
+    private void publishAll(LifecycleEventType type, List<Subscription> subscriptions) {
+        for (Subscription s : subscriptions) events.publish(type, s);
+    }
 }
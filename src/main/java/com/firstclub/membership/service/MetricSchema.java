@@ -0,0 +1,49 @@
+package com.firstclub.membership.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of named metric slots for {@link MetricsVector}.
+ * Each slot has a fixed kind (integral or fractional) and a fixed index in that
+ * kind's backing array, so evaluators resolve names once and then read by index.
+ */
+public final class MetricSchema {
+
+    public enum Kind { LONG, DOUBLE }
+
+    /** A registered metric: its name, kind and index within the kind's array. */
+    public record Slot(String name, Kind kind, int index) {}
+
+    private static final Map<String, Slot> SLOTS = new ConcurrentHashMap<>();
+    private static int longCount;
+    private static int doubleCount;
+
+    public static final Slot ORDERS_COUNT = register("ordersCount", Kind.LONG);
+    public static final Slot ORDER_VALUE = register("orderValue", Kind.DOUBLE);
+
+    private MetricSchema() {}
+
+    /** Registers a metric, or returns the existing slot if the name is taken with the same kind. */
+    public static synchronized Slot register(String name, Kind kind) {
+        Slot existing = SLOTS.get(name);
+        if (existing != null) {
+            if (existing.kind() != kind) {
+                throw new IllegalArgumentException("Metric " + name + " already registered as " + existing.kind());
+            }
+            return existing;
+        }
+        Slot slot = new Slot(name, kind, kind == Kind.LONG ? longCount++ : doubleCount++);
+        SLOTS.put(name, slot);
+        return slot;
+    }
+
+    /** Slot for a name, or null if it was never registered. */
+    public static Slot slot(String name) { return SLOTS.get(name); }
+
+    public static Iterable<Slot> slots() { return SLOTS.values(); }
+
+    static synchronized int longCount() { return longCount; }
+
+    static synchronized int doubleCount() { return doubleCount; }
+}
@@ -0,0 +1,107 @@
+package com.firstclub.membership.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Primitive metrics container backed by long/double arrays indexed by {@link MetricSchema} slots.
+ * Reads and writes never box or allocate; instances can be cleared and reused per evaluation.
+ * A slot registered after construction (say, by a rules reload that adds a metric) reads
+ * as zero, like any slot never set, and the first write to it grows the vector, so pooled
+ * vectors keep working across reloads.
+ */
+public final class MetricsVector {
+    private long[] longs;
+    private double[] doubles;
+
+    public MetricsVector() {
+        this.longs = new long[MetricSchema.longCount()];
+        this.doubles = new double[MetricSchema.doubleCount()];
+    }
+
+    public static MetricsVector of(long ordersCount, double orderValue) {
+        return new MetricsVector()
+                .set(MetricSchema.ORDERS_COUNT, ordersCount)
+                .set(MetricSchema.ORDER_VALUE, orderValue);
+    }
+
+    /** Adapter for the map-based API; names that were never registered are ignored. */
+    public static MetricsVector fromMap(Map<String, Number> metrics) {
+        return new MetricsVector().putAll(metrics);
+    }
+
+    /** Copies registered metrics from a map into this vector; other slots are left untouched. */
+    public MetricsVector putAll(Map<String, Number> metrics) {
+        for (Map.Entry<String, Number> e : metrics.entrySet()) {
+            MetricSchema.Slot slot = MetricSchema.slot(e.getKey());
+            Number n = e.getValue();
+            if (slot == null || n == null) continue;
+            if (slot.kind() == MetricSchema.Kind.LONG) set(slot, n.longValue());
+            else set(slot, n.doubleValue());
+        }
+        return this;
+    }
+
+    public MetricsVector set(MetricSchema.Slot slot, long value) {
+        if (slot.kind() == MetricSchema.Kind.LONG) {
+            if (slot.index() >= longs.length) growLongs(slot.index());
+            longs[slot.index()] = value;
+        } else {
+            if (slot.index() >= doubles.length) growDoubles(slot.index());
+            doubles[slot.index()] = value;
+        }
+        return this;
+    }
+
+    public MetricsVector set(MetricSchema.Slot slot, double value) {
+        if (slot.kind() == MetricSchema.Kind.DOUBLE) {
+            if (slot.index() >= doubles.length) growDoubles(slot.index());
+            doubles[slot.index()] = value;
+        } else {
+            if (slot.index() >= longs.length) growLongs(slot.index());
+            longs[slot.index()] = (long) value;
+        }
+        return this;
+    }
+
+    public long getLong(MetricSchema.Slot slot) {
+        return slot.kind() == MetricSchema.Kind.LONG ? readLong(slot.index()) : (long) readDouble(slot.index());
+    }
+
+    /** Value of any slot widened to double; the form evaluators compare against thresholds. */
+    public double get(MetricSchema.Slot slot) {
+        return slot.kind() == MetricSchema.Kind.LONG ? readLong(slot.index()) : readDouble(slot.index());
+    }
+
+    public void clear() {
+        Arrays.fill(longs, 0L);
+        Arrays.fill(doubles, 0.0);
+    }
+
+    /** Map view for evaluators that only implement the map-based signature. */
+    public Map<String, Number> toMap() {
+        Map<String, Number> m = new HashMap<>();
+        for (MetricSchema.Slot slot : MetricSchema.slots()) {
+            if (slot.kind() == MetricSchema.Kind.LONG) {
+                if (slot.index() < longs.length) m.put(slot.name(), longs[slot.index()]);
+            } else if (slot.index() < doubles.length) {
+                m.put(slot.name(), doubles[slot.index()]);
+            }
+        }
+        return m;
+    }
+
+    /** Grows to the schema's current size, which covers every slot registered so far. */
+    private void growLongs(int index) {
+        longs = Arrays.copyOf(longs, Math.max(index + 1, MetricSchema.longCount()));
+    }
+
+    private void growDoubles(int index) {
+        doubles = Arrays.copyOf(doubles, Math.max(index + 1, MetricSchema.doubleCount()));
+    }
+
+    private long readLong(int index) { return index < longs.length ? longs[index] : 0L; }
+
+    private double readDouble(int index) { return index < doubles.length ? doubles[index] : 0.0; }
+}
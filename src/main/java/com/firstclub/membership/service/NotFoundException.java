@@ -0,0 +1,14 @@
+package com.firstclub.membership.service;
+
+/**
+ * A user, plan or subscription that does not exist. Still an IllegalArgumentException,
+ * as callers have always caught, but typed so front ends can tell "no such thing"
+ * from other invalid input without reading the message.
+ */
+public final class NotFoundException extends IllegalArgumentException {
+
+    /** Message of the form "Subscription not found: sub-42". */
+    public NotFoundException(String what, String id) {
+        super(what + " not found: " + id);
+    }
+}
@@ -0,0 +1,386 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.metrics.ServiceMetrics;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SubscriptionCounts;
+import com.firstclub.membership.repo.SubscriptionFilter;
+import com.firstclub.membership.repo.UserRepository;
+import com.firstclub.membership.util.IdGenerator;
+import com.firstclub.membership.util.StripedLocks;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Partitioned execution mode: users are hashed to a fixed number of shards, and each
+ * shard owns the subscriptions of its users in a store of its own. Every mutation of a
+ * shard runs on that shard's single writer thread, taken from a bounded command queue,
+ * so writers never contend on a shared map, stripe or version and a shard's working
+ * set stays in one core's cache. Callers get a {@link CompletableFuture} that completes
+ * on the writer thread; a full queue blocks the caller until there is room, which
+ * pushes back on producers instead of buffering without bound.
+ *
+ * A subscription id names its shard: each shard's writer only issues generated ids
+ * that are congruent to its index modulo the shard count, so routing a command needs
+ * no shared table. Subscriptions loaded with other ids (restored from a snapshot, or
+ * text ids) are found by looking the id up in each shard's store. Reads need no
+ * ordering with the writer: stores hold immutable values, so getSubscription,
+ * getSubscriptionsForUser and the cross-shard findAll read them directly from the
+ * calling thread. Plans are shared.
+ *
+ * Each shard runs an ordinary {@link MembershipService}, so rules, messages and events
+ * are the same as in the shared mode; its one-ACTIVE check still takes a user stripe,
+ * which on a single writer is never contended. Each shard also records into its own
+ * {@link ServiceMetrics}, so writers never share a counter; readers sum them with the
+ * static sums on {@link com.firstclub.membership.metrics.MembershipMetrics}.
+ */
+public class PartitionedMembershipService implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int DRAIN_BATCH = 64;
+
+    private final Shard[] shards;
+    private final List<ServiceMetrics> shardMetrics;
+    private volatile boolean closed;
+
+    public PartitionedMembershipService(int shardCount,
+                                        PlanRepository planRepository,
+                                        UserRepository userRepository,
+                                        TierEvaluator tierEvaluator) {
+        this(shardCount, DEFAULT_QUEUE_CAPACITY, planRepository, userRepository, tierEvaluator,
+                EventPublisher.NOOP, () -> ServiceMetrics.NOOP);
+    }
+
+    public PartitionedMembershipService(int shardCount,
+                                        int queueCapacity,
+                                        PlanRepository planRepository,
+                                        UserRepository userRepository,
+                                        TierEvaluator tierEvaluator,
+                                        EventPublisher events,
+                                        Supplier<? extends ServiceMetrics> metricsPerShard) {
+        if (shardCount <= 0) throw new IllegalArgumentException("shards must be positive: " + shardCount);
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queue capacity must be positive: " + queueCapacity);
+        this.shards = new Shard[shardCount];
+        List<ServiceMetrics> metrics = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int index = i;
+            ServiceMetrics shardMetrics = metricsPerShard.get();
+            InMemorySubscriptionRepository store = new InMemorySubscriptionRepository();
+            MembershipService service = new MembershipService(store, planRepository, userRepository, tierEvaluator,
+                    new StripedLocks(1), events, shardMetrics, () -> nextIdFor(index));
+            shards[i] = new Shard(i, store, service, queueCapacity);
+            metrics.add(shardMetrics);
+        }
+        this.shardMetrics = List.copyOf(metrics);
+        for (Shard shard : shards) shard.thread.start();
+    }
+
+    public int shardCount() { return shards.length; }
+
+    /** The metrics each shard records into, in shard order. */
+    public List<ServiceMetrics> shardMetrics() { return shardMetrics; }
+
+    // ------------------------------------------------------------
+    // Reads: served from the calling thread
+    // ------------------------------------------------------------
+
+    public List<MembershipPlan> listPlans() {
+        return shards[0].service.listPlans(); // plans are shared by every shard
+    }
+
+    public Optional<MembershipPlan> getPlan(String planId) {
+        return shards[0].service.getPlan(planId);
+    }
+
+    public Optional<Subscription> getSubscription(String subscriptionId) {
+        return shardOf(subscriptionId).service.getSubscription(subscriptionId);
+    }
+
+    public List<Subscription> getSubscriptionsForUser(String userId) {
+        return shardFor(userId).service.getSubscriptionsForUser(userId);
+    }
+
+    /** Every subscription across all shards; each shard's part is read without stopping its writer. */
+    public List<Subscription> findAll() {
+        List<Subscription> all = new ArrayList<>(size());
+        for (Shard shard : shards) all.addAll(shard.store.findAll());
+        return all;
+    }
+
+    /** Matching subscriptions across all shards, streamed from each shard's store in turn. */
+    public Stream<Subscription> stream(SubscriptionFilter filter) {
+        return Arrays.stream(shards).flatMap(shard -> shard.store.stream(filter));
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) size += shard.store.size();
+        return size;
+    }
+
+    /** Sum of the shards' live counts. */
+    public long countSubscriptions(String planId, String tierId, SubscriptionStatus status) {
+        long count = 0;
+        for (Shard shard : shards) count += shard.service.countSubscriptions(planId, tierId, status);
+        return count;
+    }
+
+    public Map<SubscriptionCounts.Key, Long> subscriptionCounts() {
+        Map<SubscriptionCounts.Key, Long> counts = new TreeMap<>();
+        for (Shard shard : shards) shard.service.subscriptionCounts().forEach((k, n) -> counts.merge(k, n, Long::sum));
+        return counts;
+    }
+
+    // ------------------------------------------------------------
+    // Writes: run on the owning shard's writer
+    // ------------------------------------------------------------
+
+    /** See {@link MembershipService#subscribe}. */
+    public CompletableFuture<Subscription> subscribe(String userId, String planId, String tierId) {
+        Shard shard = shardFor(userId);
+        return submit(shard, () -> shard.service.subscribe(userId, planId, tierId));
+    }
+
+    /** See {@link MembershipService#upgradeOrDowngrade}. */
+    public CompletableFuture<Subscription> upgradeOrDowngrade(String subscriptionId, String newTierId) {
+        Shard shard = shardOf(subscriptionId);
+        return submit(shard, () -> shard.service.upgradeOrDowngrade(subscriptionId, newTierId));
+    }
+
+    /** See {@link MembershipService#cancelSubscription}. */
+    public CompletableFuture<Subscription> cancelSubscription(String subscriptionId) {
+        Shard shard = shardOf(subscriptionId);
+        return submit(shard, () -> shard.service.cancelSubscription(subscriptionId));
+    }
+
+    /** See {@link MembershipService#evaluateAndApplyTier(String, Map)}. */
+    public CompletableFuture<Subscription> evaluateAndApplyTier(String subscriptionId, Map<String, Number> metrics) {
+        Shard shard = shardOf(subscriptionId);
+        return submit(shard, () -> shard.service.evaluateAndApplyTier(subscriptionId, metrics));
+    }
+
+    /** See {@link MembershipService#evaluateAndApplyTier(String, MetricsVector)}. */
+    public CompletableFuture<Subscription> evaluateAndApplyTier(String subscriptionId, MetricsVector metrics) {
+        Shard shard = shardOf(subscriptionId);
+        return submit(shard, () -> shard.service.evaluateAndApplyTier(subscriptionId, metrics));
+    }
+
+    /** Sweeps every shard on its own writer; completes when all have finished. */
+    public CompletableFuture<Void> expireDueSubscriptions() {
+        CompletableFuture<?>[] sweeps = new CompletableFuture<?>[shards.length];
+        for (Shard shard : shards) {
+            sweeps[shard.index] = submit(shard, () -> {
+                shard.service.expireDueSubscriptions();
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(sweeps);
+    }
+
+    /**
+     * Stores existing subscriptions (e.g. restored from a snapshot) in the shards of
+     * their users, as one saveAll per shard. No rules are checked.
+     */
+    public CompletableFuture<Void> saveAll(Collection<Subscription> subscriptions) {
+        List<List<Subscription>> byShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) byShard.add(new ArrayList<>());
+        for (Subscription s : subscriptions) byShard.get(shardFor(s.getUserId()).index).add(s);
+
+        List<CompletableFuture<Void>> saves = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            List<Subscription> batch = byShard.get(shard.index);
+            if (batch.isEmpty()) continue;
+            saves.add(submit(shard, () -> {
+                shard.store.saveAll(batch);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Stops accepting commands, lets each writer finish what is already queued and
+     * waits for it to exit. Commands submitted afterwards fail with IllegalStateException.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        for (Shard shard : shards) shard.stop();
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Routing and the writer loop
+    // ------------------------------------------------------------
+
+    private Shard shardFor(String userId) {
+        int h = userId.hashCode();
+        h ^= (h >>> 16); // spread high bits, as StripedLocks does
+        return shards[Math.floorMod(h, shards.length)];
+    }
+
+    /**
+     * The shard holding the subscription: the one its generated id names, else whichever
+     * store has it. An id no shard holds goes to the named shard (shard 0 for text ids),
+     * whose service then reports it not found.
+     */
+    private Shard shardOf(String subscriptionId) {
+        long n = Subscription.numericIdOf(subscriptionId);
+        Shard named = n < 0 ? shards[0] : shards[(int) (n % shards.length)];
+        if (named.store.findById(subscriptionId).isPresent()) return named;
+        for (Shard shard : shards) {
+            if (shard != named && shard.store.findById(subscriptionId).isPresent()) return shard;
+        }
+        return named;
+    }
+
+    /**
+     * Next generated id that names this shard. A thread's ids are consecutive within
+     * each claimed block, so one turns up within about shardCount draws; the skipped
+     * ids are never issued by anyone.
+     */
+    private long nextIdFor(int shard) {
+        long id;
+        do {
+            id = IdGenerator.next();
+        } while (id % shards.length != shard);
+        return id;
+    }
+
+    private <T> CompletableFuture<T> submit(Shard shard, Supplier<T> work) {
+        Command<T> command = new Command<>(work);
+        if (Thread.currentThread() == shard.thread) {
+            // Called from a continuation on this writer: queueing would wait on ourselves
+            command.run();
+            return command.future;
+        }
+        try {
+            while (!shard.queue.offer(command, 10, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    command.fail(new IllegalStateException("Service is closed."));
+                    return command.future;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.fail(e);
+            return command.future;
+        }
+        if (shard.stopped) shard.failPending(); // queued after the writer's last drain
+        return command.future;
+    }
+
+    /** One queued mutation and the future its caller holds. */
+    private static final class Command<T> implements Runnable {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Command(Supplier<T> work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(work.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Shard implements Runnable {
+        private static final Command<Void> STOP = new Command<>(() -> null);
+
+        final int index;
+        final InMemorySubscriptionRepository store;
+        final MembershipService service;
+        final BlockingQueue<Command<?>> queue;
+        final Thread thread;
+        volatile boolean stopped;
+
+        Shard(int index, InMemorySubscriptionRepository store, MembershipService service, int queueCapacity) {
+            this.index = index;
+            this.store = store;
+            this.service = service;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "membership-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(DRAIN_BATCH);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, DRAIN_BATCH - 1); // one queue lock for a burst of commands
+                    for (Command<?> command : batch) {
+                        if (command == STOP) return;
+                        command.run();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+                for (Command<?> command : batch) {
+                    if (command != STOP && !command.future.isDone()) {
+                        command.fail(new IllegalStateException("Service is closed."));
+                    }
+                }
+                failPending();
+            }
+        }
+
+        void stop() {
+            // Wait for room rather than drop the stop; the writer keeps draining meanwhile
+            while (thread.isAlive()) {
+                try {
+                    if (queue.offer(STOP, 10, TimeUnit.MILLISECONDS)) return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    thread.interrupt();
+                    return;
+                }
+            }
+        }
+
+        void failPending() {
+            List<Command<?>> left = new ArrayList<>();
+            queue.drainTo(left);
+            for (Command<?> command : left) {
+                if (command != STOP) command.fail(new IllegalStateException("Service is closed."));
+            }
+        }
+    }
+}
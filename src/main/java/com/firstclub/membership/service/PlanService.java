@@ -1,6 +1,7 @@
 package com.firstclub.membership.service;
 
 import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
 import com.firstclub.membership.repo.PlanRepository;
 
 import java.util.Collection;
@@ -11,9 +12,12 @@ public class PlanService {
 
     public PlanService(PlanRepository planRepository) { this.planRepository = planRepository; }
 
+    /** Publishes a new catalog version containing the plan. */
     public void createPlan(MembershipPlan plan) { planRepository.save(plan); }
 
-    public Collection<MembershipPlan> listPlans() { return planRepository.findAll(); }
+    public Collection<MembershipPlan> listPlans() { return planRepository.catalog().plans(); }
 
-    public Optional<MembershipPlan> getPlan(String id) { return planRepository.findById(id); }
+    public Optional<MembershipPlan> getPlan(String id) { return Optional.ofNullable(planRepository.catalog().find(id)); }
+
+    public PlanCatalog catalog() { return planRepository.catalog(); }
 }
@@ -0,0 +1,359 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SubscriptionRepository;
+import com.firstclub.membership.util.TimeUtil;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Auto-renewal for ACTIVE subscriptions flagged for it. Each pass asks the repository's
+ * expiry index for those expiring within the lead time and extends each by its plan's
+ * period, counted from its current expiry so renewals never drift. Due subscriptions are
+ * renewed in batches, each charged and then stored with one replaceAll, on a worker
+ * pool; a semaphore caps the batches in flight, so when a whole monthly cohort falls due
+ * at once the pass waits for room instead of queueing the cohort in memory.
+ *
+ * A renewal that fails (the charge is refused or the store throws) is retried after an
+ * exponential, jittered backoff, up to the policy's attempts; after that it is left to
+ * expire. One that loses a race to a concurrent change is retried at once against the
+ * current version. Subscriptions queued or waiting for a retry are skipped by later passes;
+ * a batch that fails unexpectedly releases the ones it had not settled, for the next pass.
+ *
+ * Every charge ends in a stored renewal or a refund: a charged renewal that a concurrent
+ * cancel, expiry or switch-off makes unnecessary is refunded, and so is a batch whose
+ * store write fails, which is charged afresh when retried.
+ */
+public class RenewalEngine implements Closeable {
+
+    /**
+     * Takes payment for one renewal; throws to refuse it. A charge that does not end in a
+     * stored renewal is refunded; refunds should not throw. A refused renewal is charged
+     * again on retry, so a charge must be idempotent per subscription id and expiry.
+     */
+    @FunctionalInterface
+    public interface Charger {
+        Charger NONE = (subscription, plan) -> {};
+
+        void charge(Subscription subscription, MembershipPlan plan);
+
+        /** Voids a charge taken for this subscription and expiry; the default takes nothing back. */
+        default void refund(Subscription subscription, MembershipPlan plan) {}
+    }
+
+    /** How far ahead to renew, how to batch, and how to retry. */
+    public record Policy(Duration leadTime, int batchSize, int maxInFlight, int maxAttempts,
+                         Duration initialBackoff, Duration maxBackoff) {
+        public Policy {
+            if (leadTime.isNegative()) throw new IllegalArgumentException("leadTime must not be negative: " + leadTime);
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+            if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+            if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+
+        public static Policy defaults() {
+            return new Policy(Duration.ofHours(1), 1024, 2 * Runtime.getRuntime().availableProcessors(), 5,
+                    Duration.ofSeconds(1), Duration.ofMinutes(5));
+        }
+    }
+
+    /** Outcome of one pass; retries it scheduled finish later and count only toward the totals. */
+    public record Report(long due, long renewed, long retrying, long failed, Duration elapsed) {
+        public double throughputPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? 0.0 : renewed * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("due=%d renewed=%d retrying=%d failed=%d elapsed=%dms throughput=%.0f/s",
+                    due, renewed, retrying, failed, elapsed.toMillis(), throughputPerSecond());
+        }
+    }
+
+    /** Counts for one pass. */
+    private static final class Tally {
+        final LongAdder renewed = new LongAdder();
+        final LongAdder retrying = new LongAdder();
+        final LongAdder failed = new LongAdder();
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final PlanRepository planRepository;
+    private final Charger charger;
+    private final EventPublisher events;
+    private final Policy policy;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retries;
+    private final Semaphore inFlight;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet(); // queued, running or awaiting a retry
+    private final Map<String, Instant> exhausted = new ConcurrentHashMap<>(); // gave up on renewing this expiry
+    private final LongAdder renewedTotal = new LongAdder();
+    private final LongAdder failedTotal = new LongAdder();
+
+    public RenewalEngine(SubscriptionRepository subscriptionRepository,
+                         PlanRepository planRepository,
+                         Charger charger,
+                         EventPublisher events,
+                         Policy policy) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.planRepository = planRepository;
+        this.charger = charger;
+        this.events = events;
+        this.policy = policy;
+        this.inFlight = new Semaphore(policy.maxInFlight());
+        this.workers = Executors.newFixedThreadPool(
+                Math.min(policy.maxInFlight(), Runtime.getRuntime().availableProcessors()), daemon("renewal-worker"));
+        this.retries = Executors.newSingleThreadScheduledExecutor(daemon("renewal-retry"));
+    }
+
+    public RenewalEngine(SubscriptionRepository subscriptionRepository, PlanRepository planRepository) {
+        this(subscriptionRepository, planRepository, Charger.NONE, EventPublisher.NOOP, Policy.defaults());
+    }
+
+    /** Renews every flagged ACTIVE subscription now within the lead time; returns once each has had its first attempt. */
+    public Report renewDue() {
+        long begin = System.nanoTime();
+        Instant cutoff = Instant.now().plus(policy.leadTime());
+        List<Subscription> due = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Subscription s : subscriptionRepository.findActiveExpiringBefore(cutoff)) {
+            if (!s.isAutoRenew()) continue;
+            seen.add(s.getId());
+            if (s.getExpiresAt().equals(exhausted.get(s.getId())) || !pending.add(s.getId())) continue;
+            due.add(s);
+        }
+        exhausted.keySet().retainAll(seen); // expired, renewed elsewhere or switched off since
+
+        Tally tally = new Tally();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < due.size(); from += policy.batchSize()) {
+            batches.add(submit(due.subList(from, Math.min(due.size(), from + policy.batchSize())), 1, tally));
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        return new Report(due.size(), tally.renewed.sum(), tally.retrying.sum(), tally.failed.sum(),
+                Duration.ofNanos(System.nanoTime() - begin));
+    }
+
+    public long renewedTotal() { return renewedTotal.sum(); }
+
+    /** Renewals given up on after the last attempt, or because their plan no longer exists. */
+    public long failedTotal() { return failedTotal.sum(); }
+
+    /** Subscriptions queued, being renewed or waiting for a retry. */
+    public int pendingCount() { return pending.size(); }
+
+    /** Stops the workers after the batches in flight; scheduled retries are dropped and picked up by a later pass. */
+    @Override
+    public void close() {
+        retries.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Batches and retries
+    // ------------------------------------------------------------
+
+    /** Waits for an in-flight slot, then renews the batch on a worker; tally is null for retries. */
+    private CompletableFuture<Void> submit(List<Subscription> batch, int attempt, Tally tally) {
+        inFlight.acquireUninterruptibly();
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    renewBatch(batch, attempt, tally);
+                } finally {
+                    inFlight.release();
+                }
+            }, workers);
+        } catch (RejectedExecutionException closed) {
+            inFlight.release();
+            for (Subscription s : batch) pending.remove(s.getId());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Renews the batch. Each id leaves {@link #pending} once settled (renewed, refunded or
+     * given up on) or stays in it while a retry owns it; whatever an unexpected exception
+     * leaves neither is released in the finally, so a later pass can pick it up again.
+     */
+    private void renewBatch(List<Subscription> batch, int attempt, Tally tally) {
+        Set<String> unsettled = new HashSet<>();
+        for (Subscription s : batch) unsettled.add(s.getId());
+        try {
+            renewBatch(batch, attempt, tally, unsettled);
+        } finally {
+            pending.removeAll(unsettled);
+        }
+    }
+
+    private void renewBatch(List<Subscription> batch, int attempt, Tally tally, Set<String> unsettled) {
+        PlanCatalog catalog = planRepository.catalog();
+        List<Subscription> expected = new ArrayList<>(batch.size());
+        List<Subscription> renewed = new ArrayList<>(batch.size());
+        List<MembershipPlan> plans = new ArrayList<>(batch.size());
+        List<Subscription> failed = new ArrayList<>();
+        for (Subscription s : batch) {
+            MembershipPlan plan = catalog.find(s.getPlanCode());
+            if (plan == null) {
+                giveUp(s, tally); // nothing a retry could fix
+                unsettled.remove(s.getId());
+                continue;
+            }
+            try {
+                charger.charge(s, plan);
+            } catch (RuntimeException e) {
+                failed.add(s);
+                continue;
+            }
+            expected.add(s);
+            plans.add(plan);
+            renewed.add(s.withExpiry(TimeUtil.plusPeriod(s.getExpiresAt(), plan.getDuration())));
+        }
+
+        if (!expected.isEmpty()) {
+            boolean[] replaced = null;
+            try {
+                replaced = subscriptionRepository.replaceAll(expected, renewed);
+            } catch (RuntimeException e) {
+                for (int j = 0; j < expected.size(); j++) charger.refund(expected.get(j), plans.get(j));
+                failed.addAll(expected);
+            }
+            for (int j = 0; replaced != null && j < replaced.length; j++) {
+                Subscription charged = expected.get(j);
+                Subscription stored;
+                try {
+                    stored = replaced[j] ? renewed.get(j) : renewChanged(charged, catalog);
+                } catch (RuntimeException e) {
+                    charger.refund(charged, plans.get(j));
+                    failed.add(charged);
+                    continue;
+                }
+                if (stored != null) {
+                    renewedTotal.increment();
+                    if (tally != null) tally.renewed.increment();
+                    events.publish(LifecycleEventType.RENEWED, stored);
+                } else {
+                    charger.refund(charged, plans.get(j));
+                }
+                pending.remove(charged.getId());
+                unsettled.remove(charged.getId());
+            }
+        }
+        if (!failed.isEmpty()) {
+            scheduleRetry(failed, attempt, tally);
+            for (Subscription s : failed) unsettled.remove(s.getId());
+        }
+    }
+
+    /**
+     * Renews a charged subscription that changed after it was read, re-reading on every
+     * lost race. Returns null, and the caller refunds the charge, if it no longer needs this
+     * renewal: cancelled, expired, switched off, or already extended past the expiry charged for.
+     */
+    private Subscription renewChanged(Subscription charged, PlanCatalog catalog) {
+        while (true) {
+            Subscription current = subscriptionRepository.findById(charged.getId()).orElse(null);
+            if (current == null || current.getStatus() != SubscriptionStatus.ACTIVE || !current.isAutoRenew()
+                    || !current.getExpiresAt().equals(charged.getExpiresAt())) {
+                return null;
+            }
+            MembershipPlan plan = catalog.find(current.getPlanCode());
+            Subscription next = current.withExpiry(TimeUtil.plusPeriod(current.getExpiresAt(), plan.getDuration()));
+            if (subscriptionRepository.replace(current, next)) return next;
+        }
+    }
+
+    private void scheduleRetry(List<Subscription> failed, int attempt, Tally tally) {
+        if (attempt >= policy.maxAttempts()) {
+            for (Subscription s : failed) giveUp(s, tally);
+            return;
+        }
+        if (tally != null) tally.retrying.add(failed.size());
+        List<String> ids = new ArrayList<>(failed.size());
+        for (Subscription s : failed) ids.add(s.getId());
+        try {
+            retries.schedule(() -> retry(ids, attempt + 1), backoffNanos(attempt), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException closed) {
+            pending.removeAll(ids);
+        }
+    }
+
+    /** Re-reads the failed subscriptions and renews those still due; runs on the retry thread. */
+    private void retry(List<String> ids, int attempt) {
+        Set<String> unsettled = new HashSet<>(ids);
+        try {
+            Instant cutoff = Instant.now().plus(policy.leadTime());
+            List<Subscription> batch = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Subscription current = subscriptionRepository.findById(id).orElse(null);
+                if (current != null && current.getStatus() == SubscriptionStatus.ACTIVE && current.isAutoRenew()
+                        && current.getExpiresAt().isBefore(cutoff)) {
+                    batch.add(current);
+                } else {
+                    pending.remove(id);
+                    unsettled.remove(id);
+                }
+            }
+            if (!batch.isEmpty()) submit(batch, attempt, null);
+            unsettled.clear(); // the batch owns the rest now
+        } finally {
+            pending.removeAll(unsettled); // a failed re-read must not strand them
+        }
+    }
+
+    /** initialBackoff doubled per attempt, capped at maxBackoff, then jittered over its upper half. */
+    private long backoffNanos(int attempt) {
+        long max = policy.maxBackoff().toNanos();
+        long delay = policy.initialBackoff().toNanos();
+        for (int i = 1; i < attempt && delay < max; i++) delay *= 2;
+        delay = Math.min(delay, max);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void giveUp(Subscription s, Tally tally) {
+        failedTotal.increment();
+        if (tally != null) tally.failed.increment();
+        exhausted.put(s.getId(), s.getExpiresAt());
+        pending.remove(s.getId());
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
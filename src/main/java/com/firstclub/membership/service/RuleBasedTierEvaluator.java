@@ -0,0 +1,245 @@
+package com.firstclub.membership.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Configuration-driven tier rules.
+ *
+ * Rules are read from properties and compiled once into a flat decision table:
+ * one row per tier (in priority order), one column per metric. A tier matches when
+ * any metric reaches its threshold; the first matching row wins, else the default.
+ * The table is stored column-major, so each metric is read once and scanned down
+ * its column only while it can still beat the best row found so far. Unused cells
+ * hold +Infinity, so every cell is the same comparison and nothing is allocated.
+ *
+ * <pre>
+ * tiers=PLATINUM,GOLD            # priority order
+ * default=SILVER
+ * PLATINUM.ordersCount=10
+ * PLATINUM.orderValue=50000
+ * plan.YEARLY.GOLD.ordersCount=4 # per-plan override; plan.X.tiers / plan.X.default also work
+ * </pre>
+ *
+ * Metric names are registered in {@link MetricSchema} at compile time, so the
+ * {@link MetricsVector} overloads read slots by index with no map lookups at all.
+ *
+ * {@link #reload(Properties)} compiles a new table off to the side and publishes it
+ * with one volatile write, so evaluations never pause during a swap.
+ */
+public class RuleBasedTierEvaluator implements TierEvaluator {
+
+    private static final String PLAN_PREFIX = "plan.";
+
+    private volatile Rules rules;
+
+    public RuleBasedTierEvaluator(Properties config) {
+        this.rules = Rules.compile(config);
+    }
+
+    /** Same thresholds as {@link SimpleTierEvaluator}. */
+    public static RuleBasedTierEvaluator withDefaults() {
+        Properties p = new Properties();
+        p.setProperty("tiers", "PLATINUM,GOLD");
+        p.setProperty("default", "SILVER");
+        p.setProperty("PLATINUM.ordersCount", "10");
+        p.setProperty("PLATINUM.orderValue", "50000");
+        p.setProperty("GOLD.ordersCount", "5");
+        p.setProperty("GOLD.orderValue", "10000");
+        return new RuleBasedTierEvaluator(p);
+    }
+
+    /** Loads rules from a classpath resource, falling back to the defaults if it is absent. */
+    public static RuleBasedTierEvaluator fromResource(String resource) {
+        try (InputStream in = RuleBasedTierEvaluator.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) return withDefaults();
+            Properties p = new Properties();
+            p.load(in);
+            return new RuleBasedTierEvaluator(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load tier rules: " + resource, e);
+        }
+    }
+
+    /** Compiles and atomically publishes a new rule set. Invalid config leaves the old rules in place. */
+    public void reload(Properties config) {
+        this.rules = Rules.compile(config);
+    }
+
+    @Override
+    public String evaluate(Map<String, Number> metrics) {
+        Rules r = rules;
+        return r.global.decide(r.metricNames, metrics);
+    }
+
+    @Override
+    public String evaluate(String planId, Map<String, Number> metrics) {
+        Rules r = rules;
+        Table t = r.byPlan.isEmpty() ? r.global : r.byPlan.getOrDefault(planId, r.global);
+        return t.decide(r.metricNames, metrics);
+    }
+
+    @Override
+    public String evaluate(MetricsVector metrics) {
+        Rules r = rules;
+        return r.global.decide(r.slots, metrics);
+    }
+
+    @Override
+    public String evaluate(String planId, MetricsVector metrics) {
+        Rules r = rules;
+        Table t = r.byPlan.isEmpty() ? r.global : r.byPlan.getOrDefault(planId, r.global);
+        return t.decide(r.slots, metrics);
+    }
+
+    /** Immutable compiled rule set: metric slots plus a global table and per-plan tables. */
+    private static final class Rules {
+        final String[] metricNames;
+        final MetricSchema.Slot[] slots;
+        final Table global;
+        final Map<String, Table> byPlan;
+
+        private Rules(String[] metricNames, Table global, Map<String, Table> byPlan) {
+            this.metricNames = metricNames;
+            this.slots = new MetricSchema.Slot[metricNames.length];
+            for (int i = 0; i < metricNames.length; i++) {
+                MetricSchema.Slot known = MetricSchema.slot(metricNames[i]);
+                slots[i] = known != null ? known : MetricSchema.register(metricNames[i], MetricSchema.Kind.DOUBLE);
+            }
+            this.global = global;
+            this.byPlan = byPlan;
+        }
+
+        static Rules compile(Properties config) {
+            // Collect plan ids and metric names from every "<tier>.<metric>" key
+            Set<String> plans = new TreeSet<>();
+            Set<String> metrics = new TreeSet<>();
+            for (String key : config.stringPropertyNames()) {
+                String local = key;
+                if (key.startsWith(PLAN_PREFIX)) {
+                    int dot = key.indexOf('.', PLAN_PREFIX.length());
+                    if (dot < 0) throw new IllegalArgumentException("Malformed tier rule key: " + key);
+                    plans.add(key.substring(PLAN_PREFIX.length(), dot));
+                    local = key.substring(dot + 1);
+                }
+                int dot = local.indexOf('.');
+                if (dot > 0) metrics.add(local.substring(dot + 1));
+            }
+            // Interned so lookups against literal map keys hit the identity fast path in equals
+            String[] metricNames = metrics.stream().map(String::intern).toArray(String[]::new);
+
+            Table global = Table.compile(config, "", metricNames);
+            Map<String, Table> byPlan = new HashMap<>();
+            for (String plan : plans) {
+                byPlan.put(plan, Table.compile(config, PLAN_PREFIX + plan + ".", metricNames));
+            }
+            return new Rules(metricNames, global, Map.copyOf(byPlan));
+        }
+    }
+
+    /** Flat column-major decision table: thresholds[col * rows + row]. */
+    private static final class Table {
+        final String[] tiers;
+        final String defaultTier;
+        final double[] thresholds;
+        final int rows;
+
+        private Table(String[] tiers, String defaultTier, double[] thresholds) {
+            this.tiers = tiers;
+            this.defaultTier = defaultTier;
+            this.thresholds = thresholds;
+            this.rows = tiers.length;
+        }
+
+        /** Each configured metric is read exactly once; the lowest matching row wins. */
+        String decide(String[] metricNames, Map<String, Number> metrics) {
+            if (metricNames.length == 2) {
+                // Shape of the shipped rules (ordersCount, orderValue): both values in registers
+                double v0 = read(metrics, metricNames[0]);
+                double v1 = read(metrics, metricNames[1]);
+                double[] t = thresholds;
+                for (int row = 0; row < rows; row++) {
+                    if (v0 >= t[row] | v1 >= t[rows + row]) return tiers[row];
+                }
+                return defaultTier;
+            }
+            int best = rows;
+            for (int col = 0, base = 0; col < metricNames.length && best > 0; col++, base += rows) {
+                double v = read(metrics, metricNames[col]);
+                for (int row = 0; row < best; row++) {
+                    if (v >= thresholds[base + row]) {
+                        best = row;
+                        break;
+                    }
+                }
+            }
+            return best == rows ? defaultTier : tiers[best];
+        }
+
+        /** Vector form of {@link #decide(String[], Map)}: slots are read by index. */
+        String decide(MetricSchema.Slot[] slots, MetricsVector metrics) {
+            if (slots.length == 2) {
+                double v0 = metrics.get(slots[0]);
+                double v1 = metrics.get(slots[1]);
+                double[] t = thresholds;
+                for (int row = 0; row < rows; row++) {
+                    if (v0 >= t[row] | v1 >= t[rows + row]) return tiers[row];
+                }
+                return defaultTier;
+            }
+            int best = rows;
+            for (int col = 0, base = 0; col < slots.length && best > 0; col++, base += rows) {
+                double v = metrics.get(slots[col]);
+                for (int row = 0; row < best; row++) {
+                    if (v >= thresholds[base + row]) {
+                        best = row;
+                        break;
+                    }
+                }
+            }
+            return best == rows ? defaultTier : tiers[best];
+        }
+
+        private static double read(Map<String, Number> metrics, String name) {
+            Number n = metrics.get(name);
+            return n == null ? 0.0 : n.doubleValue();
+        }
+
+        /** Keys are resolved under the prefix first, then globally. */
+        static Table compile(Properties config, String prefix, String[] metricNames) {
+            String tierList = lookup(config, prefix, "tiers");
+            String defaultTier = lookup(config, prefix, "default");
+            if (tierList == null || defaultTier == null) {
+                throw new IllegalArgumentException("Tier rules need 'tiers' and 'default' (scope: '" + prefix + "')");
+            }
+            String[] tiers = Arrays.stream(tierList.split(","))
+                    .map(String::trim)
+                    .filter(t -> !t.isEmpty())
+                    .toArray(String[]::new);
+
+            int rows = tiers.length;
+            double[] thresholds = new double[rows * metricNames.length];
+            Arrays.fill(thresholds, Double.POSITIVE_INFINITY);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < metricNames.length; col++) {
+                    String v = lookup(config, prefix, tiers[row] + "." + metricNames[col]);
+                    if (v == null) continue;
+                    try {
+                        thresholds[col * rows + row] = Double.parseDouble(v.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid threshold for " + prefix + tiers[row]
+                                + "." + metricNames[col] + ": " + v);
+                    }
+                }
+            }
+            return new Table(tiers, defaultTier.trim(), thresholds);
+        }
+
+        private static String lookup(Properties config, String prefix, String key) {
+            String v = prefix.isEmpty() ? null : config.getProperty(prefix + key);
+            return v != null ? v : config.getProperty(key);
+        }
+    }
+}
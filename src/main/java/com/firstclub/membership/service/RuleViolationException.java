@@ -0,0 +1,14 @@
+package com.firstclub.membership.service;
+
+/**
+ * A request the membership rules refuse in the current state: a second ACTIVE
+ * subscription, or changing one that is no longer ACTIVE. Still an
+ * IllegalStateException, as callers have always caught, but typed so front ends can
+ * tell a refused request from a fault on the server's side.
+ */
+public final class RuleViolationException extends IllegalStateException {
+
+    public RuleViolationException(String message) {
+        super(message);
+    }
+}
@@ -13,8 +13,15 @@ public class SimpleTierEvaluator implements TierEvaluator {
     public String evaluate(Map<String, Number> metrics) {
         Number ordersN = metrics.getOrDefault("ordersCount", 0);
         Number valueN = metrics.getOrDefault("orderValue", 0);
-        int orders = ordersN.intValue();
-        double value = valueN.doubleValue();
+        return decide(ordersN.intValue(), valueN.doubleValue());
+    }
+
+    @Override
+    public String evaluate(MetricsVector metrics) {
+        return decide(metrics.getLong(MetricSchema.ORDERS_COUNT), metrics.get(MetricSchema.ORDER_VALUE));
+    }
+
+    private static String decide(long orders, double value) {
         if (orders >= 10 || value >= 50000.0) return "PLATINUM";
         if (orders >= 5  || value >= 10000.0) return "GOLD";
         return "SILVER";
@@ -4,4 +4,21 @@ import java.util.Map;
 
 public interface TierEvaluator {
     String evaluate(Map<String, Number> metrics);
+
+    /** Plan-aware evaluation; evaluators without per-plan rules ignore the plan. */
+    default String evaluate(String planId, Map<String, Number> metrics) {
+        return evaluate(metrics);
+    }
+
+    /**
+     * Allocation-free evaluation over primitive slots. The default adapts to the
+     * map-based signature; evaluators on hot paths should override it.
+     */
+    default String evaluate(MetricsVector metrics) {
+        return evaluate(metrics.toMap());
+    }
+
+    default String evaluate(String planId, MetricsVector metrics) {
+        return evaluate(metrics);
+    }
 }
@@ -0,0 +1,221 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.PlanRepository;
+import com.firstclub.membership.repo.SubscriptionFilter;
+import com.firstclub.membership.repo.SubscriptionRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bulk tier re-evaluation for all ACTIVE subscriptions.
+ * The ACTIVE set is split into ranges evaluated in parallel on a fork-join pool;
+ * only subscriptions whose tier actually changes are written, one replaceAll per leaf;
+ * any that changed since the ACTIVE snapshot are retried against their current version.
+ * Each leaf reuses one {@link MetricsVector}, so evaluation itself does not allocate.
+ * A subscription whose metrics or evaluation throws, or a batch the store fails to
+ * write, is counted as failed and the run carries on with the rest.
+ */
+public class TierReevaluationEngine {
+
+    /** Supplies metrics for a subscription; returning null skips it. */
+    @FunctionalInterface
+    public interface MetricsSource {
+        Map<String, Number> metricsFor(Subscription subscription);
+
+        static MetricsSource bySubscriptionId(Map<String, Map<String, Number>> metrics) {
+            return s -> metrics.get(s.getId());
+        }
+
+        static MetricsSource byUserId(Map<String, Map<String, Number>> metrics) {
+            return s -> metrics.get(s.getUserId());
+        }
+    }
+
+    /** Writes a subscription's metrics into a cleared, reusable vector; returning false skips it. */
+    @FunctionalInterface
+    public interface VectorMetricsSource {
+        boolean fill(Subscription subscription, MetricsVector into);
+    }
+
+    /** Outcome of one run. */
+    public record Report(long evaluated, long changed, long skipped, long failed, Duration elapsed) {
+        public double throughputPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? 0.0 : evaluated * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("evaluated=%d changed=%d skipped=%d failed=%d elapsed=%dms throughput=%.0f/s",
+                    evaluated, changed, skipped, failed, elapsed.toMillis(), throughputPerSecond());
+        }
+    }
+
+    private static final int LEAF_SIZE = 2048;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final PlanRepository planRepository;
+    private final TierEvaluator tierEvaluator;
+    private final ForkJoinPool pool;
+    private final EventPublisher events;
+
+    public TierReevaluationEngine(SubscriptionRepository subscriptionRepository,
+                                  PlanRepository planRepository,
+                                  TierEvaluator tierEvaluator,
+                                  ForkJoinPool pool,
+                                  EventPublisher events) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.planRepository = planRepository;
+        this.tierEvaluator = tierEvaluator;
+        this.pool = pool;
+        this.events = events;
+    }
+
+    public TierReevaluationEngine(SubscriptionRepository subscriptionRepository,
+                                  PlanRepository planRepository,
+                                  TierEvaluator tierEvaluator,
+                                  ForkJoinPool pool) {
+        this(subscriptionRepository, planRepository, tierEvaluator, pool, EventPublisher.NOOP);
+    }
+
+    public TierReevaluationEngine(SubscriptionRepository subscriptionRepository,
+                                  PlanRepository planRepository,
+                                  TierEvaluator tierEvaluator) {
+        this(subscriptionRepository, planRepository, tierEvaluator, ForkJoinPool.commonPool());
+    }
+
+    public Report reevaluateAll(MetricsSource metrics) {
+        return reevaluateAll((s, into) -> {
+            Map<String, Number> m = metrics.metricsFor(s);
+            if (m == null) return false;
+            into.putAll(m);
+            return true;
+        });
+    }
+
+    public Report reevaluateAll(VectorMetricsSource metrics) {
+        long begin = System.nanoTime();
+
+        List<Subscription> active = subscriptionRepository
+                .stream(SubscriptionFilter.byStatus(SubscriptionStatus.ACTIVE))
+                .toList();
+        // One catalog version is pinned for the whole run
+        PlanCatalog plans = planRepository.catalog();
+
+        long[] counts = pool.invoke(new Leaf(active, 0, active.size(), plans, metrics));
+        return new Report(counts[0], counts[1], counts[2], counts[3], Duration.ofNanos(System.nanoTime() - begin));
+    }
+
+    /**
+     * Moves a subscription that changed since the ACTIVE snapshot to the chosen tier,
+     * re-reading on every lost race; gives up once it is no longer ACTIVE or already there.
+     */
+    private boolean retryTierChange(String subscriptionId, String tierId) {
+        while (true) {
+            Subscription current = subscriptionRepository.findById(subscriptionId).orElse(null);
+            if (current == null || current.getStatus() != SubscriptionStatus.ACTIVE) return false;
+            Subscription next = current.withTier(tierId);
+            if (next == current) return false;
+            if (subscriptionRepository.replace(current, next)) {
+                events.publish(LifecycleEventType.TIER_CHANGED, next, current.getTierCode());
+                return true;
+            }
+        }
+    }
+
+    /** Evaluates [from, to); returns {evaluated, changed, skipped, failed}. */
+    private final class Leaf extends RecursiveTask<long[]> {
+        private final List<Subscription> subs;
+        private final int from;
+        private final int to;
+        private final PlanCatalog plans;
+        private final VectorMetricsSource metrics;
+
+        Leaf(List<Subscription> subs, int from, int to, PlanCatalog plans, VectorMetricsSource metrics) {
+            this.subs = subs;
+            this.from = from;
+            this.to = to;
+            this.plans = plans;
+            this.metrics = metrics;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                Leaf left = new Leaf(subs, from, mid, plans, metrics);
+                left.fork();
+                long[] right = new Leaf(subs, mid, to, plans, metrics).compute();
+                long[] l = left.join();
+                for (int i = 0; i < right.length; i++) right[i] += l[i];
+                return right;
+            }
+
+            long evaluated = 0, skipped = 0, failed = 0;
+            List<Subscription> expected = new ArrayList<>();
+            List<Subscription> changed = new ArrayList<>();
+            MetricsVector vector = new MetricsVector();
+            for (int i = from; i < to; i++) {
+                Subscription s = subs.get(i);
+                vector.clear();
+                int planCode = s.getPlanCode();
+                String chosenTier;
+                try {
+                    if (!metrics.fill(s, vector)) {
+                        skipped++;
+                        continue;
+                    }
+                    evaluated++;
+                    chosenTier = tierEvaluator.evaluate(IdDictionary.PLANS.decode(planCode), vector);
+                } catch (RuntimeException e) {
+                    failed++; // one bad record must not end the run for every other one
+                    continue;
+                }
+                int chosenCode = IdDictionary.TIERS.codeIfPresent(chosenTier);
+                if (chosenCode == s.getTierCode()) continue;
+
+                MembershipPlan plan = plans.find(planCode);
+                if (plan == null || !plan.hasTier(chosenCode)) {
+                    failed++;
+                    continue;
+                }
+                expected.add(s);
+                changed.add(s.withTier(chosenTier));
+            }
+            if (expected.isEmpty()) return new long[] {evaluated, 0, skipped, failed};
+
+            boolean[] replaced;
+            try {
+                replaced = subscriptionRepository.replaceAll(expected, changed);
+            } catch (RuntimeException e) {
+                return new long[] {evaluated, 0, skipped, failed + expected.size()};
+            }
+            long stored = 0;
+            for (int j = 0; j < replaced.length; j++) {
+                try {
+                    if (replaced[j]) {
+                        events.publish(LifecycleEventType.TIER_CHANGED, changed.get(j), expected.get(j).getTierCode());
+                        stored++;
+                    } else if (retryTierChange(expected.get(j).getId(), changed.get(j).getTierId())) {
+                        stored++;
+                    }
+                } catch (RuntimeException e) {
+                    failed++;
+                }
+            }
+            return new long[] {evaluated, stored, skipped, failed};
+        }
+    }
+}
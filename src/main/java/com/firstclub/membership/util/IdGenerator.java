@@ -2,8 +2,82 @@ package com.firstclub.membership.util;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Time-ordered 64-bit ids, Snowflake style:
+ * [41 bits millis since 2024-01-01][10 bits node][12 bits sequence].
+ *
+ * The node comes from -Dmembership.nodeId (0-1023, default 0), so nodes never
+ * collide, and the timestamp keeps ids unique across restarts. Generation does not
+ * allocate: each id is one CAS on a shared (millis, sequence) counter. There are no
+ * per-thread blocks, because the HTTP server runs every request on a new virtual
+ * thread, which would claim a block, use one id and waste the rest of the
+ * millisecond's sequence space. When a millisecond's sequence space is exhausted, or
+ * the clock steps back, the counter simply runs ahead into the next millisecond, so
+ * ids stay unique and increasing.
+ */
 public final class IdGenerator {
-    private static final AtomicLong COUNTER = new AtomicLong(1);
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    private static final long NODE = nodeFromConfig();
+    /** Next unissued (millis << SEQUENCE_BITS | sequence). */
+    private static final AtomicLong COUNTER = new AtomicLong();
+
     private IdGenerator() {}
-    public static String nextId(String prefix) { return prefix + "-" + COUNTER.getAndIncrement(); }
+
+    /** Next id as a number; allocation-free. */
+    public static long next() {
+        long floor = currentMillis() << SEQUENCE_BITS;
+        while (true) {
+            long current = COUNTER.get();
+            long c = Math.max(current, floor);
+            if (COUNTER.compareAndSet(current, c + 1)) return compose(c);
+        }
+    }
+
+    /** Next id rendered as text, e.g. "sub-123456789012345678". */
+    public static String nextId(String prefix) { return render(prefix, next()); }
+
+    public static String render(String prefix, long id) { return prefix + "-" + id; }
+
+    /** Milliseconds since the Unix epoch at which the id was generated. */
+    public static long timestampOf(long id) { return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS; }
+
+    public static int nodeOf(long id) { return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE); }
+
+    /**
+     * Moves the generator past an id issued earlier (e.g. recovered from disk), so it
+     * is never reissued even if the clock was later stepped back. Call before issuing ids.
+     */
+    public static void observe(String id) {
+        int dash = id.lastIndexOf('-');
+        if (dash < 0) return;
+        try {
+            long n = Long.parseLong(id.substring(dash + 1));
+            if (n < 0) return;
+            long seen = ((n >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (n & SEQUENCE_MASK);
+            COUNTER.accumulateAndGet(seen + 1, Math::max);
+        } catch (NumberFormatException ignored) {
+            // not one of ours
+        }
+    }
+
+    private static long compose(long counter) {
+        return (counter >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | NODE << SEQUENCE_BITS
+                | (counter & SEQUENCE_MASK);
+    }
+
+    private static long currentMillis() { return System.currentTimeMillis() - EPOCH_MILLIS; }
+
+    private static long nodeFromConfig() {
+        long node = Long.getLong("membership.nodeId", 0L);
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("membership.nodeId must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        return node;
+    }
 }
@@ -0,0 +1,35 @@
+package com.firstclub.membership.util;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks selected by key hash. Keys that share a stripe serialize,
+ * different stripes never contend, and memory stays bounded regardless of key count.
+ */
+public final class StripedLocks {
+    private final Lock[] stripes;
+    private final int mask;
+
+    public StripedLocks(int minStripes) {
+        if (minStripes <= 0) throw new IllegalArgumentException("stripes must be positive: " + minStripes);
+        int n = Integer.highestOneBit(minStripes);
+        if (n < minStripes) n <<= 1;
+        this.stripes = new Lock[n];
+        for (int i = 0; i < n; i++) stripes[i] = new ReentrantLock();
+        this.mask = n - 1;
+    }
+
+    /** Stripe count sized for the machine: a few stripes per core keeps collisions rare. */
+    public static StripedLocks forAvailableProcessors() {
+        return new StripedLocks(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public Lock lockFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16); // spread high bits, as HashMap does
+        return stripes[h & mask];
+    }
+
+    public int size() { return stripes.length; }
+}
@@ -0,0 +1,141 @@
+package com.firstclub.membership.event;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.util.StripedLocks;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LifecycleEventBusTest {
+
+    private static Subscription sub(String id, String userId) {
+        Instant now = Instant.now();
+        return new Subscription(id, userId, "MONTHLY", "SILVER", now, now.plusSeconds(60));
+    }
+
+    // ------------------------------------------------------------
+    // Delivery: every handler sees every event, in order, in batches
+    // ------------------------------------------------------------
+    @Test
+    void testEveryHandlerSeesEveryEventInOrder() throws Exception {
+        for (WaitStrategy strategy : List.of(WaitStrategy.busySpin(), WaitStrategy.yielding(),
+                WaitStrategy.sleeping(100_000), WaitStrategy.blocking())) {
+            deliverFromManyProducers(strategy);
+        }
+    }
+
+    private static void deliverFromManyProducers(WaitStrategy strategy) throws Exception {
+        int producers = 4;
+        int perProducer = 5_000;
+        LifecycleEventBus bus = new LifecycleEventBus(64, strategy); // small ring: producers must wait on handlers
+        List<Map<String, List<Integer>>> seen = new ArrayList<>();
+        List<AtomicLong> batches = new ArrayList<>();
+        for (int h = 0; h < 2; h++) {
+            Map<String, List<Integer>> perUser = new HashMap<>();
+            AtomicLong batchCount = new AtomicLong();
+            long[] expectedSequence = {0};
+            seen.add(perUser);
+            batches.add(batchCount);
+            bus.addHandler("h" + h, (event, sequence, endOfBatch) -> {
+                assertEquals(expectedSequence[0]++, sequence);
+                String id = event.subscriptionId();
+                perUser.computeIfAbsent(event.userId(), u -> new ArrayList<>())
+                        .add(Integer.parseInt(id.substring(id.lastIndexOf('-') + 1)));
+                if (endOfBatch) batchCount.incrementAndGet();
+            });
+        }
+        bus.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String user = "user-" + p;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) bus.publish(LifecycleEventType.SUBSCRIBED, sub("sub-" + i, user));
+            }));
+        }
+        for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        bus.close();
+
+        for (int h = 0; h < seen.size(); h++) {
+            Map<String, List<Integer>> perUser = seen.get(h);
+            assertEquals(producers, perUser.size());
+            for (List<Integer> ids : perUser.values()) {
+                // Each producer's events arrive complete and in its publication order
+                assertEquals(perProducer, ids.size());
+                for (int i = 0; i < perProducer; i++) assertEquals(i, ids.get(i));
+            }
+            assertTrue(batches.get(h).get() <= (long) producers * perProducer);
+        }
+        assertEquals((long) producers * perProducer - 1, bus.cursor());
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopDelivery() {
+        LifecycleEventBus bus = new LifecycleEventBus(8, WaitStrategy.yielding());
+        AtomicInteger delivered = new AtomicInteger();
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        bus.addHandler("flaky", (event, sequence, endOfBatch) -> {
+            delivered.incrementAndGet();
+            if (sequence % 2 == 0) throw new IllegalStateException("boom");
+        }, (event, sequence, error) -> failed.add(event.subscriptionId() + ":" + error.getMessage()));
+        bus.addHandler("broken", (event, sequence, endOfBatch) -> {
+            throw new IllegalStateException("always");
+        });
+        bus.start();
+        for (int i = 0; i < 20; i++) bus.publish(LifecycleEventType.CANCELLED, sub("sub-" + i, "user-1"));
+        bus.close();
+        assertEquals(20, delivered.get());
+        assertEquals(10, bus.failures("flaky"));
+        assertEquals(20, bus.failures("broken"));
+        assertEquals(0, bus.failures("missing"));
+        assertEquals(10, failed.size());
+        assertEquals("sub-0:boom", failed.get(0));
+        assertThrows(IllegalStateException.class, () -> bus.addHandler("late", (e, s, b) -> {}));
+    }
+
+    // ------------------------------------------------------------
+    // Service integration
+    // ------------------------------------------------------------
+    @Test
+    void testServicePublishesLifecycleEvents() {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        var subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        LifecycleEventBus bus = new LifecycleEventBus(16, WaitStrategy.blocking());
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        bus.addHandler("audit", (event, sequence, endOfBatch) -> log.add(event.type() + ":" + event.tierId()
+                + (event.previousTierCode() >= 0 ? "<" + IdDictionary.TIERS.decode(event.previousTierCode()) : "")));
+        bus.start();
+        MembershipService service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), bus);
+
+        Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
+        service.upgradeOrDowngrade(s.getId(), "GOLD");
+        service.evaluateAndApplyTier(s.getId(), Map.of("ordersCount", 7)); // stays GOLD: no event
+        Subscription current = subRepo.findById(s.getId()).orElseThrow();
+        subRepo.replace(current, current.withExpiry(Instant.now().minusSeconds(1)));
+        service.expireDueSubscriptions();
+        Subscription other = service.subscribe("user-1", "YEARLY", "PLATINUM");
+        service.cancelSubscription(other.getId());
+        bus.close();
+
+        assertEquals(List.of("SUBSCRIBED:SILVER", "TIER_CHANGED:GOLD<SILVER", "EXPIRED:GOLD",
+                "SUBSCRIBED:PLATINUM", "CANCELLED:PLATINUM"), log);
+    }
+}
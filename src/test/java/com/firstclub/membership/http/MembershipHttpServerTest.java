@@ -0,0 +1,205 @@
+package com.firstclub.membership.http;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.ReadOnlyStoreException;
+import com.firstclub.membership.service.EntitlementService;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.util.StripedLocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MembershipHttpServerTest {
+
+    private InMemoryUserRepository userRepo;
+    private InMemorySubscriptionRepository subRepo;
+    private MembershipHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        var planRepo = new InMemoryPlanRepository();
+        userRepo = new InMemoryUserRepository();
+        subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        EntitlementService entitlements = new EntitlementService(subRepo, planRepo);
+        MembershipService service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), entitlements.andThen(EventPublisher.NOOP));
+        server = MembershipHttpServer.start(new InetSocketAddress("127.0.0.1", 0), 1024, service, entitlements);
+        client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(8)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(post(path, body, true), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest post(String path, String body, boolean json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", json ? "application/json" : "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private URI uri(String path) { return URI.create("http://127.0.0.1:" + server.port() + path); }
+
+    private static String idOf(String json) {
+        return (String) Json.parseObject(json).get("id");
+    }
+
+    // ------------------------------------------------------------
+    // Routes
+    // ------------------------------------------------------------
+    @Test
+    void testSubscriptionLifecycleOverHttp() throws Exception {
+        HttpResponse<String> plans = get("/plans");
+        assertEquals(200, plans.statusCode());
+        assertTrue(plans.body().contains("\"id\":\"MONTHLY\""));
+        assertTrue(plans.body().contains("\"type\":\"DELIVERY\""));
+
+        HttpResponse<String> created = post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"SILVER\"}");
+        assertEquals(201, created.statusCode());
+        String id = idOf(created.body());
+        assertEquals("ACTIVE", Json.parseObject(created.body()).get("status"));
+
+        assertEquals(409, post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"GOLD\"}").statusCode());
+
+        HttpResponse<String> upgraded = post("/subscriptions/" + id + "/tier", "{\"tierId\":\"GOLD\"}");
+        assertEquals("GOLD", Json.parseObject(upgraded.body()).get("tierId"));
+
+        HttpResponse<String> entitlements = get("/users/user-1/entitlements");
+        assertEquals(10L, Json.parseObject(entitlements.body()).get("discountPercent"));
+        assertEquals(0L, Json.parseObject(entitlements.body()).get("freeDeliveryThreshold"));
+
+        HttpResponse<String> evaluated = post("/subscriptions/" + id + "/evaluate",
+                "{\"ordersCount\": 12, \"orderValue\": 100.5}");
+        assertEquals("PLATINUM", Json.parseObject(evaluated.body()).get("tierId"));
+
+        assertEquals(200, get("/subscriptions/" + id).statusCode());
+        HttpResponse<String> cancelled = post("/subscriptions/" + id + "/cancel", "");
+        assertEquals("CANCELLED", Json.parseObject(cancelled.body()).get("status"));
+
+        HttpResponse<String> list = get("/users/user-1/subscriptions");
+        assertTrue(list.body().startsWith("[{") && list.body().contains(id));
+        assertEquals(Boolean.FALSE, Json.parseObject(get("/users/user-1/entitlements").body()).get("earlyAccess"));
+        assertEquals("[{\"planId\":\"MONTHLY\",\"tierId\":\"PLATINUM\",\"status\":\"CANCELLED\",\"count\":1}]",
+                get("/stats/subscriptions").body());
+    }
+
+    @Test
+    void testErrorsMapToStatusCodes() throws Exception {
+        HttpResponse<String> missing = get("/subscriptions/sub-404");
+        assertEquals(404, missing.statusCode());
+        assertEquals("Subscription not found: sub-404", Json.parseObject(missing.body()).get("error"));
+        assertEquals(404, post("/subscriptions",
+                "{\"userId\":\"ghost\",\"planId\":\"MONTHLY\",\"tierId\":\"GOLD\"}").statusCode());
+        assertEquals(400, post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"DIAMOND\"}").statusCode());
+        assertEquals(400, post("/subscriptions", "{\"userId\":\"user-1\"").statusCode());
+        assertEquals(400, post("/subscriptions", "{\"userId\":\"user-1\"}").statusCode());
+        // Status comes from the exception type, not from words in a message that may echo input
+        assertEquals(400, post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"not found\"}").statusCode());
+        assertEquals(404, post("/subscriptions/sub-404/cancel", "").statusCode());
+        assertEquals(405, get("/subscriptions").statusCode());
+        assertEquals(404, get("/nothing/here").statusCode());
+    }
+
+    @Test
+    void testServerFaultsAreNotConflicts() throws Exception {
+        RuntimeException[] failure = new RuntimeException[1];
+        var failing = new InMemorySubscriptionRepository() {
+            @Override
+            public void save(Subscription s) {
+                throw failure[0];
+            }
+        };
+        var planRepo = new InMemoryPlanRepository();
+        DataBootstrap.seed(planRepo, new InMemoryUserRepository());
+        MembershipService service = new MembershipService(failing, planRepo, userRepo, new SimpleTierEvaluator());
+        server.close();
+        server = MembershipHttpServer.start(new InetSocketAddress("127.0.0.1", 0), 16, service, null);
+        String request = "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"SILVER\"}";
+
+        failure[0] = new ReadOnlyStoreException("Subscription log failed; the store is read-only until restart.",
+                new IOException("disk full"));
+        HttpResponse<String> readOnly = post("/subscriptions", request);
+        assertEquals(503, readOnly.statusCode());
+        assertEquals(failure[0].getMessage(), Json.parseObject(readOnly.body()).get("error"));
+
+        failure[0] = new IllegalStateException("Plan missing for subscription.");
+        assertEquals(500, post("/subscriptions", request).statusCode());
+    }
+
+    @Test
+    void testOversizedBodyIsRefused() throws Exception {
+        String padding = "x".repeat(MembershipHttpServer.MAX_BODY_BYTES);
+        HttpResponse<String> tooLarge = post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"SILVER\",\"pad\":\"" + padding + "\"}");
+        assertEquals(413, tooLarge.statusCode());
+        assertEquals(0, subRepo.size());
+        assertEquals(201, post("/subscriptions",
+                "{\"userId\":\"user-1\",\"planId\":\"MONTHLY\",\"tierId\":\"SILVER\"}").statusCode());
+    }
+
+    @Test
+    void testJsonParsing() {
+        Map<String, Object> m = Json.parseObject(" {\"a\": \"x\\\"y\\u0041\", \"b\": [1, 2.5, true, null], \"c\": {}} ");
+        assertEquals("x\"yA", m.get("a"));
+        assertEquals(List.of(1L, 2.5, true), ((List<?>) m.get("b")).subList(0, 3));
+        assertEquals(Map.of(), m.get("c"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1} x"));
+        assertEquals("\"a\\nb\\\"\"", Json.quote(new StringBuilder(), "a\nb\"").toString());
+    }
+
+    // ------------------------------------------------------------
+    // Concurrency
+    // ------------------------------------------------------------
+    @Test
+    void testManyConcurrentClients() throws Exception {
+        int users = 2_000;
+        for (int i = 0; i < users; i++) userRepo.save(new User("load-" + i, "Load " + i));
+        List<CompletableFuture<HttpResponse<String>>> inFlight = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String body = "{\"userId\":\"load-" + i + "\",\"planId\":\"YEARLY\",\"tierId\":\"SILVER\"}";
+            inFlight.add(client.sendAsync(post("/subscriptions", body, true), HttpResponse.BodyHandlers.ofString()));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> f : inFlight) {
+            if (f.get().statusCode() == 201) created++;
+        }
+        assertEquals(users, created);
+        assertEquals(users, subRepo.size());
+    }
+}
@@ -0,0 +1,125 @@
+package com.firstclub.membership.loadgen;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.http.MembershipHttpServer;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    private static LoadConfig shortRun(int users, double rate, Duration duration) {
+        LoadConfig d = LoadConfig.of(users, rate, duration);
+        return new LoadConfig(d.users(), d.ratePerSecond(), d.duration(), 8, d.maxOutstanding(), d.mix(),
+                d.poisson(), Duration.ofMillis(500), Duration.ofMillis(100), d.expiryGrace(), 50, d.seed());
+    }
+
+    private static String printed(LoadReport report) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true));
+        return out.toString();
+    }
+
+    // ------------------------------------------------------------
+    // Runs
+    // ------------------------------------------------------------
+    @Test
+    void testInProcessRunKeepsInvariants() throws Exception {
+        ByteArrayOutputStream progress = new ByteArrayOutputStream();
+        LoadReport report;
+        try (LoadTarget target = InProcessTarget.standalone(200, false)) {
+            report = new LoadGenerator(shortRun(200, 2_000, Duration.ofSeconds(2)), target,
+                    new PrintStream(progress)).run();
+        }
+        String printed = printed(report);
+
+        assertEquals(0, report.violationCount(), report.examples().toString());
+        assertEquals(0, report.errors(), report.examples().toString());
+        assertEquals(report.arrivals(), report.completed() + report.dropped() + report.skipped());
+        assertTrue(printed.contains("Load run: ") && printed.contains(report.arrivals() + " arrivals"), printed);
+        for (var op : report.operations()) {
+            assertTrue(printed.contains(System.lineSeparator() + op.operation().key() + " "), printed);
+        }
+        assertTrue(printed.contains("expiry sweeps: " + report.sweeps()), printed);
+        assertTrue(printed.contains(report.usersChecked() + " user checks, 0 violations"), printed);
+        assertTrue(report.completed() > 1_000);
+        assertTrue(report.sweeps() > 0);
+        assertTrue(report.usersChecked() >= 200);
+        assertTrue(progress.toString().contains("ops/s"));
+        // Subscribe, cancel and tier changes collide on purpose, so some refusals are expected
+        assertTrue(report.operations().stream().anyMatch(s -> s.rejected() > 0));
+    }
+
+    @Test
+    void testHttpRunKeepsInvariants() throws Exception {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        DataBootstrap.seedLoadUsers(userRepo, 50);
+        MembershipService service = new MembershipService(new InMemorySubscriptionRepository(), planRepo, userRepo,
+                new SimpleTierEvaluator());
+        LoadReport report;
+        try (MembershipHttpServer server = MembershipHttpServer.start(
+                new InetSocketAddress("127.0.0.1", 0), 256, service, null);
+             LoadTarget target = new HttpTarget(URI.create("http://127.0.0.1:" + server.port()))) {
+            report = new LoadGenerator(shortRun(50, 100, Duration.ofSeconds(1)), target,
+                    new PrintStream(new ByteArrayOutputStream())).run();
+        }
+        String printed = printed(report);
+
+        assertEquals(0, report.violationCount(), report.examples().toString());
+        assertEquals(0, report.errors(), report.examples().toString());
+        assertEquals(0, report.sweeps()); // the server expires on its own schedule
+        assertTrue(report.completed() > 0);
+        assertFalse(printed.contains("expiry sweeps"), printed);
+        assertTrue(printed.contains(report.completed() + " completed"), printed);
+    }
+
+    // ------------------------------------------------------------
+    // Pieces
+    // ------------------------------------------------------------
+    @Test
+    void testInvariantCheckerFlagsViolations() {
+        InvariantChecker checker = new InvariantChecker(Duration.ofSeconds(10));
+        Instant now = Instant.now();
+        List<LoadTarget.Row> rows = List.of(
+                new LoadTarget.Row("sub-1", "GOLD", SubscriptionStatus.ACTIVE, now.plusSeconds(60)),
+                new LoadTarget.Row("sub-2", "GOLD", SubscriptionStatus.ACTIVE, now.minusSeconds(60)));
+
+        assertEquals(3, checker.check("load-0", Set.of("sub-1", "sub-3"), rows, now));
+        assertEquals(1L, checker.counts().get(InvariantChecker.Invariant.MULTIPLE_ACTIVE));
+        assertEquals(1L, checker.counts().get(InvariantChecker.Invariant.MISSING_SUBSCRIPTION));
+        assertEquals(1L, checker.counts().get(InvariantChecker.Invariant.STALE_ACTIVE));
+        assertEquals(0, checker.check("load-1", Set.of("sub-1"), rows.subList(0, 1), now));
+        assertEquals(2, checker.usersChecked());
+    }
+
+    @Test
+    void testOperationMixParsing() {
+        OperationMix mix = OperationMix.parse("subscribe=1, list=3, cancel=0");
+        assertEquals(LoadOperation.SUBSCRIBE, mix.pick(0.0));
+        assertEquals(LoadOperation.LIST, mix.pick(0.3));
+        assertEquals(LoadOperation.LIST, mix.pick(0.999));
+        assertEquals(0, mix.weight(LoadOperation.CANCEL));
+        assertEquals("subscribe=1,list=3", mix.toString());
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("subscribe=0"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("renew=1"));
+        assertEquals(Duration.ofHours(2), LoadGenMain.duration("2h"));
+        assertEquals(Duration.ofMillis(250), LoadGenMain.duration("250ms"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.firstclub.membership.metrics;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.service.MembershipService;
+import com.firstclub.membership.service.SimpleTierEvaluator;
+import com.firstclub.membership.util.StripedLocks;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MembershipMetricsTest {
+
+    // ------------------------------------------------------------
+    // Histogram accuracy and concurrency
+    // ------------------------------------------------------------
+    @Test
+    void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) h.record(v * 1_000); // 1us .. 100ms, uniform
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(100_000, s.count());
+        assertEquals(100_000_000L, s.max());
+        assertEquals(50_000_500.0, s.mean(), 1.0);
+        assertWithin(50_000_000L, s.p50());
+        assertWithin(99_000_000L, s.p99());
+        assertWithin(99_900_000L, s.p999());
+
+        h.record(-5); // clock hiccup: counted as zero
+        h.record(Long.MAX_VALUE); // beyond the range: last bucket
+        assertEquals(100_002, h.snapshot().count());
+        h.reset();
+        assertEquals(0, h.snapshot().count());
+        assertEquals(0, h.snapshot().p99());
+    }
+
+    @Test
+    void testBucketsCoverEveryValueInOrder() {
+        long previousHighest = -1;
+        for (int i = 0; i <= LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS); i++) {
+            long highest = LatencyHistogram.highestValueIn(i);
+            assertEquals(previousHighest + 1 == 0 ? 0 : i, LatencyHistogram.indexOf(previousHighest + 1));
+            assertEquals(i, LatencyHistogram.indexOf(highest));
+            previousHighest = highest;
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, previousHighest);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64, "expected ~" + expected + " but was " + actual);
+    }
+
+    @Test
+    void testConcurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long value = (t + 1) * 1_000L;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) h.record(value);
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+        assertEquals((long) threads * perThread, h.snapshot().count());
+        assertEquals(8_000, h.snapshot().max());
+    }
+
+    // ------------------------------------------------------------
+    // Service instrumentation and MXBeans
+    // ------------------------------------------------------------
+    @Test
+    void testServiceRecordsLatencyRejectionsAndSweeps() throws Exception {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        var subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        MembershipMetrics metrics = new MembershipMetrics(subRepo::size, userRepo::size);
+        MembershipService service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), EventPublisher.NOOP, metrics);
+
+        Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
+        assertThrows(IllegalStateException.class, () -> service.subscribe("user-1", "MONTHLY", "GOLD"));
+        assertThrows(IllegalArgumentException.class, () -> service.subscribe("ghost", "MONTHLY", "GOLD"));
+        assertThrows(IllegalArgumentException.class, () -> service.upgradeOrDowngrade(s.getId(), "DIAMOND"));
+        service.upgradeOrDowngrade(s.getId(), "GOLD");
+        service.getSubscriptionsForUser("user-1");
+        service.evaluateAndApplyTier(s.getId(), Map.of("ordersCount", 12));
+        Subscription current = subRepo.findById(s.getId()).orElseThrow();
+        subRepo.replace(current, current.withExpiry(Instant.now().minusSeconds(1)));
+        service.expireDueSubscriptions();
+        assertThrows(IllegalStateException.class, () -> service.upgradeOrDowngrade(s.getId(), "SILVER"));
+        service.cancelAll(List.of("sub-missing"));
+
+        assertEquals(3, metrics.latency(Operation.SUBSCRIBE).count());
+        assertEquals(3, metrics.latency(Operation.UPGRADE_OR_DOWNGRADE).count());
+        assertEquals(1, metrics.latency(Operation.EVALUATE_AND_APPLY_TIER).count());
+        assertEquals(1, metrics.latency(Operation.CANCEL_ALL).count());
+        assertTrue(metrics.latency(Operation.SUBSCRIBE).max() > 0);
+        assertEquals(1, metrics.rejections(Rejection.ALREADY_ACTIVE));
+        assertEquals(1, metrics.rejections(Rejection.USER_NOT_FOUND));
+        assertEquals(1, metrics.rejections(Rejection.INVALID_TIER));
+        assertEquals(1, metrics.rejections(Rejection.NOT_ACTIVE));
+        assertEquals(1, metrics.rejections(Rejection.SUBSCRIPTION_NOT_FOUND));
+        assertEquals(1, metrics.expiredTotal());
+
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics.register(server);
+        ObjectName subscribe = new ObjectName(MembershipMetrics.DOMAIN + ":type=Operation,name=subscribe");
+        ObjectName membership = new ObjectName(MembershipMetrics.DOMAIN + ":type=Membership");
+        assertEquals(3L, server.getAttribute(subscribe, "Count"));
+        assertTrue((Double) server.getAttribute(subscribe, "P99Micros") > 0);
+        assertEquals(1L, server.getAttribute(membership, "SubscriptionCount"));
+        assertEquals(1L, server.getAttribute(membership, "UserCount"));
+        assertEquals(1L, server.getAttribute(membership, "SweepCount"));
+        TabularData rejections = (TabularData) server.getAttribute(membership, "Rejections");
+        CompositeData alreadyActive = rejections.get(new Object[]{"ALREADY_ACTIVE"});
+        assertEquals(1L, alreadyActive.get("value"));
+        server.invoke(subscribe, "reset", new Object[0], new String[0]);
+        assertEquals(0L, server.getAttribute(subscribe, "Count"));
+        metrics.unregister();
+        assertFalse(server.isRegistered(subscribe));
+    }
+
+    @Test
+    void testFailedSweepIsStillRecorded() {
+        var planRepo = new InMemoryPlanRepository();
+        var userRepo = new InMemoryUserRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        userRepo.save(new User("user-2", "Second User"));
+        int[] writes = {0};
+        var subRepo = new InMemorySubscriptionRepository() {
+            @Override
+            public boolean replace(Subscription expected, Subscription next) {
+                if (next.getStatus() == SubscriptionStatus.EXPIRED && writes[0]++ > 0) {
+                    throw new IllegalStateException("store failed");
+                }
+                return super.replace(expected, next);
+            }
+        };
+        MembershipMetrics metrics = new MembershipMetrics(subRepo::size, userRepo::size);
+        MembershipService service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), EventPublisher.NOOP, metrics);
+        for (String user : List.of("user-1", "user-2")) {
+            Subscription s = service.subscribe(user, "MONTHLY", "SILVER");
+            subRepo.replace(s, s.withExpiry(Instant.now().minusSeconds(1)));
+        }
+
+        assertThrows(IllegalStateException.class, service::expireDueSubscriptions);
+        assertEquals(1, metrics.latency(Operation.EXPIRE_DUE).count());
+        assertEquals(1, metrics.expiredTotal());
+    }
+}
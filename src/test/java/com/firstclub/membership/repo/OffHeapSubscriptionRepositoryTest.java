@@ -0,0 +1,163 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapSubscriptionRepositoryTest {
+
+    private static final Instant START = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private static Subscription sub(long n, String userId) {
+        return new Subscription("sub-" + n, userId, "MONTHLY", "SILVER", START, START.plus(30 + n % 300, ChronoUnit.DAYS));
+    }
+
+    // ------------------------------------------------------------
+    // Repository contract
+    // ------------------------------------------------------------
+    @Test
+    void testRoundTripAndUpdates() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        Subscription a = sub(1, "user-1");
+        repo.save(a);
+        repo.save(sub(2, "user-1"));
+
+        Subscription copy = repo.findById("sub-1").orElseThrow();
+        assertNotSame(a, copy);
+        assertEquals("user-1", copy.getUserId());
+        assertEquals("MONTHLY", copy.getPlanId());
+        assertEquals(a.getExpiresAt(), copy.getExpiresAt());
+        assertEquals(SubscriptionStatus.ACTIVE, copy.getStatus());
+
+        assertFalse(copy.isAutoRenew());
+        assertTrue(repo.replace(copy, copy.withTier("GOLD").withAutoRenew(true).cancelled()));
+        assertFalse(repo.replace(copy, copy.withTier("PLATINUM"))); // copies carry the version they were read at
+        Subscription updated = repo.findById("sub-1").orElseThrow();
+        assertEquals("GOLD", updated.getTierId());
+        assertEquals(SubscriptionStatus.CANCELLED, updated.getStatus());
+        assertTrue(updated.isAutoRenew());
+        assertEquals(3, updated.getVersion());
+        assertEquals(2, repo.findByUserId("user-1").size());
+
+        repo.delete("sub-2");
+        assertTrue(repo.findById("sub-2").isEmpty());
+        assertEquals(1, repo.findByUserId("user-1").size());
+        assertEquals(1, repo.size());
+
+        assertTrue(repo.findById("not-an-id").isEmpty());
+        Subscription foreignId = new Subscription("sub-03", "user-1", "MONTHLY", "SILVER", START, START);
+        assertThrows(IllegalArgumentException.class, () -> repo.save(foreignId));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomChurn() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        Map<String, Subscription> model = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long n = random.nextInt(5_000);
+            String id = "sub-" + n;
+            if (random.nextInt(3) == 0) {
+                repo.delete(id);
+                model.remove(id);
+            } else {
+                Subscription s = sub(n, "user-" + random.nextInt(500));
+                repo.save(s);
+                model.put(id, s);
+            }
+        }
+        assertEquals(model.size(), repo.size());
+        for (long n = 0; n < 5_000; n++) {
+            Subscription expected = model.get("sub-" + n);
+            Optional<Subscription> actual = repo.findById("sub-" + n);
+            assertEquals(expected != null, actual.isPresent(), "sub-" + n);
+            if (expected != null) assertEquals(expected.getUserId(), actual.get().getUserId());
+        }
+        Map<String, Long> perUser = new HashMap<>();
+        model.values().forEach(s -> perUser.merge(s.getUserId(), 1L, Long::sum));
+        perUser.forEach((user, count) -> assertEquals(count.intValue(), repo.findByUserId(user).size(), user));
+    }
+
+    @Test
+    void testExpiryScanAndCursor() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        Subscription due = sub(1, "user-1").withExpiry(START.minusSeconds(1));
+        Subscription cancelledDue = sub(2, "user-2").withExpiry(START.minusSeconds(1)).cancelled();
+        repo.saveAll(List.of(due, cancelledDue, sub(3, "user-3")));
+
+        List<Subscription> found = repo.findActiveExpiringBefore(START);
+        assertEquals(List.of("sub-1"), found.stream().map(Subscription::getId).toList());
+        assertTrue(repo.findActiveExpiringBefore(START.minusSeconds(1)).isEmpty());
+
+        long[] active = {0};
+        repo.forEach(c -> { if (c.status() == SubscriptionStatus.ACTIVE) active[0]++; });
+        assertEquals(2, active[0]);
+        assertTrue(repo.read("sub-3", c -> assertEquals("user-3", c.userId())));
+        assertFalse(repo.read("sub-9", c -> fail()));
+    }
+
+    @Test
+    void testWriteInsideCursorCallbackFailsInsteadOfDeadlocking() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        repo.saveAll(List.of(sub(1, "user-1"), sub(2, "user-2")));
+
+        assertThrows(IllegalStateException.class,
+                () -> repo.forEach(c -> repo.replace(c.toSubscription(), c.toSubscription().cancelled())));
+        assertThrows(IllegalStateException.class, () -> repo.read("sub-2", c -> repo.delete(c.id())));
+
+        // Locks were released; collecting first and writing afterwards works
+        List<Subscription> collected = new ArrayList<>();
+        repo.forEach(c -> collected.add(c.toSubscription()));
+        for (Subscription s : collected) assertTrue(repo.replace(s, s.cancelled()));
+        assertEquals(0, repo.findActiveExpiringBefore(START.plus(400, ChronoUnit.DAYS)).size());
+    }
+
+    @Test
+    void testDueRowsTrackExpiryAndStatusChanges() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            long n = random.nextInt(2_000);
+            Optional<Subscription> current = repo.findById("sub-" + n);
+            switch (random.nextInt(4)) {
+                case 0 -> repo.delete("sub-" + n);
+                case 1 -> current.ifPresent(s -> repo.replace(s, s.cancelled()));
+                case 2 -> current.ifPresent(s -> repo.replace(s, s.withExpiry(START.plusMillis(random.nextInt(600_000) - 300_000))));
+                default -> repo.save(sub(n, "user-" + n).withExpiry(START.plusMillis(random.nextInt(600_000) - 300_000)));
+            }
+        }
+        // Cutoffs inside a minute, on the millisecond boundary and between milliseconds
+        for (Instant cutoff : List.of(START, START.plusSeconds(37), START.minusMillis(12_345).plusNanos(1))) {
+            SubscriptionFilter due = SubscriptionFilter.activeExpiringBefore(cutoff);
+            Set<String> expected = new HashSet<>();
+            repo.forEach(c -> {
+                if (c.status() == SubscriptionStatus.ACTIVE && c.expiresMillis() < cutoff.toEpochMilli()
+                        + (cutoff.getNano() % 1_000_000 == 0 ? 0 : 1)) expected.add(c.id());
+            });
+            List<String> found = repo.stream(due).map(Subscription::getId).toList();
+            assertEquals(expected, new HashSet<>(found), cutoff.toString());
+            assertEquals(expected.size(), found.size());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Many segments: rows spread over every segment read back intact
+    // ------------------------------------------------------------
+    @Test
+    void testLargeStoreRoundTrips() {
+        int count = 300_000;
+        OffHeapSubscriptionRepository offHeap = new OffHeapSubscriptionRepository();
+        for (int i = 0; i < count; i++) offHeap.save(sub(i, "user-" + i));
+        assertEquals(count, offHeap.size());
+        for (int i = 0; i < count; i += 9_973) {
+            assertEquals(sub(i, "user-" + i).getExpiresAt(), offHeap.findById("sub-" + i).orElseThrow().getExpiresAt());
+            assertEquals(List.of("sub-" + i), offHeap.findByUserId("user-" + i).stream().map(Subscription::getId).toList());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.IdDictionary;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubscriptionCountsTest {
+
+    private static final String[] PLANS = {"MONTHLY", "QUARTERLY", "YEARLY"};
+    private static final String[] TIERS = {"SILVER", "GOLD", "PLATINUM"};
+    private static final Instant START = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @TempDir
+    Path dir;
+
+    private static Subscription sub(int i, Random rnd) {
+        return new Subscription("sub-" + i, "user-" + rnd.nextInt(200), PLANS[rnd.nextInt(PLANS.length)],
+                TIERS[rnd.nextInt(TIERS.length)], START, START.plus(30, ChronoUnit.DAYS));
+    }
+
+    /** Saves, tier changes, cancels, expiries, overwrites and deletes in a seeded random mix. */
+    private static void churn(SubscriptionRepository repo, long seed, int ops) {
+        Random rnd = new Random(seed);
+        int ids = 500;
+        for (int op = 0; op < ops; op++) {
+            int i = rnd.nextInt(ids);
+            Optional<Subscription> stored = repo.findById("sub-" + i);
+            switch (rnd.nextInt(6)) {
+                case 0 -> repo.save(sub(i, rnd));
+                case 1 -> stored.ifPresent(s -> repo.replace(s, s.withTier(TIERS[rnd.nextInt(TIERS.length)])));
+                case 2 -> stored.ifPresent(s -> repo.replace(s, s.cancelled()));
+                case 3 -> stored.ifPresent(s -> repo.replace(s, s.expired()));
+                case 4 -> stored.ifPresent(s -> repo.replace(s, s.withAutoRenew(!s.isAutoRenew())));
+                default -> repo.delete("sub-" + i);
+            }
+        }
+    }
+
+    private static void assertConsistent(SubscriptionRepository repo) {
+        SubscriptionCounts counts = repo.counts();
+        assertEquals(List.of(), counts.mismatches(repo.findAll()));
+        long total = 0;
+        for (SubscriptionStatus status : SubscriptionStatus.values()) total += counts.count(status);
+        assertEquals(repo.size(), total);
+    }
+
+    // ------------------------------------------------------------
+    // Counts match a full scan after any mix of writes
+    // ------------------------------------------------------------
+    @Test
+    void testInMemoryCountsMatchScan() {
+        InMemorySubscriptionRepository repo = new InMemorySubscriptionRepository();
+        churn(repo, 1, 20_000);
+        assertConsistent(repo);
+    }
+
+    @Test
+    void testOffHeapCountsMatchScan() {
+        OffHeapSubscriptionRepository repo = new OffHeapSubscriptionRepository();
+        churn(repo, 2, 20_000);
+        assertConsistent(repo);
+    }
+
+    @Test
+    void testCountsRebuiltByReplay() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            churn(repo, 3, 5_000);
+            assertConsistent(repo);
+        }
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            assertConsistent(repo);
+        }
+    }
+
+    @Test
+    void testCountQueries() {
+        InMemorySubscriptionRepository repo = new InMemorySubscriptionRepository();
+        Subscription a = new Subscription("sub-1", "user-1", "MONTHLY", "SILVER", START, START.plus(30, ChronoUnit.DAYS));
+        repo.save(a);
+        repo.save(new Subscription("sub-2", "user-2", "MONTHLY", "SILVER", START, START.plus(30, ChronoUnit.DAYS)));
+        assertTrue(repo.replace(a, a.withTier("GOLD")));
+
+        SubscriptionCounts counts = repo.counts();
+        assertEquals(1, counts.count("MONTHLY", "SILVER", SubscriptionStatus.ACTIVE));
+        assertEquals(1, counts.count("MONTHLY", "GOLD", SubscriptionStatus.ACTIVE));
+        assertEquals(0, counts.count("MONTHLY", "GOLD", SubscriptionStatus.CANCELLED));
+        assertEquals(0, counts.count("NO_SUCH_PLAN", "GOLD", SubscriptionStatus.ACTIVE));
+        assertEquals(2, counts.count(SubscriptionStatus.ACTIVE));
+        assertEquals("[MONTHLY/GOLD/ACTIVE, MONTHLY/SILVER/ACTIVE]", counts.snapshot().keySet().toString());
+
+        repo.delete("sub-2");
+        assertEquals(0, counts.count("MONTHLY", "SILVER", SubscriptionStatus.ACTIVE));
+        assertFalse(counts.snapshot().containsKey(
+                new SubscriptionCounts.Key("MONTHLY", "SILVER", SubscriptionStatus.ACTIVE)));
+    }
+
+    @Test
+    void testLargeCodesKeepTheirOwnCells() {
+        for (String plan : PLANS) IdDictionary.PLANS.code(plan);
+        int plan = IdDictionary.PLANS.code("MONTHLY");
+        int tier = IdDictionary.TIERS.code("SILVER");
+        String nextPlan = IdDictionary.PLANS.decode(plan + 1);
+        SubscriptionCounts counts = new SubscriptionCounts();
+
+        // A tier code past 12 bits used to spill into the plan bits and land in the next plan's cell
+        counts.adjust(plan, tier + 4096, SubscriptionStatus.ACTIVE.ordinal(), 1);
+        assertEquals(0, counts.count(nextPlan, "SILVER", SubscriptionStatus.ACTIVE));
+        assertEquals(1, counts.count(SubscriptionStatus.ACTIVE));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> counts.adjust(1 << 23, tier, SubscriptionStatus.ACTIVE.ordinal(), 1));
+        assertEquals("Plan code out of range for counts: 8388608", e.getMessage());
+    }
+
+    // ------------------------------------------------------------
+    // Concurrent compare-and-set writers
+    // ------------------------------------------------------------
+    @Test
+    void testConcurrentWritersKeepCountsExact() throws Exception {
+        InMemorySubscriptionRepository repo = new InMemorySubscriptionRepository();
+        Random seed = new Random(4);
+        for (int i = 0; i < 500; i++) repo.save(sub(i, seed));
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long threadSeed = t;
+            done.add(pool.submit(() -> {
+                start.await();
+                churn(repo, threadSeed, 10_000);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertConsistent(repo);
+    }
+}
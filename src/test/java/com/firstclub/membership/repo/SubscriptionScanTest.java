@@ -0,0 +1,169 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubscriptionScanTest {
+
+    private static final Instant START = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final String[] PLANS = {"MONTHLY", "YEARLY"};
+    private static final SubscriptionStatus[] STATUSES = SubscriptionStatus.values();
+
+    /** Plan, status and expiry vary with n, so every filter below matches a different subset. */
+    private static Subscription sub(int n) {
+        Instant expires = START.plus(n % 40 - 10, ChronoUnit.DAYS);
+        return Subscription.restore("sub-" + n, "user-" + n % 1000, PLANS[n % 2], "SILVER",
+                expires.minus(30, ChronoUnit.DAYS), expires, STATUSES[n % 3 % STATUSES.length], 0, false);
+    }
+
+    private static List<SubscriptionRepository> filled(int n) {
+        List<SubscriptionRepository> stores = List.of(new InMemorySubscriptionRepository(),
+                new OffHeapSubscriptionRepository());
+        List<Subscription> subs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) subs.add(sub(i));
+        for (SubscriptionRepository store : stores) store.saveAll(subs);
+        return stores;
+    }
+
+    private static Set<String> ids(List<Subscription> subs) {
+        return subs.stream().map(Subscription::getId).collect(Collectors.toSet());
+    }
+
+    // ------------------------------------------------------------
+    // Streams
+    // ------------------------------------------------------------
+    @Test
+    void testFilteredStreamsMatchScan() {
+        List<SubscriptionFilter> filters = List.of(
+                SubscriptionFilter.ALL,
+                SubscriptionFilter.byStatus(SubscriptionStatus.CANCELLED),
+                SubscriptionFilter.byPlan("YEARLY"),
+                SubscriptionFilter.byPlan("MONTHLY").withStatus(SubscriptionStatus.ACTIVE),
+                SubscriptionFilter.byPlan("NO_SUCH_PLAN"),
+                SubscriptionFilter.activeExpiringBefore(START.plusNanos(1)));
+        for (SubscriptionRepository store : filled(5_000)) {
+            for (SubscriptionFilter filter : filters) {
+                Set<String> expected = ids(store.findAll().stream().filter(filter::matches).toList());
+                assertEquals(expected, ids(store.stream(filter).toList()), store.getClass().getSimpleName() + " " + filter);
+            }
+            assertEquals(store.size(), store.stream().count());
+        }
+    }
+
+    @Test
+    void testParallelStreamSplitsAcrossStore() {
+        for (SubscriptionRepository store : filled(200_000)) {
+            Spliterator<Subscription> whole = store.stream().spliterator();
+            assertNotNull(whole.trySplit(), store.getClass().getSimpleName());
+
+            Map<SubscriptionStatus, Long> byStatus = store.stream().parallel()
+                    .collect(Collectors.groupingByConcurrent(Subscription::getStatus, Collectors.counting()));
+            for (SubscriptionStatus status : STATUSES) {
+                assertEquals(store.counts().count(status), byStatus.getOrDefault(status, 0L));
+            }
+        }
+    }
+
+    @Test
+    void testPipelineMayWriteBack() {
+        for (SubscriptionRepository store : filled(10_000)) {
+            SubscriptionFilter due = SubscriptionFilter.activeExpiringBefore(START);
+            long expected = store.stream(due).count();
+            long expired = store.stream(due).filter(s -> store.replace(s, s.expired())).count();
+            assertEquals(expected, expired);
+            assertEquals(0, store.stream(due).count());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Paged cursors
+    // ------------------------------------------------------------
+    @Test
+    void testPagesVisitEachSubscriptionOnceAcrossWrites() {
+        int n = 3_000;
+        for (SubscriptionRepository store : filled(n)) {
+            Map<String, Integer> seen = new HashMap<>();
+            Set<String> deleted = new HashSet<>();
+            String token = null;
+            int pages = 0;
+            do {
+                SubscriptionPage page = store.page(SubscriptionFilter.ALL, token, 97);
+                for (Subscription s : page.items()) seen.merge(s.getId(), 1, Integer::sum);
+                token = page.nextToken();
+                // Writes between pages: change one, delete one, add one
+                int k = pages * 31 % n;
+                store.findById("sub-" + k).ifPresent(s -> store.replace(s, s.withTier("GOLD")));
+                if (deleted.add("sub-" + (n - 1 - pages))) store.delete("sub-" + (n - 1 - pages));
+                store.save(sub(n + pages));
+                pages++;
+            } while (token != null);
+
+            assertTrue(pages > n / 97, store.getClass().getSimpleName());
+            for (int i = 0; i < n; i++) {
+                String id = "sub-" + i;
+                if (deleted.contains(id)) continue;
+                assertEquals(1, seen.getOrDefault(id, 0), store.getClass().getSimpleName() + " " + id);
+            }
+            assertTrue(seen.values().stream().allMatch(c -> c == 1));
+        }
+    }
+
+    @Test
+    void testFilteredPages() {
+        for (SubscriptionRepository store : filled(2_000)) {
+            SubscriptionFilter filter = SubscriptionFilter.byPlan("YEARLY").withStatus(SubscriptionStatus.EXPIRED);
+            Set<String> paged = new HashSet<>();
+            String token = null;
+            do {
+                SubscriptionPage page = store.page(filter, token, 50);
+                assertTrue(page.items().size() <= 50);
+                page.items().forEach(s -> assertTrue(filter.matches(s)));
+                page.items().forEach(s -> assertTrue(paged.add(s.getId())));
+                token = page.nextToken();
+            } while (token != null);
+            assertEquals(ids(store.stream(filter).toList()), paged);
+        }
+    }
+
+    @Test
+    void testPageArguments() {
+        for (SubscriptionRepository store : filled(10)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> store.page(SubscriptionFilter.ALL, null, 0));
+            assertEquals("Page size must be positive: 0", e.getMessage());
+            SubscriptionPage all = store.page(SubscriptionFilter.ALL, null, 10);
+            assertEquals(10, all.items().size());
+            assertTrue(store.page(SubscriptionFilter.ALL, all.nextToken(), 10).items().isEmpty());
+        }
+    }
+
+    @Test
+    void testGarbageAndForeignPageTokensRejected() {
+        SubscriptionRepository inMemory = new InMemorySubscriptionRepository();
+        SubscriptionRepository offHeap = new OffHeapSubscriptionRepository();
+        for (SubscriptionRepository store : List.of(inMemory, offHeap)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> store.page(SubscriptionFilter.ALL, "not-a-row", 10));
+            assertEquals("Invalid page token: not-a-row", e.getMessage());
+        }
+        List<SubscriptionRepository> stores = filled(10);
+        String inMemoryToken = stores.get(0).page(SubscriptionFilter.ALL, null, 3).nextToken();
+        String offHeapToken = stores.get(1).page(SubscriptionFilter.ALL, null, 3).nextToken();
+        assertThrows(IllegalArgumentException.class, () -> stores.get(0).page(SubscriptionFilter.ALL, offHeapToken, 3));
+        assertThrows(IllegalArgumentException.class, () -> stores.get(1).page(SubscriptionFilter.ALL, inMemoryToken, 3));
+    }
+}
@@ -0,0 +1,302 @@
+package com.firstclub.membership.repo;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalSubscriptionRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private static Subscription sub(String id, String userId) {
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        return new Subscription(id, userId, "MONTHLY", "SILVER", start, start.plus(30, ChronoUnit.DAYS));
+    }
+
+    // ------------------------------------------------------------
+    // Crash recovery
+    // ------------------------------------------------------------
+    @Test
+    void testReplayRestoresLatestState() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        Subscription a = sub("sub-1", "user-1");
+        Subscription b = sub("sub-2", "user-2");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            repo.saveAll(List.of(a, b));
+            Subscription gold = a.withTier("GOLD").withAutoRenew(true);
+            assertTrue(repo.replace(a, gold));
+            assertTrue(repo.replace(gold, gold.cancelled()));
+            assertFalse(repo.replace(a, a.withTier("PLATINUM"))); // stale version: never logged
+            repo.delete(b.getId());
+        }
+
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            Subscription restored = repo.findById("sub-1").orElseThrow();
+            assertEquals("GOLD", restored.getTierId());
+            assertEquals(SubscriptionStatus.CANCELLED, restored.getStatus());
+            assertTrue(restored.isAutoRenew());
+            assertEquals(3, restored.getVersion());
+            assertEquals(a.getExpiresAt(), restored.getExpiresAt());
+            assertTrue(repo.findById("sub-2").isEmpty());
+            assertEquals(1, repo.findByUserId("user-1").size());
+        }
+    }
+
+    @Test
+    void testFailedLogRollsBackAndTurnsReadOnly() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        Subscription a = sub("sub-1", "user-1");
+        Subscription b = sub("sub-2", "user-2");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            repo.saveAll(List.of(a, b));
+            repo.log().close(); // every append from now on throws
+
+            assertThrows(IllegalStateException.class, () -> repo.replace(a, a.withTier("GOLD")));
+            assertSame(a, repo.findById("sub-1").orElseThrow());
+            assertThrows(IllegalStateException.class,
+                    () -> repo.replaceAll(List.of(a, b), List.of(a.cancelled(), b.cancelled())));
+            assertSame(a, repo.findById("sub-1").orElseThrow());
+            assertSame(b, repo.findById("sub-2").orElseThrow());
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> repo.save(sub("sub-3", "user-3")));
+            assertEquals("Subscription log failed; the store is read-only until restart.", e.getMessage());
+            assertThrows(IllegalStateException.class, () -> repo.delete("sub-2"));
+            assertEquals(2, repo.size());
+        }
+
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            assertEquals(2, repo.size());
+            assertEquals("SILVER", repo.findById("sub-1").orElseThrow().getTierId());
+            assertEquals(SubscriptionStatus.ACTIVE, repo.findById("sub-2").orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    void testFailedAsyncFlushTurnsReadOnly() throws Exception {
+        WalSubscriptionRepository repo = new WalSubscriptionRepository(dir.resolve("subs.wal"), DurabilityMode.ASYNC);
+        repo.save(sub("sub-1", "user-1"));
+        // Pull the file out from under the background flusher
+        Field channel = WriteAheadLog.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(repo.log())).close();
+        repo.save(sub("sub-2", "user-2")); // ASYNC: accepted, then the next flush fails
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (repo.log().failure() == null && System.nanoTime() < deadline) Thread.sleep(1);
+        assertNotNull(repo.log().failure());
+        ReadOnlyStoreException e = assertThrows(ReadOnlyStoreException.class, () -> repo.save(sub("sub-3", "user-3")));
+        assertSame(repo.log().failure(), e.getCause());
+        assertTrue(repo.findById("sub-3").isEmpty());
+        assertThrows(UncheckedIOException.class, repo::close);
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnOpen() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.PER_WRITE)) {
+            repo.save(sub("sub-1", "user-1"));
+            repo.save(sub("sub-2", "user-1"));
+        }
+        long intact = Files.size(wal);
+        // Simulate a crash mid-append: a header promising more bytes than were written
+        try (FileChannel ch = FileChannel.open(wal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ch.write(ByteBuffer.allocate(12).putInt(500).putInt(0).putInt(42).flip());
+        }
+
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.PER_WRITE)) {
+            assertEquals(2, repo.findAll().size());
+            assertEquals(intact, Files.size(wal));
+            repo.save(sub("sub-3", "user-2"));
+        }
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.ASYNC)) {
+            assertEquals(3, repo.findAll().size());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Snapshot + log tail restore
+    // ------------------------------------------------------------
+    @Test
+    void testSnapshotPlusTailReplayRestoresState() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        Path snapshot = dir.resolve("snapshot.bin");
+        var plans = new InMemoryPlanRepository();
+        var users = new InMemoryUserRepository();
+        DataBootstrap.seed(plans, users);
+        Subscription a = sub("sub-1", "user-1");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED)) {
+            repo.saveAll(List.of(a, sub("sub-2", "user-2")));
+            SnapshotFile.Header header = SnapshotFile.write(snapshot, repo.checkpointLsn(),
+                    plans.findAll(), users.findAll(), repo.findAll());
+            assertEquals(Files.size(wal), header.walLsn());
+            // Tail written after the snapshot
+            assertTrue(repo.replace(a, a.withTier("GOLD")));
+            repo.save(sub("sub-3", "user-3"));
+        }
+
+        var restoredPlans = new InMemoryPlanRepository();
+        var restoredUsers = new InMemoryUserRepository();
+        var memory = new InMemorySubscriptionRepository();
+        SnapshotFile.Header header = SnapshotFile.load(snapshot, restoredPlans, restoredUsers, memory);
+        assertEquals(2, header.subscriptions());
+        assertEquals("SILVER", memory.findById("sub-1").orElseThrow().getTierId());
+
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.BATCHED, memory,
+                header.walLsn())) {
+            assertEquals(3, repo.findAll().size());
+            assertEquals("GOLD", repo.findById("sub-1").orElseThrow().getTierId());
+            assertEquals(a.getExpiresAt(), repo.findById("sub-1").orElseThrow().getExpiresAt());
+        }
+        MembershipPlan monthly = restoredPlans.findById("MONTHLY").orElseThrow();
+        MembershipPlan original = plans.findById("MONTHLY").orElseThrow();
+        assertEquals(original.getDuration(), monthly.getDuration());
+        assertEquals(original.getTiers().size(), monthly.getTiers().size());
+        assertEquals(original.tier("PLATINUM").getBenefits().toString(), monthly.tier("PLATINUM").getBenefits().toString());
+        assertEquals("Demo User", restoredUsers.findById("user-1").orElseThrow().getName());
+    }
+
+    @Test
+    void testAsyncSnapshotSurvivesCrashAfterCheckpoint() throws Exception {
+        Path wal = dir.resolve("subs.wal");
+        Path crashed = dir.resolve("crashed.wal");
+        Path snapshot = dir.resolve("snapshot.bin");
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, DurabilityMode.ASYNC)) {
+            for (int i = 0; i < 100; i++) repo.save(sub("sub-" + i, "user-" + i));
+            long lsn = repo.checkpointLsn();
+            // Crash right after the checkpoint: only what is on disk now survives
+            Files.copy(wal, crashed);
+            assertTrue(Files.size(crashed) >= lsn);
+            SnapshotFile.write(snapshot, lsn, List.of(), List.of(), repo.findAll());
+        }
+
+        var memory = new InMemorySubscriptionRepository();
+        SnapshotFile.Header header = SnapshotFile.load(snapshot, new InMemoryPlanRepository(),
+                new InMemoryUserRepository(), memory);
+        try (WalSubscriptionRepository repo = new WalSubscriptionRepository(crashed, DurabilityMode.ASYNC, memory,
+                header.walLsn())) {
+            assertEquals(100, repo.size());
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotRejected() throws Exception {
+        Path snapshot = dir.resolve("snapshot.bin");
+        SnapshotFile.write(snapshot, 0, List.of(), List.of(), List.of(sub("sub-1", "user-1")));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        var memory = new InMemorySubscriptionRepository();
+        assertThrows(IOException.class, () -> SnapshotFile.load(snapshot, new InMemoryPlanRepository(),
+                new InMemoryUserRepository(), memory));
+        assertTrue(memory.findAll().isEmpty());
+    }
+
+    @Test
+    void testLargeSnapshotRoundTrips() throws Exception {
+        int count = 200_000;
+        List<Subscription> subs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) subs.add(sub("sub-" + i, "user-" + (i % 50_000)));
+        Path snapshot = dir.resolve("snapshot.bin");
+        SnapshotFile.write(snapshot, 0, List.of(), List.of(), subs);
+        var memory = new InMemorySubscriptionRepository();
+        SnapshotFile.Header header = SnapshotFile.load(snapshot, new InMemoryPlanRepository(),
+                new InMemoryUserRepository(), memory);
+        assertEquals(count, header.subscriptions());
+        assertEquals(count, memory.size());
+        assertEquals(subs.get(count - 1).getUserId(), memory.findById("sub-" + (count - 1)).orElseThrow().getUserId());
+    }
+
+    @Test
+    void testStreamedSnapshotRoundTrips() throws Exception {
+        Path snapshot = dir.resolve("snapshot.bin");
+        var source = new InMemorySubscriptionRepository();
+        for (int i = 0; i < 1_000; i++) source.save(sub("sub-" + i, "user-" + i));
+        SnapshotFile.Header written;
+        try (var subscriptions = source.stream().filter(s -> !s.getId().endsWith("7"))) {
+            written = SnapshotFile.write(snapshot, 0, List.of(), List.of(), subscriptions);
+        }
+        assertEquals(900, written.subscriptions());
+
+        var memory = new InMemorySubscriptionRepository();
+        SnapshotFile.Header header = SnapshotFile.load(snapshot, new InMemoryPlanRepository(),
+                new InMemoryUserRepository(), memory);
+        assertEquals(900, header.subscriptions());
+        assertEquals(900, memory.size());
+        assertTrue(memory.findById("sub-7").isEmpty());
+    }
+
+    @Test
+    void testOtherSnapshotVersionRejected() throws Exception {
+        Path snapshot = dir.resolve("snapshot.bin");
+        SnapshotFile.write(snapshot, 0, List.of(), List.of(), List.of(sub("sub-1", "user-1")));
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        bytes.putInt(4, 2); // version, with a checksum that still matches
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.array(), 0, bytes.capacity() - 4);
+        bytes.putInt(bytes.capacity() - 4, (int) crc.getValue());
+        Files.write(snapshot, bytes.array());
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.load(snapshot,
+                new InMemoryPlanRepository(), new InMemoryUserRepository(), new InMemorySubscriptionRepository()));
+        assertEquals("Unsupported snapshot version: 2", e.getMessage());
+    }
+
+    // ------------------------------------------------------------
+    // Concurrent saves survive a reopen in every durability mode
+    // ------------------------------------------------------------
+    @Test
+    void testConcurrentSavesSurviveReopenInEveryMode() throws Exception {
+        int threads = 8;
+        int perThread = 100;
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            Path wal = dir.resolve(mode + ".wal");
+            try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, mode)) {
+                concurrentSaves(repo, threads, perThread);
+            }
+            try (WalSubscriptionRepository repo = new WalSubscriptionRepository(wal, mode)) {
+                assertEquals(threads * perThread, repo.findAll().size());
+            }
+        }
+    }
+
+    private static void concurrentSaves(SubscriptionRepository repo, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    repo.save(sub("sub-" + thread + "-" + i, "user-" + thread));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,100 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.model.Benefit;
+import com.firstclub.membership.model.BenefitType;
+import com.firstclub.membership.model.Entitlements;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.util.StripedLocks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntitlementServiceTest {
+
+    private InMemoryPlanRepository planRepo;
+    private InMemoryUserRepository userRepo;
+    private InMemorySubscriptionRepository subRepo;
+    private EntitlementService entitlements;
+    private MembershipService service;
+
+    @BeforeEach
+    void setup() {
+        planRepo = new InMemoryPlanRepository();
+        userRepo = new InMemoryUserRepository();
+        subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        entitlements = new EntitlementService(subRepo, planRepo);
+        service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), entitlements.andThen(EventPublisher.NOOP));
+    }
+
+    // ------------------------------------------------------------
+    // Flattened tier benefits
+    // ------------------------------------------------------------
+    @Test
+    void testEntitlementsFlattenTierBenefits() {
+        Entitlements e = Entitlements.of(List.of(Benefit.freeDelivery(300), Benefit.freeDelivery(100),
+                Benefit.discountPercent(5), Benefit.discountPercent(10)));
+        assertTrue(e.has(BenefitType.DELIVERY));
+        assertFalse(e.has(BenefitType.SUPPORT));
+        assertEquals(100, e.value(BenefitType.DELIVERY)); // lowest threshold wins
+        assertEquals(10, e.discountPercent()); // highest discount wins
+        assertFalse(e.freeDeliveryOn(99));
+        assertTrue(e.freeDeliveryOn(100));
+        assertSame(Entitlements.NONE, Entitlements.of(List.of()));
+        assertFalse(Entitlements.NONE.freeDeliveryOn(1_000_000));
+    }
+
+    // ------------------------------------------------------------
+    // Cache follows the subscription lifecycle
+    // ------------------------------------------------------------
+    @Test
+    void testCacheInvalidatedOnEveryLifecycleChange() {
+        assertEquals(0, entitlements.discountPercent("user-1"));
+
+        Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
+        assertFalse(entitlements.freeDelivery("user-1", 99));
+        assertTrue(entitlements.freeDelivery("user-1", 350));
+        assertEquals(5, entitlements.discountPercent("user-1"));
+        assertFalse(entitlements.has("user-1", BenefitType.EARLY_ACCESS));
+
+        service.upgradeOrDowngrade(s.getId(), "GOLD");
+        assertTrue(entitlements.freeDelivery("user-1", 1));
+        assertEquals(10, entitlements.discountPercent("user-1"));
+
+        service.evaluateAndApplyTier(s.getId(), Map.of("ordersCount", 12));
+        assertTrue(entitlements.has("user-1", BenefitType.SUPPORT));
+
+        Subscription current = subRepo.findById(s.getId()).orElseThrow();
+        subRepo.replace(current, current.withExpiry(Instant.now().minusSeconds(1)));
+        service.expireDueSubscriptions();
+        assertSame(Entitlements.NONE, entitlements.entitlementsFor("user-1"));
+
+        Subscription next = service.subscribe("user-1", "YEARLY", "GOLD");
+        assertEquals(10, entitlements.discountPercent("user-1"));
+        service.cancelSubscription(next.getId());
+        assertEquals(0, entitlements.discountPercent("user-1"));
+    }
+
+    @Test
+    void testHitsReturnTheSharedTierEntitlements() {
+        userRepo.save(new User("user-2", "Other"));
+        service.subscribe("user-1", "MONTHLY", "PLATINUM");
+        service.subscribe("user-2", "YEARLY", "PLATINUM");
+        Entitlements first = entitlements.entitlementsFor("user-1");
+        assertSame(first, entitlements.entitlementsFor("user-1"));
+        assertSame(planRepo.findById("MONTHLY").orElseThrow().tier("PLATINUM").getEntitlements(), first);
+        assertEquals(15, entitlements.discountPercent("user-2"));
+    }
+}
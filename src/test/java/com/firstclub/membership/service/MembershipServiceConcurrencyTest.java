@@ -0,0 +1,147 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MembershipServiceConcurrencyTest {
+
+    private static final int USERS = 512;
+
+    private InMemorySubscriptionRepository subRepo;
+    private MembershipService service;
+
+    @BeforeEach
+    void setup() {
+        InMemoryPlanRepository planRepo = new InMemoryPlanRepository();
+        InMemoryUserRepository userRepo = new InMemoryUserRepository();
+        subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        for (int i = 0; i < USERS; i++) userRepo.save(new User("u-" + i, "User " + i));
+        service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator());
+    }
+
+    // ------------------------------------------------------------
+    // Racing subscribes for one user: exactly one may win
+    // ------------------------------------------------------------
+    @Test
+    void testConcurrentSubscribeSameUserOnlyOneActive() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.subscribe("u-0", "MONTHLY", "SILVER");
+                    created.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+
+        assertEquals(1, created.get());
+        assertEquals(threads - 1, rejected.get());
+        assertEquals(1, subRepo.findByUserId("u-0").size());
+    }
+
+    // ------------------------------------------------------------
+    // Racing tier changes on one subscription: none is lost
+    // ------------------------------------------------------------
+    @Test
+    void testConcurrentTierChangesEachApplyOnce() throws Exception {
+        Subscription s = service.subscribe("u-0", "MONTHLY", "SILVER");
+        String[] tiers = {"SILVER", "GOLD", "PLATINUM"};
+        int threads = 8;
+        int changesPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < changesPerThread; i++) {
+                    service.upgradeOrDowngrade(s.getId(), tiers[(offset + i) % tiers.length]);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+
+        Subscription current = subRepo.findById(s.getId()).orElseThrow();
+        assertEquals(SubscriptionStatus.ACTIVE, current.getStatus());
+        assertTrue(current.getVersion() > 0 && current.getVersion() <= (long) threads * changesPerThread,
+                "version " + current.getVersion());
+        // The stale copy from subscribe can no longer be swapped in
+        assertFalse(subRepo.replace(s, s.cancelled()));
+        assertEquals(SubscriptionStatus.ACTIVE, subRepo.findById(s.getId()).orElseThrow().getStatus());
+    }
+
+    // ------------------------------------------------------------
+    // Subscribe/cancel churn across threads: the one-ACTIVE rule holds
+    // ------------------------------------------------------------
+    @Test
+    void testOneActiveRuleUnderParallelChurn() throws Exception {
+        churn(Math.max(2, Runtime.getRuntime().availableProcessors()), 20_000);
+
+        for (int i = 0; i < USERS; i++) {
+            long active = subRepo.findByUserId("u-" + i).stream()
+                    .filter(s -> s.getStatus() == SubscriptionStatus.ACTIVE)
+                    .count();
+            assertTrue(active <= 1, "user u-" + i + " has " + active + " ACTIVE subscriptions");
+        }
+    }
+
+    private void churn(int threads, int opsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < opsPerThread; i++) {
+                    String userId = "u-" + rnd.nextInt(USERS);
+                    try {
+                        Subscription s = service.subscribe(userId, "MONTHLY", "SILVER");
+                        if (rnd.nextBoolean()) service.cancelSubscription(s.getId());
+                    } catch (IllegalStateException alreadyActive) {
+                        for (Subscription s : service.getSubscriptionsForUser(userId)) {
+                            if (s.getStatus() == SubscriptionStatus.ACTIVE) service.cancelSubscription(s.getId());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+    }
+}
@@ -1,16 +1,26 @@
 package com.firstclub.membership.service;
 
 import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.dto.BulkResult;
+import com.firstclub.membership.dto.CreateSubscriptionRequest;
+import com.firstclub.membership.dto.UpdateSubscriptionRequest;
+import com.firstclub.membership.event.LifecycleEventType;
 import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
 import com.firstclub.membership.model.Subscription;
 import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.User;
 import com.firstclub.membership.repo.InMemoryPlanRepository;
 import com.firstclub.membership.repo.InMemorySubscriptionRepository;
 import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.repo.SubscriptionFilter;
+import com.firstclub.membership.repo.SubscriptionPage;
+import com.firstclub.membership.util.StripedLocks;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.time.Period;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -36,6 +46,16 @@ public class MembershipServiceTest {
         service = new MembershipService(subRepo, planRepo, userRepo, evaluator);
     }
 
+    private Subscription current(Subscription s) {
+        return subRepo.findById(s.getId()).orElseThrow();
+    }
+
+    /** Moves the stored subscription's expiry into the past, so the next sweep expires it. */
+    private void forceExpiry(Subscription s) {
+        Subscription stored = current(s);
+        assertTrue(subRepo.replace(stored, stored.withExpiry(Instant.now().minusSeconds(10))));
+    }
+
     // ------------------------------------------------------------
     // Subscription creation
     // ------------------------------------------------------------
@@ -52,13 +72,28 @@ public class MembershipServiceTest {
         assertTrue(s.getExpiresAt().isAfter(Instant.now()));
     }
 
+    @Test
+    void testPlanAndTierHeldAsDictionaryCodes() {
+        Subscription s = service.subscribe("user-1", "YEARLY", "GOLD");
+        MembershipPlan yearly = planRepo.findById("YEARLY").orElseThrow();
+
+        assertEquals(yearly.getCode(), s.getPlanCode());
+        assertSame(yearly, planRepo.findByCode(s.getPlanCode()).orElseThrow());
+        assertEquals(yearly.tier("GOLD").getCode(), s.getTierCode());
+        assertTrue(yearly.hasTier(s.getTierCode()));
+        // Tier codes are shared across plans
+        assertEquals(planRepo.findById("MONTHLY").orElseThrow().tier("GOLD").getCode(), s.getTierCode());
+        assertFalse(yearly.hasTier("DIAMOND"));
+        assertFalse(yearly.hasTier(-1));
+    }
+
     // NEW TEST — Prevent creating more than one ACTIVE subscription
     @Test
     void testPreventMultipleActiveSubscriptions() {
         service.subscribe("user-1", "MONTHLY", "SILVER");
 
-        IllegalStateException ex = assertThrows(
-                IllegalStateException.class,
+        RuleViolationException ex = assertThrows(
+                RuleViolationException.class,
                 () -> service.subscribe("user-1", "YEARLY", "GOLD")
         );
 
@@ -84,7 +119,7 @@ public class MembershipServiceTest {
         Subscription s1 = service.subscribe("user-1", "MONTHLY", "SILVER");
 
         // Force expiry
-        s1.extendExpiry(Instant.now().minusSeconds(10));
+        forceExpiry(s1);
         service.expireDueSubscriptions();
 
         // Now allowed
@@ -110,11 +145,11 @@ public class MembershipServiceTest {
         Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
 
         // force expiry
-        s.extendExpiry(Instant.now().minusSeconds(10));
+        forceExpiry(s);
         service.expireDueSubscriptions();
 
-        IllegalStateException ex = assertThrows(
-                IllegalStateException.class,
+        RuleViolationException ex = assertThrows(
+                RuleViolationException.class,
                 () -> service.upgradeOrDowngrade(s.getId(), "GOLD")
         );
 
@@ -161,6 +196,86 @@ public class MembershipServiceTest {
         assertEquals(SubscriptionStatus.CANCELLED, cancelled.getStatus());
     }
 
+    @Test
+    void testCancelTwiceWritesAndPublishesOnce() {
+        List<LifecycleEventType> events = new CopyOnWriteArrayList<>();
+        service = new MembershipService(subRepo, planRepo, userRepo, new SimpleTierEvaluator(),
+                StripedLocks.forAvailableProcessors(), (type, sub, previousTier) -> events.add(type));
+        Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
+
+        Subscription cancelled = service.cancelSubscription(s.getId());
+        assertSame(cancelled, current(s));
+        assertSame(cancelled, service.cancelSubscription(s.getId()));
+        assertEquals(cancelled.getVersion(), current(s).getVersion());
+
+        assertSame(cancelled, service.cancelAll(List.of(s.getId())).get(0).value());
+        assertSame(cancelled, current(s));
+        assertEquals(List.of(LifecycleEventType.SUBSCRIBED, LifecycleEventType.CANCELLED), events);
+    }
+
+    // ------------------------------------------------------------
+    // Auto-renewal flag
+    // ------------------------------------------------------------
+    @Test
+    void testAutoRenewFlag() {
+        Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER", true);
+        assertTrue(s.isAutoRenew());
+        assertEquals(0, s.getVersion());
+
+        assertFalse(service.setAutoRenew(s.getId(), false).isAutoRenew());
+        assertFalse(current(s).isAutoRenew());
+
+        service.cancelSubscription(s.getId());
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.setAutoRenew(s.getId(), true));
+        assertEquals("Only ACTIVE subscriptions can change auto-renewal.", e.getMessage());
+    }
+
+    // ------------------------------------------------------------
+    // Live counts by plan, tier and status
+    // ------------------------------------------------------------
+    @Test
+    void testCountsFollowLifecycle() {
+        userRepo.save(new User("user-2", "Second User"));
+        userRepo.save(new User("user-3", "Third User"));
+        Subscription a = service.subscribe("user-1", "MONTHLY", "SILVER");
+        Subscription b = service.subscribe("user-2", "MONTHLY", "SILVER");
+        service.subscribe("user-3", "YEARLY", "GOLD");
+        assertEquals(2, service.countSubscriptions("MONTHLY", "SILVER", SubscriptionStatus.ACTIVE));
+
+        service.upgradeOrDowngrade(a.getId(), "PLATINUM");
+        service.cancelSubscription(b.getId());
+        forceExpiry(a);
+        service.expireDueSubscriptions();
+
+        assertEquals(0, service.countSubscriptions("MONTHLY", "SILVER", SubscriptionStatus.ACTIVE));
+        assertEquals(1, service.countSubscriptions("MONTHLY", "SILVER", SubscriptionStatus.CANCELLED));
+        assertEquals(1, service.countSubscriptions("MONTHLY", "PLATINUM", SubscriptionStatus.EXPIRED));
+        assertEquals(1, service.countSubscriptions("YEARLY", "GOLD", SubscriptionStatus.ACTIVE));
+        assertEquals(0, service.countSubscriptions("NO_SUCH_PLAN", "GOLD", SubscriptionStatus.ACTIVE));
+        assertEquals(3, service.subscriptionCounts().size());
+        assertEquals(List.of(), subRepo.counts().mismatches(subRepo.findAll()));
+    }
+
+    @Test
+    void testListSubscriptionsByPage() {
+        for (int i = 2; i <= 5; i++) userRepo.save(new User("user-" + i, "User " + i));
+        Subscription cancelled = service.subscribe("user-1", "MONTHLY", "SILVER");
+        service.cancelSubscription(cancelled.getId());
+        for (int i = 1; i <= 5; i++) service.subscribe("user-" + i, i % 2 == 0 ? "YEARLY" : "MONTHLY", "GOLD");
+
+        SubscriptionFilter active = SubscriptionFilter.byStatus(SubscriptionStatus.ACTIVE);
+        SubscriptionPage first = service.listSubscriptions(active, null, 3);
+        assertEquals(3, first.items().size());
+        SubscriptionPage second = service.listSubscriptions(active, first.nextToken(), 3);
+        assertEquals(2, second.items().size());
+        assertFalse(second.hasMore());
+
+        assertEquals(2, service.listSubscriptions(SubscriptionFilter.byPlan("YEARLY"), null, 10).items().size());
+        assertEquals(List.of(current(cancelled)), service.listSubscriptions(
+                SubscriptionFilter.byStatus(SubscriptionStatus.CANCELLED), null, 10).items());
+    }
+
     // ------------------------------------------------------------
     // List user subscriptions (UPDATED)
     // ------------------------------------------------------------
@@ -223,6 +338,114 @@ public class MembershipServiceTest {
         assertEquals("SILVER", evaluated.getTierId());
     }
 
+    // ------------------------------------------------------------
+    // Bulk operations
+    // ------------------------------------------------------------
+    @Test
+    void testSubscribeAllReportsPerItemResults() {
+        userRepo.save(new User("user-2", "Second User"));
+
+        List<BulkResult<Subscription>> results = service.subscribeAll(List.of(
+                new CreateSubscriptionRequest("user-1", "MONTHLY", "SILVER"),
+                new CreateSubscriptionRequest("user-1", "YEARLY", "GOLD"),
+                new CreateSubscriptionRequest("user-2", "YEARLY", "INVALID"),
+                new CreateSubscriptionRequest("ghost", "MONTHLY", "SILVER"),
+                new CreateSubscriptionRequest("user-2", "YEARLY", "GOLD")
+        ));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("User already has an ACTIVE subscription.", results.get(1).error().getMessage());
+        assertTrue(results.get(2).error().getMessage().contains("not part of plan"));
+        assertEquals("User not found: ghost", results.get(3).error().getMessage());
+        assertEquals("GOLD", results.get(4).value().getTierId());
+        assertEquals(2, subRepo.findAll().size());
+    }
+
+    @Test
+    void testChangeTierAllAndCancelAll() {
+        userRepo.save(new User("user-2", "Second User"));
+        Subscription s1 = service.subscribe("user-1", "MONTHLY", "SILVER");
+        Subscription s2 = service.subscribe("user-2", "MONTHLY", "SILVER");
+
+        List<BulkResult<Subscription>> changed = service.changeTierAll(List.of(
+                new UpdateSubscriptionRequest(s1.getId(), "PLATINUM"),
+                new UpdateSubscriptionRequest(s2.getId(), null),
+                new UpdateSubscriptionRequest("missing", "GOLD")
+        ));
+
+        assertEquals("PLATINUM", changed.get(0).value().getTierId());
+        assertEquals(SubscriptionStatus.CANCELLED, changed.get(1).value().getStatus());
+        assertFalse(changed.get(2).isSuccess());
+
+        List<BulkResult<Subscription>> cancelled = service.cancelAll(List.of(s1.getId()));
+        assertTrue(cancelled.get(0).isSuccess());
+        assertEquals(SubscriptionStatus.CANCELLED, service.getSubscription(s1.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testBulkReevaluationAppliesOnlyChangedTiers() {
+        userRepo.save(new User("user-2", "Second User"));
+        userRepo.save(new User("user-3", "Third User"));
+        Subscription up = service.subscribe("user-1", "MONTHLY", "SILVER");
+        Subscription same = service.subscribe("user-2", "MONTHLY", "GOLD");
+        Subscription noMetrics = service.subscribe("user-3", "MONTHLY", "SILVER");
+
+        TierReevaluationEngine engine = new TierReevaluationEngine(subRepo, planRepo, new SimpleTierEvaluator());
+        TierReevaluationEngine.Report report = engine.reevaluateAll(TierReevaluationEngine.MetricsSource.byUserId(Map.of(
+                "user-1", Map.of("ordersCount", 12),
+                "user-2", Map.of("ordersCount", 6)
+        )));
+
+        assertEquals(2, report.evaluated());
+        assertEquals(1, report.changed());
+        assertEquals(1, report.skipped());
+        assertEquals("PLATINUM", current(up).getTierId());
+        assertEquals("GOLD", current(same).getTierId());
+        assertEquals("SILVER", current(noMetrics).getTierId());
+    }
+
+    @Test
+    void testReevaluationSurvivesFailingRecordsAndStore() {
+        userRepo.save(new User("user-2", "Second User"));
+        userRepo.save(new User("user-3", "Third User"));
+        Subscription up = service.subscribe("user-1", "MONTHLY", "SILVER");
+        Subscription badMetrics = service.subscribe("user-2", "MONTHLY", "SILVER");
+        Subscription badEvaluation = service.subscribe("user-3", "MONTHLY", "SILVER");
+        TierEvaluator evaluator = metrics -> {
+            if (metrics.getOrDefault("ordersCount", 0).intValue() == 7) throw new IllegalStateException("model failed");
+            return new SimpleTierEvaluator().evaluate(metrics);
+        };
+        Map<String, Map<String, Number>> metrics = Map.of(
+                "user-1", Map.of("ordersCount", 12),
+                "user-3", Map.of("ordersCount", 7));
+        TierReevaluationEngine.MetricsSource source = s -> {
+            if (s.getUserId().equals("user-2")) throw new IllegalArgumentException("corrupt metrics row");
+            return metrics.get(s.getUserId());
+        };
+
+        TierReevaluationEngine.Report report = new TierReevaluationEngine(subRepo, planRepo, evaluator)
+                .reevaluateAll(source);
+        assertEquals(1, report.changed());
+        assertEquals(2, report.failed());
+        assertEquals("PLATINUM", current(up).getTierId());
+        assertEquals("SILVER", current(badMetrics).getTierId());
+        assertEquals("SILVER", current(badEvaluation).getTierId());
+
+        // A store that cannot write fails the batch, not the run
+        var failingStore = new InMemorySubscriptionRepository() {
+            @Override
+            public boolean[] replaceAll(List<Subscription> expected, List<Subscription> next) {
+                throw new IllegalStateException("store failed");
+            }
+        };
+        failingStore.save(current(badMetrics).withTier("GOLD"));
+        TierReevaluationEngine.Report storeFailed = new TierReevaluationEngine(failingStore, planRepo, evaluator)
+                .reevaluateAll(TierReevaluationEngine.MetricsSource.byUserId(Map.of("user-2", Map.of("ordersCount", 12))));
+        assertEquals(1, storeFailed.evaluated());
+        assertEquals(0, storeFailed.changed());
+        assertEquals(1, storeFailed.failed());
+    }
+
     // ------------------------------------------------------------
     // Expiry Logic
     // ------------------------------------------------------------
@@ -231,8 +454,7 @@ public class MembershipServiceTest {
         Subscription s = service.subscribe("user-1", "MONTHLY", "SILVER");
 
         // Force expiry
-        Subscription loaded = service.getSubscription(s.getId()).orElseThrow();
-        loaded.extendExpiry(Instant.now().minusSeconds(10));
+        forceExpiry(s);
 
         service.expireDueSubscriptions();
 
@@ -240,6 +462,25 @@ public class MembershipServiceTest {
         assertEquals(SubscriptionStatus.EXPIRED, expired.getStatus());
     }
 
+    @Test
+    void testExpiryIndexTracksOnlyDueActiveSubscriptions() {
+        userRepo.save(new User("user-2", "Second User"));
+        Subscription due = service.subscribe("user-1", "MONTHLY", "SILVER");
+        Subscription cancelled = service.subscribe("user-2", "MONTHLY", "SILVER");
+
+        forceExpiry(due);
+        forceExpiry(cancelled);
+        service.cancelSubscription(cancelled.getId());
+
+        List<Subscription> found = subRepo.findActiveExpiringBefore(Instant.now());
+        assertEquals(1, found.size());
+        assertEquals(due.getId(), found.get(0).getId());
+
+        service.expireDueSubscriptions();
+        assertTrue(subRepo.findActiveExpiringBefore(Instant.now()).isEmpty());
+        assertEquals(SubscriptionStatus.CANCELLED, current(cancelled).getStatus());
+    }
+
     // ------------------------------------------------------------
     // Repository Behavior
     // ------------------------------------------------------------
@@ -252,6 +493,20 @@ public class MembershipServiceTest {
         assertEquals(1, subRepo.findAll().size());
     }
 
+    @Test
+    void testUserIndexFollowsDelete() {
+        Subscription s1 = service.subscribe("user-1", "MONTHLY", "SILVER");
+        service.cancelSubscription(s1.getId());
+        Subscription s2 = service.subscribe("user-1", "YEARLY", "GOLD");
+
+        subRepo.delete(s1.getId());
+
+        List<Subscription> list = subRepo.findByUserId("user-1");
+        assertEquals(1, list.size());
+        assertEquals(s2.getId(), list.get(0).getId());
+        assertTrue(subRepo.findByUserId("nobody").isEmpty());
+    }
+
     // ------------------------------------------------------------
     // Thread Safety — Concurrent tier changes
     // ------------------------------------------------------------
@@ -293,5 +548,41 @@ public class MembershipServiceTest {
 
         MembershipPlan monthly = planRepo.findById("MONTHLY").orElseThrow();
         assertFalse(monthly.getTiers().isEmpty());
+        assertTrue(monthly.hasTier("GOLD"));
+        assertFalse(monthly.hasTier("INVALID"));
+        assertEquals("Gold", monthly.tier("GOLD").getName());
+        assertNull(monthly.tier(null));
+    }
+
+    @Test
+    void testPlanCatalogVersionsArePublishedAtomically() {
+        PlanCatalog pinned = planRepo.catalog();
+        assertEquals(2, pinned.version());
+        assertSame(pinned.plans(), service.listPlans()); // shared, not copied
+        assertThrows(UnsupportedOperationException.class, () -> service.listPlans().clear());
+
+        PlanService plans = new PlanService(planRepo);
+        MembershipPlan quarterly = new MembershipPlan("QUARTERLY", "Quarterly membership", 549, Period.ofMonths(3),
+                planRepo.findById("MONTHLY").orElseThrow().getTiers());
+        plans.createPlan(quarterly);
+
+        PlanCatalog current = plans.catalog();
+        assertEquals(3, current.version());
+        assertEquals(List.of("MONTHLY", "YEARLY", "QUARTERLY"),
+                current.plans().stream().map(MembershipPlan::getId).toList());
+        assertSame(quarterly, current.find(quarterly.getCode()));
+        // A pinned version never changes under its reader
+        assertNull(pinned.find("QUARTERLY"));
+        assertEquals(2, pinned.plans().size());
+
+        Subscription s = service.subscribe("user-1", "QUARTERLY", "GOLD");
+        assertEquals("QUARTERLY", s.getPlanId());
+
+        // Replacing a plan keeps its position
+        plans.createPlan(new MembershipPlan("MONTHLY", "Monthly, repriced", 249, Period.ofMonths(1),
+                quarterly.getTiers()));
+        assertEquals(4, plans.catalog().version());
+        assertEquals(249, plans.listPlans().iterator().next().getPriceInINR());
+        assertEquals(3, plans.listPlans().size());
     }
 }
@@ -0,0 +1,207 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.metrics.MembershipMetrics;
+import com.firstclub.membership.metrics.Operation;
+import com.firstclub.membership.metrics.Rejection;
+import com.firstclub.membership.metrics.ServiceMetrics;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.model.User;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedMembershipServiceTest {
+
+    private static final int USERS = 512;
+
+    private InMemoryPlanRepository planRepo;
+    private InMemoryUserRepository userRepo;
+    private PartitionedMembershipService service;
+
+    @BeforeEach
+    void setup() {
+        planRepo = new InMemoryPlanRepository();
+        userRepo = new InMemoryUserRepository();
+        DataBootstrap.seed(planRepo, userRepo);
+        for (int i = 0; i < USERS; i++) userRepo.save(new User("u-" + i, "User " + i));
+        service = new PartitionedMembershipService(4, planRepo, userRepo, new SimpleTierEvaluator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    // ------------------------------------------------------------
+    // Rules and messages are those of MembershipService
+    // ------------------------------------------------------------
+    @Test
+    void testSubscribeChangeTierCancel() {
+        Subscription s = service.subscribe("u-1", "MONTHLY", "SILVER").join();
+        assertEquals("GOLD", service.upgradeOrDowngrade(s.getId(), "GOLD").join().getTierId());
+        assertEquals("GOLD", service.getSubscription(s.getId()).orElseThrow().getTierId());
+
+        CompletionException again = assertThrows(CompletionException.class,
+                () -> service.subscribe("u-1", "YEARLY", "GOLD").join());
+        assertInstanceOf(IllegalStateException.class, again.getCause());
+        assertEquals("User already has an ACTIVE subscription.", again.getCause().getMessage());
+
+        service.cancelSubscription(s.getId()).join();
+        assertEquals(SubscriptionStatus.CANCELLED, service.getSubscriptionsForUser("u-1").get(0).getStatus());
+    }
+
+    @Test
+    void testUnknownSubscriptionFailsFuture() {
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> service.upgradeOrDowngrade("sub-missing", "GOLD").join());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals("Subscription not found: sub-missing", e.getCause().getMessage());
+        assertTrue(service.getSubscription("sub-missing").isEmpty());
+    }
+
+    // ------------------------------------------------------------
+    // Routing without a shared directory
+    // ------------------------------------------------------------
+    @Test
+    void testGeneratedIdsNameTheUsersShard() {
+        for (int i = 0; i < 20; i++) {
+            Subscription first = service.subscribe("u-" + i, "MONTHLY", "SILVER").join();
+            service.cancelSubscription(first.getId()).join();
+            Subscription second = service.subscribe("u-" + i, "YEARLY", "GOLD").join();
+            assertEquals(Subscription.numericIdOf(first.getId()) % 4, Subscription.numericIdOf(second.getId()) % 4);
+            assertEquals("PLATINUM", service.upgradeOrDowngrade(second.getId(), "PLATINUM").join().getTierId());
+        }
+    }
+
+    @Test
+    void testRestoredIdsAreFoundInTheirUsersShard() {
+        Instant now = Instant.now();
+        List<Subscription> restored = new ArrayList<>();
+        // Numeric ids issued elsewhere name arbitrary shards; each is stored with its user
+        for (int i = 0; i < 40; i++) {
+            restored.add(Subscription.restore(1_000 + i, "u-" + i, "MONTHLY", "SILVER", now,
+                    now.plus(Duration.ofDays(30)), SubscriptionStatus.ACTIVE));
+        }
+        service.saveAll(restored).join();
+        for (Subscription s : restored) {
+            assertEquals(s.getUserId(), service.getSubscription(s.getId()).orElseThrow().getUserId());
+            assertEquals("GOLD", service.upgradeOrDowngrade(s.getId(), "GOLD").join().getTierId());
+        }
+    }
+
+    @Test
+    void testEachShardRecordsItsOwnMetrics() {
+        PartitionedMembershipService metered = new PartitionedMembershipService(4,
+                PartitionedMembershipService.DEFAULT_QUEUE_CAPACITY, planRepo, userRepo, new SimpleTierEvaluator(),
+                EventPublisher.NOOP, () -> new MembershipMetrics(() -> 0, () -> 0));
+        try {
+            for (int i = 0; i < 50; i++) metered.subscribe("u-" + i, "MONTHLY", "SILVER").join();
+            assertThrows(CompletionException.class, () -> metered.cancelSubscription("sub-missing").join());
+
+            List<ServiceMetrics> shards = metered.shardMetrics();
+            assertEquals(4, new HashSet<>(shards).size());
+            assertEquals(50, MembershipMetrics.latency(shards, Operation.SUBSCRIBE).count());
+            assertEquals(1, MembershipMetrics.rejections(shards, Rejection.SUBSCRIPTION_NOT_FOUND));
+            long busy = shards.stream()
+                    .filter(m -> ((MembershipMetrics) m).latency(Operation.SUBSCRIBE).count() > 0)
+                    .count();
+            assertTrue(busy > 1, "subscribes recorded on " + busy + " shard(s)");
+        } finally {
+            metered.close();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Cross-shard reads and sweeps see every shard
+    // ------------------------------------------------------------
+    @Test
+    void testFindAllAndSweepSpanShards() {
+        Instant now = Instant.now();
+        List<Subscription> restored = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            restored.add(new Subscription("restored-" + i, "u-" + i, "MONTHLY", "SILVER",
+                    now.minus(Duration.ofDays(31)), now.minusSeconds(1)));
+        }
+        service.saveAll(restored).join();
+        for (int i = 100; i < 200; i++) service.subscribe("u-" + i, "YEARLY", "GOLD").join();
+
+        assertEquals(200, service.size());
+        assertEquals(200, service.findAll().size());
+        assertEquals(2, service.listPlans().size());
+
+        service.expireDueSubscriptions().join();
+        long expired = service.findAll().stream().filter(s -> s.getStatus() == SubscriptionStatus.EXPIRED).count();
+        assertEquals(100, expired);
+        assertEquals(SubscriptionStatus.EXPIRED, service.getSubscription("restored-7").orElseThrow().getStatus());
+    }
+
+    @Test
+    void testClosedServiceRejectsCommands() {
+        service.close();
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> service.subscribe("u-1", "MONTHLY", "SILVER").join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    // ------------------------------------------------------------
+    // Churn at every shard count: one ACTIVE per user holds
+    // ------------------------------------------------------------
+    @Test
+    void testChurnAcrossShardCounts() throws Exception {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int shards : new int[]{1, 2, 4, 8}) {
+            PartitionedMembershipService partitioned =
+                    new PartitionedMembershipService(shards, planRepo, userRepo, new SimpleTierEvaluator());
+            try {
+                churn(partitioned, threads, 10_000);
+                for (int i = 0; i < USERS; i++) {
+                    long active = partitioned.getSubscriptionsForUser("u-" + i).stream()
+                            .filter(s -> s.getStatus() == SubscriptionStatus.ACTIVE)
+                            .count();
+                    assertTrue(active <= 1, "user u-" + i + " has " + active + " ACTIVE subscriptions");
+                }
+            } finally {
+                partitioned.close();
+            }
+        }
+    }
+
+    private void churn(PartitionedMembershipService partitioned, int threads, int opsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < opsPerThread; i++) {
+                    String userId = "u-" + rnd.nextInt(USERS);
+                    try {
+                        Subscription s = partitioned.subscribe(userId, "MONTHLY", "SILVER").join();
+                        partitioned.cancelSubscription(s.getId()).join();
+                    } catch (CompletionException alreadyActive) {
+                        // another thread's subscription for this user is between subscribe and cancel
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,235 @@
+package com.firstclub.membership.service;
+
+import com.firstclub.membership.DataBootstrap;
+import com.firstclub.membership.event.EventPublisher;
+import com.firstclub.membership.event.LifecycleEventType;
+import com.firstclub.membership.model.MembershipPlan;
+import com.firstclub.membership.model.PlanCatalog;
+import com.firstclub.membership.model.Subscription;
+import com.firstclub.membership.model.SubscriptionStatus;
+import com.firstclub.membership.repo.InMemoryPlanRepository;
+import com.firstclub.membership.repo.InMemorySubscriptionRepository;
+import com.firstclub.membership.repo.InMemoryUserRepository;
+import com.firstclub.membership.util.TimeUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenewalEngineTest {
+
+    private static final Instant NOW = Instant.now();
+    private static final RenewalEngine.Policy FAST_RETRIES = new RenewalEngine.Policy(
+            Duration.ofHours(1), 1024, 4, 3, Duration.ofMillis(5), Duration.ofMillis(20));
+
+    private InMemoryPlanRepository planRepo;
+    private InMemorySubscriptionRepository subRepo;
+    private List<LifecycleEventType> events;
+    private RenewalEngine engine;
+
+    @BeforeEach
+    void setup() {
+        planRepo = new InMemoryPlanRepository();
+        subRepo = new InMemorySubscriptionRepository();
+        DataBootstrap.seed(planRepo, new InMemoryUserRepository());
+        events = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.close();
+    }
+
+    private RenewalEngine engine(RenewalEngine.Charger charger) {
+        EventPublisher publisher = (type, s, previousTierCode) -> {
+            synchronized (events) {
+                events.add(type);
+            }
+        };
+        engine = new RenewalEngine(subRepo, planRepo, charger, publisher, FAST_RETRIES);
+        return engine;
+    }
+
+    private Subscription save(String id, boolean autoRenew, Instant expiresAt) {
+        Subscription s = Subscription.restore(id, "user-" + id, "MONTHLY", "SILVER",
+                expiresAt.minus(Duration.ofDays(30)), expiresAt, SubscriptionStatus.ACTIVE, 0, autoRenew);
+        subRepo.save(s);
+        return s;
+    }
+
+    private Subscription current(String id) {
+        return subRepo.findById(id).orElseThrow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Only flagged subscriptions inside the lead time are renewed
+    // ------------------------------------------------------------
+    @Test
+    void testRenewsFlaggedDueSubscriptionsByPlanPeriod() {
+        Instant soon = NOW.plus(Duration.ofMinutes(10));
+        Subscription flagged = save("s-1", true, soon);
+        save("s-2", false, soon);
+        save("s-3", true, NOW.plus(Duration.ofDays(20)));
+
+        RenewalEngine.Report report = engine(RenewalEngine.Charger.NONE).renewDue();
+
+        assertEquals(1, report.due());
+        assertEquals(1, report.renewed());
+        Subscription renewed = current("s-1");
+        assertEquals(TimeUtil.plusPeriod(flagged.getExpiresAt(), Period.ofMonths(1)), renewed.getExpiresAt());
+        assertEquals(SubscriptionStatus.ACTIVE, renewed.getStatus());
+        assertEquals(1, renewed.getVersion());
+        assertEquals(soon, current("s-2").getExpiresAt());
+        assertEquals(0, current("s-3").getVersion());
+        assertEquals(List.of(LifecycleEventType.RENEWED), events);
+
+        // Renewed past the lead time: the next pass has nothing to do
+        assertEquals(0, engine.renewDue().due());
+    }
+
+    // ------------------------------------------------------------
+    // Failures back off and retry; the last attempt gives up
+    // ------------------------------------------------------------
+    @Test
+    void testRefusedChargeIsRetried() throws Exception {
+        Instant soon = NOW.plus(Duration.ofMinutes(10));
+        save("s-1", true, soon);
+        AtomicInteger charges = new AtomicInteger();
+        engine((subscription, plan) -> {
+            if (charges.incrementAndGet() < 3) throw new IllegalStateException("card declined");
+        });
+
+        RenewalEngine.Report report = engine.renewDue();
+        assertEquals(0, report.renewed());
+        assertEquals(1, report.retrying());
+        assertEquals(0, engine.renewDue().due()); // waiting for its retry, not picked up twice
+
+        await(() -> engine.renewedTotal() == 1);
+        assertEquals(3, charges.get());
+        assertEquals(TimeUtil.plusPeriod(soon, Period.ofMonths(1)), current("s-1").getExpiresAt());
+        assertEquals(0, engine.pendingCount());
+    }
+
+    @Test
+    void testUnexpectedFailureReleasesBatchForLaterPass() {
+        Instant soon = NOW.plus(Duration.ofMinutes(10));
+        save("s-1", true, soon);
+        AtomicInteger catalogReads = new AtomicInteger();
+        InMemoryPlanRepository flakyPlans = new InMemoryPlanRepository() {
+            @Override
+            public PlanCatalog catalog() {
+                if (catalogReads.incrementAndGet() == 1) throw new IllegalStateException("catalog unavailable");
+                return super.catalog();
+            }
+        };
+        planRepo.catalog().plans().forEach(flakyPlans::save);
+        engine = new RenewalEngine(subRepo, flakyPlans, RenewalEngine.Charger.NONE, EventPublisher.NOOP, FAST_RETRIES);
+
+        assertThrows(CompletionException.class, engine::renewDue);
+        assertEquals(0, engine.pendingCount());
+
+        RenewalEngine.Report report = engine.renewDue(); // not stuck as pending
+        assertEquals(1, report.renewed());
+        assertEquals(TimeUtil.plusPeriod(soon, Period.ofMonths(1)), current("s-1").getExpiresAt());
+    }
+
+    @Test
+    void testGivesUpAfterLastAttempt() throws Exception {
+        Instant soon = NOW.plus(Duration.ofMinutes(10));
+        save("s-1", true, soon);
+        AtomicInteger charges = new AtomicInteger();
+        engine((subscription, plan) -> {
+            charges.incrementAndGet();
+            throw new IllegalStateException("card declined");
+        });
+
+        engine.renewDue();
+        await(() -> engine.failedTotal() == 1);
+        assertEquals(FAST_RETRIES.maxAttempts(), charges.get());
+        assertEquals(soon, current("s-1").getExpiresAt());
+        assertEquals(0, engine.pendingCount());
+
+        // Left to expire: later passes do not start over for the same expiry
+        assertEquals(0, engine.renewDue().due());
+        assertEquals(FAST_RETRIES.maxAttempts(), charges.get());
+    }
+
+    // ------------------------------------------------------------
+    // A concurrent cancel wins over a renewal, and its charge is refunded
+    // ------------------------------------------------------------
+    @Test
+    void testCancelledWhileChargingIsRefunded() {
+        Instant soon = NOW.plus(Duration.ofMinutes(10));
+        save("s-1", true, soon);
+        save("s-2", true, soon);
+        Map<String, Integer> net = new ConcurrentHashMap<>();
+        engine(new RenewalEngine.Charger() {
+            @Override
+            public void charge(Subscription subscription, MembershipPlan plan) {
+                net.merge(subscription.getId(), 1, Integer::sum);
+                if (subscription.getId().equals("s-1")) {
+                    assertTrue(subRepo.replace(subscription, subscription.cancelled()));
+                }
+            }
+
+            @Override
+            public void refund(Subscription subscription, MembershipPlan plan) {
+                net.merge(subscription.getId(), -1, Integer::sum);
+            }
+        });
+
+        RenewalEngine.Report report = engine.renewDue();
+
+        assertEquals(1, report.renewed());
+        assertEquals(SubscriptionStatus.CANCELLED, current("s-1").getStatus());
+        assertEquals(soon, current("s-1").getExpiresAt());
+        assertEquals(0, net.get("s-1"));
+        assertEquals(1, net.get("s-2"));
+        assertEquals(List.of(LifecycleEventType.RENEWED), events);
+    }
+
+    // ------------------------------------------------------------
+    // A whole cohort due at the same instant
+    // ------------------------------------------------------------
+    @Test
+    void testWholeCohortRenewsWithinConcurrencyBound() {
+        int cohort = 100_000;
+        Instant sameInstant = NOW.plus(Duration.ofMinutes(5));
+        List<Subscription> subs = new ArrayList<>(cohort);
+        for (int i = 0; i < cohort; i++) {
+            subs.add(Subscription.restore("c-" + i, "user-" + i, "MONTHLY", "SILVER",
+                    sameInstant.minus(Duration.ofDays(30)), sameInstant, SubscriptionStatus.ACTIVE, 0, true));
+        }
+        subRepo.saveAll(subs);
+        ConcurrentHashMap<Thread, Boolean> threads = new ConcurrentHashMap<>();
+        engine((subscription, plan) -> threads.put(Thread.currentThread(), Boolean.TRUE));
+
+        RenewalEngine.Report report = engine.renewDue();
+
+        assertEquals(cohort, report.due());
+        assertEquals(cohort, report.renewed());
+        assertTrue(threads.size() <= FAST_RETRIES.maxInFlight());
+        Instant renewedTo = TimeUtil.plusPeriod(sameInstant, Period.ofMonths(1));
+        for (int i = 0; i < cohort; i += 997) assertEquals(renewedTo, current("c-" + i).getExpiresAt());
+    }
+}
@@ -0,0 +1,105 @@
+package com.firstclub.membership.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleBasedTierEvaluatorTest {
+
+    // ------------------------------------------------------------
+    // Defaults match SimpleTierEvaluator
+    // ------------------------------------------------------------
+    @Test
+    void testDefaultsMatchSimpleEvaluator() {
+        TierEvaluator simple = new SimpleTierEvaluator();
+        TierEvaluator rules = RuleBasedTierEvaluator.fromResource("tier-rules.properties");
+
+        for (int orders = 0; orders <= 12; orders++) {
+            for (double value : new double[] {0, 9999.99, 10000, 49999, 50000, 80000}) {
+                Map<String, Number> m = Map.of("ordersCount", orders, "orderValue", value);
+                assertEquals(simple.evaluate(m), rules.evaluate(m), "metrics " + m);
+            }
+        }
+        assertEquals("SILVER", rules.evaluate(Map.of()));
+    }
+
+    // ------------------------------------------------------------
+    // Vector and map signatures agree
+    // ------------------------------------------------------------
+    @Test
+    void testVectorOverloadMatchesMapSignature() {
+        TierEvaluator simple = new SimpleTierEvaluator();
+        TierEvaluator rules = RuleBasedTierEvaluator.withDefaults();
+        TierEvaluator mapOnly = m -> simple.evaluate(m); // relies on the default adapter
+
+        MetricsVector v = new MetricsVector();
+        for (int orders = 0; orders <= 12; orders++) {
+            for (double value : new double[] {0, 10000, 50000}) {
+                v.clear();
+                v.set(MetricSchema.ORDERS_COUNT, orders).set(MetricSchema.ORDER_VALUE, value);
+                String expected = simple.evaluate(Map.of("ordersCount", orders, "orderValue", value));
+                assertEquals(expected, simple.evaluate(v));
+                assertEquals(expected, rules.evaluate(v));
+                assertEquals(expected, mapOnly.evaluate(v));
+            }
+        }
+        MetricsVector fromMap = MetricsVector.fromMap(Map.of("ordersCount", 7, "unknownMetric", 1));
+        assertEquals(7, fromMap.getLong(MetricSchema.ORDERS_COUNT));
+        assertEquals("GOLD", rules.evaluate(fromMap));
+    }
+
+    @Test
+    void testPooledVectorSeesMetricAddedByReload() {
+        MetricsVector pooled = new MetricsVector(); // built before the reload registers "referrals"
+        RuleBasedTierEvaluator rules = RuleBasedTierEvaluator.withDefaults();
+        Properties p = new Properties();
+        p.setProperty("tiers", "GOLD");
+        p.setProperty("default", "SILVER");
+        p.setProperty("GOLD.referrals", "3");
+        rules.reload(p);
+
+        MetricSchema.Slot referrals = MetricSchema.slot("referrals");
+        assertEquals(0.0, pooled.get(referrals));
+        assertEquals("SILVER", rules.evaluate(pooled));
+        pooled.set(referrals, 3.0);
+        assertEquals(3.0, pooled.get(referrals));
+        assertEquals("GOLD", rules.evaluate(pooled));
+        pooled.clear();
+        assertEquals("SILVER", rules.evaluate(pooled));
+    }
+
+    // ------------------------------------------------------------
+    // Per-plan overrides and runtime swap
+    // ------------------------------------------------------------
+    @Test
+    void testPlanOverrideAndReload() {
+        RuleBasedTierEvaluator rules = RuleBasedTierEvaluator.withDefaults();
+        Properties p = new Properties();
+        p.setProperty("tiers", "PLATINUM,GOLD");
+        p.setProperty("default", "SILVER");
+        p.setProperty("PLATINUM.ordersCount", "10");
+        p.setProperty("GOLD.ordersCount", "5");
+        p.setProperty("plan.YEARLY.GOLD.ordersCount", "3");
+
+        assertEquals("SILVER", rules.evaluate("YEARLY", Map.of("ordersCount", 3)));
+        rules.reload(p);
+        assertEquals("GOLD", rules.evaluate("YEARLY", Map.of("ordersCount", 3)));
+        assertEquals("SILVER", rules.evaluate("MONTHLY", Map.of("ordersCount", 3)));
+        assertEquals("PLATINUM", rules.evaluate("YEARLY", Map.of("ordersCount", 10)));
+    }
+
+    @Test
+    void testInvalidConfigRejectedAndOldRulesKept() {
+        RuleBasedTierEvaluator rules = RuleBasedTierEvaluator.withDefaults();
+        Properties bad = new Properties();
+        bad.setProperty("tiers", "GOLD");
+        bad.setProperty("default", "SILVER");
+        bad.setProperty("GOLD.ordersCount", "five");
+
+        assertThrows(IllegalArgumentException.class, () -> rules.reload(bad));
+        assertEquals("GOLD", rules.evaluate(Map.of("ordersCount", 5)));
+    }
+}
@@ -0,0 +1,96 @@
+package com.firstclub.membership.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdGeneratorTest {
+
+    // ------------------------------------------------------------
+    // Layout and ordering
+    // ------------------------------------------------------------
+    @Test
+    void testIdsAreTimeOrderedAndDecodable() {
+        long before = System.currentTimeMillis();
+        long previous = IdGenerator.next();
+        for (int i = 0; i < 100_000; i++) {
+            long id = IdGenerator.next();
+            assertTrue(id > previous, "ids must increase within a thread");
+            previous = id;
+        }
+        assertTrue(IdGenerator.timestampOf(previous) >= before);
+        assertTrue(IdGenerator.timestampOf(previous) <= System.currentTimeMillis() + 5_000);
+        assertEquals(0, IdGenerator.nodeOf(previous));
+        assertEquals("sub-" + previous, IdGenerator.render("sub", previous));
+    }
+
+    @Test
+    void testObservedIdIsNeverReissued() {
+        // An id from two seconds ahead, e.g. written before the clock was stepped back
+        long future = IdGenerator.next() + (2_000L << 22);
+        IdGenerator.observe("sub-" + future);
+        assertTrue(IdGenerator.next() > future);
+        IdGenerator.observe("not-a-number");
+        IdGenerator.observe("legacy-1");
+    }
+
+    @Test
+    void testThreadPerRequestUsesConsecutiveSequenceNumbers() throws Exception {
+        // Like the HTTP server: every id comes from a thread that takes just that one
+        int requests = 500;
+        long[] ids = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            int slot = i;
+            Thread request = new Thread(() -> ids[slot] = IdGenerator.next());
+            request.start();
+            request.join();
+        }
+        for (int i = 1; i < requests; i++) {
+            if (IdGenerator.timestampOf(ids[i]) == IdGenerator.timestampOf(ids[i - 1])) {
+                assertEquals(ids[i - 1] + 1, ids[i], "sequence numbers skipped within a millisecond");
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Uniqueness under contention
+    // ------------------------------------------------------------
+    @Test
+    void testUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        List<long[]> batches = runConcurrently(threads, perThread, IdGenerator::next);
+        Set<Long> all = new HashSet<>();
+        for (long[] batch : batches) {
+            for (long id : batch) assertTrue(all.add(id), "duplicate id " + id);
+        }
+        assertEquals(threads * perThread, all.size());
+    }
+
+    private interface LongSupplier { long next(); }
+
+    private static List<long[]> runConcurrently(int threads, int perThread, LongSupplier ids) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] out = new long[perThread];
+                start.await();
+                for (int i = 0; i < perThread; i++) out[i] = ids.next();
+                return out;
+            }));
+        }
+        start.countDown();
+        List<long[]> result = new ArrayList<>();
+        for (Future<long[]> f : futures) result.add(f.get());
+        executor.shutdown();
+        return result;
+    }
+}